@@ -62,7 +62,7 @@ public class BackgroundService extends JobIntentService implements OperationHand
 
     protected OperationHandler onCreateOperationHandler() {
         final Context context = getApplicationContext();
-        final RequestExecutor executor = new RequestExecutor.ThreadedRequestExecutor();
+        final RequestExecutor executor = RequestExecutors.getShared();
         final OperationHandler handler = new OperationHandler(context, executor);
         handler.setOperationHandlerObserver(this);
         handler.setOnStateChangeListener(this);
@@ -0,0 +1,10 @@
+package io.pivotal.arca.service;
+
+/*
+ * A RequestExecutor that lets a cancelled task take its networking request
+ * back, so the request stops waiting on a flight or a delay that no longer
+ * matters to it.
+ */
+public interface CancellingRequestExecutor extends RequestExecutor {
+	void cancelNetworkingRequest(NetworkingRequest<?> request);
+}
@@ -8,6 +8,7 @@ public class NetworkingPrioritizable<T> extends Prioritizable {
 
 	private final NetworkingTask<T> mTask;
 
+	private volatile Object mKey;
 	private ServiceError mError;
 	private T mData;
 
@@ -33,6 +34,14 @@ public class NetworkingPrioritizable<T> extends Prioritizable {
 		}
 	}
 
+	public Object getKey() {
+		return mKey;
+	}
+
+	public void setKey(final Object key) {
+		mKey = key;
+	}
+
 	public Object getData() {
 		return mData;
 	}
@@ -1,11 +1,23 @@
 package io.pivotal.arca.service;
 
+import io.pivotal.arca.threading.KeySelector;
 import io.pivotal.arca.threading.PrioritizableRequest;
+import io.pivotal.arca.threading.SingleFlight;
 
-public class NetworkingRequest<T> extends PrioritizableRequest {
+public class NetworkingRequest<T> extends PrioritizableRequest implements SingleFlight.Callback<NetworkingRequest<?>> {
+
+	/* Selects the key a task chose in Task.onCreateNetworkingKey(). */
+	public static final KeySelector KEY = new KeySelector() {
+		@Override
+		public Object getKey(final PrioritizableRequest request) {
+			return request instanceof NetworkingRequest ? ((NetworkingRequest<?>) request).getPrioritizable().getKey() : null;
+		}
+	};
 
 	private final NetworkingPrioritizableObserver<T> mObserver;
 
+	private volatile boolean mJoined;
+
 	public NetworkingRequest(final NetworkingPrioritizable<?> prioritizable, final int accessorIndex, final NetworkingPrioritizableObserver<T> observer) {
 		super(prioritizable, accessorIndex);
 		mObserver = observer;
@@ -20,6 +32,22 @@ public class NetworkingRequest<T> extends PrioritizableRequest {
 		}
 	}
 
+	@Override
+	public void onComplete(final NetworkingRequest<?> result) {
+		mJoined = result != this;
+		notifyComplete(result.getData(), result.getError());
+	}
+
+	/* Whether the result came from another request in the same flight. */
+	public boolean isJoined() {
+		return mJoined;
+	}
+
+	@Override
+	public void onCancelled() {
+		notifyComplete(null, new ServiceError(ServiceError.Messages.REQUEST_CANCELLED));
+	}
+
 	@Override
 	public NetworkingPrioritizable<?> getPrioritizable() {
 		return (NetworkingPrioritizable<?>) super.getPrioritizable();
@@ -7,8 +7,11 @@ import android.os.Parcel;
 import android.os.Parcelable;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import io.pivotal.arca.threading.Identifier;
@@ -33,6 +36,7 @@ public abstract class Operation implements Parcelable, TaskObserver {
     private Identifier<?> mIdentifier;
     private OperationObserver mObserver;
     private RequestExecutor mExecutor;
+    private RetryPolicy mRetryPolicy;
     private Context mContext;
 
 
@@ -65,6 +69,10 @@ public abstract class Operation implements Parcelable, TaskObserver {
         return mUri;
     }
 
+    public final Priority getPriority() {
+        return mPriority;
+    }
+
     public void setContext(final Context context) {
         mContext = context;
     }
@@ -80,12 +88,14 @@ public abstract class Operation implements Parcelable, TaskObserver {
     public void execute() {
         Logger.v("Operation[%s] execute", this);
         mIsComplete = false;
+        mRetryPolicy = onCreateRetryPolicy();
         final Set<Task<?>> tasks = onCreateTasks();
         checkTasks(tasks);
     }
 
     private void checkTasks(final Set<Task<?>> tasks) {
         if (tasks != null && !tasks.isEmpty()) {
+            assignCriticalPaths(tasks);
             addTasksToPending(tasks);
             executeTasks(tasks);
         } else {
@@ -94,11 +104,47 @@ public abstract class Operation implements Parcelable, TaskObserver {
     }
 
     private void executeTasks(final Set<Task<?>> tasks) {
-        for (final Task<?> task : tasks) {
+        final List<Task<?>> ordered = new ArrayList<Task<?>>(tasks);
+        Collections.sort(ordered, Task.EXECUTION_ORDER);
+        for (final Task<?> task : ordered) {
             task.execute();
         }
     }
 
+    /*
+     * A task's critical path is its own estimated duration plus the longest
+     * critical path among its dependencies. Tasks are started, and their
+     * dependents released, so each lane serves the longest path first and
+     * the chain that bounds the operation's total time is never left
+     * waiting behind short branches. See Task.EXECUTION_ORDER.
+     */
+    private void assignCriticalPaths(final Set<Task<?>> tasks) {
+        final Map<Task<?>, Long> paths = new HashMap<Task<?>, Long>();
+        for (final Task<?> task : tasks) {
+            computeCriticalPath(task, paths);
+        }
+    }
+
+    private long computeCriticalPath(final Task<?> task, final Map<Task<?>, Long> paths) {
+        final Long known = paths.get(task);
+        if (known != null) {
+            return known;
+        }
+
+        // guards against cycles, which would never complete anyway
+        paths.put(task, 0L);
+
+        long longest = 0;
+        for (final Task<?> dependency : new ArrayList<Task<?>>(task.getDependencies())) {
+            longest = Math.max(longest, computeCriticalPath(dependency, paths));
+        }
+
+        final long path = onEstimateTaskDuration(task) + longest;
+        paths.put(task, path);
+        task.setCriticalPath(path);
+        return path;
+    }
+
     public void cancel() {
         Logger.v("Operation[%s] cancel", this);
 
@@ -134,6 +180,7 @@ public abstract class Operation implements Parcelable, TaskObserver {
     public void onTaskComplete(final Task<?> task) {
         Logger.v("Operation[%s] Task[%s] complete", this, task);
 
+        TaskDurations.record(task, task.getDuration());
         moveTaskToCompleted(task);
         handleTaskDependencies(task);
         checkTaskCompletion();
@@ -175,6 +222,7 @@ public abstract class Operation implements Parcelable, TaskObserver {
     private void handleTaskDependencies(final Task<?> task) {
         Logger.v("Operation[%s] Task[%s] add task dependencies", this, task);
         final Set<Task<?>> tasks = task.getDependencies();
+        assignCriticalPaths(tasks);
         addTasksToPending(tasks);
     }
 
@@ -194,7 +242,11 @@ public abstract class Operation implements Parcelable, TaskObserver {
                 task.setTaskObserver(this);
                 task.setRequestExecutor(mExecutor);
                 task.setPriority(mPriority);
+                task.setGroup(getIdentifier());
                 task.setContext(mContext);
+                if (task.getRetryPolicy() == null) {
+                    task.setRetryPolicy(mRetryPolicy);
+                }
                 mPendingTasks.add(task);
             }
         }
@@ -303,6 +355,22 @@ public abstract class Operation implements Parcelable, TaskObserver {
         return new Identifier<Uri>(getUri());
     }
 
+    /*
+     * Retry policy for tasks that do not set their own. Return null, the
+     * default, to fail a task on its first networking failure.
+     */
+    public RetryPolicy onCreateRetryPolicy() {
+        return null;
+    }
+
+    /*
+     * Weight of a task when computing critical paths. Defaults to the
+     * average duration of previous tasks of the same class.
+     */
+    public long onEstimateTaskDuration(final Task<?> task) {
+        return TaskDurations.estimate(task);
+    }
+
     public void onComplete(Context context, Results results) {}
 
     @Deprecated
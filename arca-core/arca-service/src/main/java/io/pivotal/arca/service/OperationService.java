@@ -6,15 +6,21 @@ import android.content.Intent;
 import android.os.IBinder;
 
 import java.util.Collection;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import io.pivotal.arca.threading.Identifier;
+import io.pivotal.arca.threading.SheddingPolicy;
 import io.pivotal.arca.utils.Logger;
 
 public class OperationService extends Service implements OperationHandler.OnStateChangeListener, OperationHandlerObserver {
 
     private static final Object LOCK = new Object();
     private static final HashMap<Identifier<?>, Operation> OPERATIONS = new HashMap<>();
+    private static final EnumMap<Priority, Admission> ADMISSIONS = new EnumMap<>(Priority.class);
 
     protected enum Action {
         START, CANCEL
@@ -31,6 +37,32 @@ public class OperationService extends Service implements OperationHandler.OnStat
         }
     }
 
+    /*
+     * Limits how many operations of the given priority may be started and not
+     * yet finished. Once the limit is reached start() either returns false or
+     * cancels the oldest of them to make room, depending on the policy.
+     */
+    public static void setCapacity(final Priority priority, final int capacity, final SheddingPolicy policy) {
+        if (priority == null)
+            throw new IllegalArgumentException("Priority cannot be null.");
+
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Capacity must be greater than zero.");
+
+        if (policy == null)
+            throw new IllegalArgumentException("Shedding policy cannot be null.");
+
+        synchronized (LOCK) {
+            ADMISSIONS.put(priority, new Admission(capacity, policy));
+        }
+    }
+
+    public static void clearCapacity(final Priority priority) {
+        synchronized (LOCK) {
+            ADMISSIONS.remove(priority);
+        }
+    }
+
     public static boolean start(final Context context, final Operation operation) {
         return start(context, operation, Action.START);
     }
@@ -40,7 +72,62 @@ public class OperationService extends Service implements OperationHandler.OnStat
     }
 
     private static boolean start(final Context context, final Operation operation, final Action action) {
-        return context != null && operation != null && startService(context, operation, action);
+        if (context == null || operation == null) {
+            return false;
+        }
+
+        if (action != Action.START) {
+            return startService(context, operation, action);
+        }
+
+        if (!admit(context, operation)) {
+            return false;
+        }
+
+        // startService() throws when the app may not start services, e.g. from the background on API 26+
+        try {
+            return startService(context, operation, action);
+        } catch (final RuntimeException e) {
+            release(operation);
+            throw e;
+        }
+    }
+
+    private static boolean admit(final Context context, final Operation operation) {
+        final Operation dropped;
+
+        synchronized (LOCK) {
+            final Admission admission = ADMISSIONS.get(operation.getPriority());
+            if (admission == null || admission.offer(operation)) {
+                return true;
+            }
+
+            if (admission.mPolicy == SheddingPolicy.REJECT_NEWEST) {
+                Logger.v("Rejected operation %s, %s priority is saturated", operation, operation.getPriority());
+                return false;
+            }
+
+            dropped = admission.removeOldest();
+            admission.offer(operation);
+        }
+
+        Logger.v("Dropped operation %s, %s priority is saturated", dropped, operation.getPriority());
+        try {
+            startService(context, dropped, Action.CANCEL);
+        } catch (final RuntimeException e) {
+            release(operation);
+            throw e;
+        }
+        return true;
+    }
+
+    private static void release(final Operation operation) {
+        synchronized (LOCK) {
+            final Admission admission = ADMISSIONS.get(operation.getPriority());
+            if (admission != null) {
+                admission.remove(operation);
+            }
+        }
     }
 
     private static boolean startService(final Context context, final Operation operation, final Action action) {
@@ -66,7 +153,7 @@ public class OperationService extends Service implements OperationHandler.OnStat
 
     protected OperationHandler onCreateOperationHandler() {
         final Context context = getApplicationContext();
-        final RequestExecutor executor = new RequestExecutor.ThreadedRequestExecutor();
+        final RequestExecutor executor = RequestExecutors.getShared();
         final OperationHandler handler = new OperationHandler(context, executor);
         handler.setOperationHandlerObserver(this);
         handler.setOnStateChangeListener(this);
@@ -119,8 +206,15 @@ public class OperationService extends Service implements OperationHandler.OnStat
         }
     }
 
+    /*
+     * Operations left over from a previous instance of the service will never
+     * finish, so their admission slots are released as well.
+     */
     protected void clearOperations() {
         synchronized (LOCK) {
+            for (final Operation operation : OPERATIONS.values()) {
+                release(operation);
+            }
             OPERATIONS.clear();
         }
     }
@@ -136,6 +230,7 @@ public class OperationService extends Service implements OperationHandler.OnStat
     public void onOperationFinished(final Operation operation) {
         synchronized (LOCK) {
             OPERATIONS.remove(operation.getIdentifier());
+            release(operation);
         }
     }
 
@@ -145,4 +240,45 @@ public class OperationService extends Service implements OperationHandler.OnStat
             stopSelf(mLatestStartId);
         }
     }
+
+    private static final class Admission {
+        private final Map<Identifier<?>, Operation> mOperations = new LinkedHashMap<>();
+        private final int mCapacity;
+        private final SheddingPolicy mPolicy;
+
+        Admission(final int capacity, final SheddingPolicy policy) {
+            mCapacity = capacity;
+            mPolicy = policy;
+        }
+
+        boolean offer(final Operation operation) {
+            final Identifier<?> identifier = operation.getIdentifier();
+            if (mOperations.containsKey(identifier)) {
+                return true;
+            }
+            if (mOperations.size() >= mCapacity) {
+                return false;
+            }
+            mOperations.put(identifier, operation);
+            return true;
+        }
+
+        /*
+         * Only the operation holding the slot frees it, not a duplicate that
+         * was admitted alongside it.
+         */
+        void remove(final Operation operation) {
+            final Identifier<?> identifier = operation.getIdentifier();
+            if (mOperations.get(identifier) == operation) {
+                mOperations.remove(identifier);
+            }
+        }
+
+        Operation removeOldest() {
+            final Iterator<Operation> iterator = mOperations.values().iterator();
+            final Operation operation = iterator.next();
+            iterator.remove();
+            return operation;
+        }
+    }
 }
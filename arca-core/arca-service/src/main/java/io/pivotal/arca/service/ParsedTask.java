@@ -0,0 +1,116 @@
+package io.pivotal.arca.service;
+
+import android.content.Context;
+
+import io.pivotal.arca.threading.Identifier;
+import io.pivotal.arca.utils.Logger;
+
+/*
+ * A Task with a CPU-bound parsing stage between networking and processing,
+ * e.g. turning a response body into model objects. Networking returns the
+ * raw response, which is parsed on the executor's parsing pool if it has
+ * one, or inline once networking completes if it does not.
+ */
+public abstract class ParsedTask<R, T> extends Task<T> implements ParsingTask<R, T>, ParsingPrioritizableObserver<T> {
+
+    private final ResponseStage mResponseStage = new ResponseStage();
+
+    public abstract R onExecuteRequest(Context context) throws Exception;
+
+    public abstract T onExecuteParsing(Context context, R response) throws Exception;
+
+    /*
+     * Runs both stages in one go. The task itself never calls this, it runs
+     * them on their own executors.
+     */
+    @Override
+    public final T onExecuteNetworking(final Context context) throws Exception {
+        return onExecuteParsing(context, onExecuteRequest(context));
+    }
+
+    @Override
+    final NetworkingRequest<?> newNetworkingRequest() {
+        return newNetworkingRequest(mResponseStage, mResponseStage);
+    }
+
+    private void startParsingRequest(final R response) {
+        Logger.v("Task[%s] start parsing request", this);
+
+        final RequestExecutor executor = getRequestExecutor();
+        if (executor instanceof ParsingRequestExecutor) {
+            final ParsingPrioritizable<R, T> prioritizable = new ParsingPrioritizable<R, T>(this, response);
+            prioritizable.setGroup(getGroup());
+            prioritizable.setPriorityValue(-getCriticalPath());
+            final ParsingRequest<T> request = new ParsingRequest<T>(prioritizable, getPriority().ordinal(), this);
+            ((ParsingRequestExecutor) executor).executeParsingRequest(request);
+        } else if (executor != null) {
+            parseInline(response);
+        } else {
+            throw new IllegalStateException(Messages.NO_EXECUTOR);
+        }
+    }
+
+    private void parseInline(final R response) {
+        final T parsed;
+        try {
+            parsed = executeParsing(response);
+        } catch (final ServiceException e) {
+            Logger.ex(e);
+            onParsingFailure(e.getError());
+            return;
+        } catch (final Exception e) {
+            Logger.ex(e);
+            onParsingFailure(new ServiceError(e));
+            return;
+        }
+        onParsingComplete(parsed);
+    }
+
+    @Override
+    public final T executeParsing(final R response) throws Exception {
+        return onExecuteParsing(getContext(), response);
+    }
+
+    @Override
+    public final void onParsingComplete(final T data) {
+        Logger.v("Task[%s] parsing complete", this);
+
+        onDataReady(data);
+    }
+
+    @Override
+    public final void onParsingFailure(final ServiceError error) {
+        Logger.v("Task[%s] parsing failure : %s", this, error);
+
+        fail(error);
+    }
+
+    /*
+     * The networking stage of a parsed task fetches the raw response. A
+     * failure goes through the task, so it is retried like any other.
+     */
+    private final class ResponseStage implements NetworkingTask<R>, NetworkingPrioritizableObserver<R> {
+
+        @Override
+        public Identifier<?> getIdentifier() {
+            return ParsedTask.this.getIdentifier();
+        }
+
+        @Override
+        public R executeNetworking() throws Exception {
+            return onExecuteRequest(getContext());
+        }
+
+        @Override
+        public void onNetworkingComplete(final R response) {
+            Logger.v("Task[%s] networking complete", ParsedTask.this);
+
+            startParsingRequest(response);
+        }
+
+        @Override
+        public void onNetworkingFailure(final ServiceError error) {
+            ParsedTask.this.onNetworkingFailure(error);
+        }
+    }
+}
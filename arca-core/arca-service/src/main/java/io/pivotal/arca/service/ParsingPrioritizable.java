@@ -0,0 +1,46 @@
+package io.pivotal.arca.service;
+
+import io.pivotal.arca.threading.Identifier;
+import io.pivotal.arca.threading.Prioritizable;
+import io.pivotal.arca.utils.Logger;
+
+public class ParsingPrioritizable<I, O> extends Prioritizable {
+
+	private final ParsingTask<I, O> mTask;
+	private final I mInput;
+
+	private ServiceError mError;
+	private O mData;
+
+	public ParsingPrioritizable(final ParsingTask<I, O> task, final I input) {
+		mTask = task;
+		mInput = input;
+	}
+
+	@Override
+	public Identifier<?> getIdentifier() {
+		return mTask.getIdentifier();
+	}
+
+	@Override
+	public void execute() {
+		try {
+			mData = mTask.executeParsing(mInput);
+		} catch (final ServiceException e) {
+			Logger.ex(e);
+			mError = e.getError();
+		} catch (final Exception e) {
+			Logger.ex(e);
+			mError = new ServiceError(e);
+		}
+	}
+
+	public Object getData() {
+		return mData;
+	}
+
+	public ServiceError getError() {
+		return mError;
+	}
+
+}
@@ -0,0 +1,7 @@
+package io.pivotal.arca.service;
+
+public interface ParsingPrioritizableObserver<T> {
+	void onParsingComplete(T data);
+
+	void onParsingFailure(ServiceError error);
+}
@@ -0,0 +1,46 @@
+package io.pivotal.arca.service;
+
+import io.pivotal.arca.threading.PrioritizableRequest;
+import io.pivotal.arca.threading.SingleFlight;
+
+public class ParsingRequest<T> extends PrioritizableRequest implements SingleFlight.Callback<ParsingRequest<?>> {
+
+	private final ParsingPrioritizableObserver<T> mObserver;
+
+	public ParsingRequest(final ParsingPrioritizable<?, ?> prioritizable, final int accessorIndex, final ParsingPrioritizableObserver<T> observer) {
+		super(prioritizable, accessorIndex);
+		mObserver = observer;
+	}
+
+	@SuppressWarnings("unchecked")
+	public void notifyComplete(final Object data, final ServiceError error) {
+		if (error == null) {
+			mObserver.onParsingComplete((T) data);
+		} else {
+			mObserver.onParsingFailure(error);
+		}
+	}
+
+	@Override
+	public void onComplete(final ParsingRequest<?> result) {
+		notifyComplete(result.getData(), result.getError());
+	}
+
+	@Override
+	public void onCancelled() {
+		notifyComplete(null, new ServiceError(ServiceError.Messages.REQUEST_CANCELLED));
+	}
+
+	@Override
+	public ParsingPrioritizable<?, ?> getPrioritizable() {
+		return (ParsingPrioritizable<?, ?>) super.getPrioritizable();
+	}
+
+	public Object getData() {
+		return getPrioritizable().getData();
+	}
+
+	public ServiceError getError() {
+		return getPrioritizable().getError();
+	}
+}
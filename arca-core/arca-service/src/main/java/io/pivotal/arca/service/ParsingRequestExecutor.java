@@ -0,0 +1,10 @@
+package io.pivotal.arca.service;
+
+/*
+ * A RequestExecutor with a pool for CPU-bound parsing, between the
+ * networking and processing pools. Tasks with a parsing stage fall back to
+ * parsing inline when their executor does not implement this.
+ */
+public interface ParsingRequestExecutor extends RequestExecutor {
+	void executeParsingRequest(ParsingRequest<?> request);
+}
@@ -0,0 +1,11 @@
+package io.pivotal.arca.service;
+
+/*
+ * Kept apart from RequestObserver so existing observers do not have to
+ * handle a stage they never see.
+ */
+public interface ParsingRequestObserver {
+	void onParsingRequestComplete(ParsingRequest<?> request);
+
+	void onParsingRequestCancelled(ParsingRequest<?> request);
+}
@@ -0,0 +1,9 @@
+package io.pivotal.arca.service;
+
+import io.pivotal.arca.threading.Identifier;
+
+public interface ParsingTask<I, O> {
+	Identifier<?> getIdentifier();
+
+	O executeParsing(I response) throws Exception;
+}
@@ -1,18 +1,27 @@
 package io.pivotal.arca.service;
 
+import io.pivotal.arca.threading.FairQueuePriorityAccessor;
 import io.pivotal.arca.threading.PriorityAccessor;
-import io.pivotal.arca.threading.QueuePriorityAccessor;
 import io.pivotal.arca.threading.StackPriorityAccessor;
 
 public enum Priority {
 	LIVE, HIGH, MEDIUM, LOW;
 
+	/* Whether the lane serves the request executed last first, see newAccessorArray(). */
+	public boolean isLastInFirstOut() {
+		return this == LIVE;
+	}
+
 	public static PriorityAccessor[] newAccessorArray() {
+		return newAccessorArray(StackPriorityAccessor.UNBOUNDED);
+	}
+
+	public static PriorityAccessor[] newAccessorArray(final int liveCapacity) {
 		return new PriorityAccessor[] { 
-				new StackPriorityAccessor(), // live
-				new QueuePriorityAccessor(), // high
-				new QueuePriorityAccessor(), // med
-				new QueuePriorityAccessor() // low
+				new StackPriorityAccessor(liveCapacity), // live
+				new FairQueuePriorityAccessor(), // high
+				new FairQueuePriorityAccessor(), // med
+				new FairQueuePriorityAccessor() // low
 		};
 	}
 }
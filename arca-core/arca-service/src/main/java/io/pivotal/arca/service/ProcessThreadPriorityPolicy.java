@@ -0,0 +1,44 @@
+package io.pivotal.arca.service;
+
+import android.os.Process;
+
+import io.pivotal.arca.threading.PrioritizableRequest;
+import io.pivotal.arca.threading.ThreadPriorityPolicy;
+
+/*
+ * Maps each Priority lane onto an android.os.Process thread priority, so
+ * LIVE work runs at the default priority and everything else yields to the
+ * UI. Nothing goes below THREAD_PRIORITY_BACKGROUND: a thread parked at a
+ * lower priority while holding a lock the UI thread needs (e.g. the SQLite
+ * write lock) would stall it. Idle workers sit at THREAD_PRIORITY_BACKGROUND.
+ */
+public class ProcessThreadPriorityPolicy implements ThreadPriorityPolicy {
+
+	private static final int[] THREAD_PRIORITIES = {
+			Process.THREAD_PRIORITY_DEFAULT, // live
+			Process.THREAD_PRIORITY_BACKGROUND + Process.THREAD_PRIORITY_MORE_FAVORABLE, // high
+			Process.THREAD_PRIORITY_BACKGROUND, // med
+			Process.THREAD_PRIORITY_BACKGROUND // low
+	};
+
+	@Override
+	public int getPoolPriority() {
+		return Process.THREAD_PRIORITY_BACKGROUND;
+	}
+
+	@Override
+	public int getPriority(final PrioritizableRequest request) {
+		final int index = request.getAccessorIndex();
+		return THREAD_PRIORITIES[Math.min(index, THREAD_PRIORITIES.length - 1)];
+	}
+
+	@Override
+	public int getThreadPriority() {
+		return Process.getThreadPriority(Process.myTid());
+	}
+
+	@Override
+	public void setThreadPriority(final int priority) {
+		Process.setThreadPriority(priority);
+	}
+}
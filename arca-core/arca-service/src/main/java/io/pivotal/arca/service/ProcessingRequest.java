@@ -1,8 +1,9 @@
 package io.pivotal.arca.service;
 
 import io.pivotal.arca.threading.PrioritizableRequest;
+import io.pivotal.arca.threading.SingleFlight;
 
-public class ProcessingRequest<T> extends PrioritizableRequest {
+public class ProcessingRequest<T> extends PrioritizableRequest implements SingleFlight.Callback<ProcessingRequest<?>> {
 
 	private final ProcessingPrioritizableObserver<T> mObserver;
 
@@ -19,6 +20,16 @@ public class ProcessingRequest<T> extends PrioritizableRequest {
 		}
 	}
 
+	@Override
+	public void onComplete(final ProcessingRequest<?> result) {
+		notifyComplete(result.getError());
+	}
+
+	@Override
+	public void onCancelled() {
+		notifyComplete(new ServiceError(ServiceError.Messages.REQUEST_CANCELLED));
+	}
+
 	@Override
 	public ProcessingPrioritizable<?> getPrioritizable() {
 		return (ProcessingPrioritizable<?>) super.getPrioritizable();
@@ -1,19 +1,26 @@
 package io.pivotal.arca.service;
 
-import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
+import io.pivotal.arca.threading.AdaptivePoolSizer;
 import io.pivotal.arca.threading.AuxiliaryExecutor;
 import io.pivotal.arca.threading.AuxiliaryExecutorObserver;
+import io.pivotal.arca.threading.ExecutorStatistics;
 import io.pivotal.arca.threading.Identifier;
+import io.pivotal.arca.threading.KeyLimiter;
 import io.pivotal.arca.threading.PrioritizableRequest;
+import io.pivotal.arca.threading.PromotingAuxiliaryExecutor;
+import io.pivotal.arca.threading.ScheduledAuxiliaryExecutor;
+import io.pivotal.arca.threading.SerialKeySelector;
+import io.pivotal.arca.threading.SingleFlight;
+import io.pivotal.arca.threading.ThreadPriorityPolicy;
 
 public interface RequestExecutor {
 	void executeNetworkingRequest(NetworkingRequest<?> request);
 
 	void executeProcessingRequest(ProcessingRequest<?> request);
 
-	class SerialRequestExecutor implements RequestExecutor {
+	class SerialRequestExecutor implements ParsingRequestExecutor {
 
 		@Override
 		public void executeNetworkingRequest(final NetworkingRequest<?> request) {
@@ -21,6 +28,12 @@ public interface RequestExecutor {
 			request.notifyComplete(request.getData(), request.getError());
 		}
 
+		@Override
+		public void executeParsingRequest(final ParsingRequest<?> request) {
+			request.run();
+			request.notifyComplete(request.getData(), request.getError());
+		}
+
 		@Override
 		public void executeProcessingRequest(final ProcessingRequest<?> request) {
 			request.run();
@@ -28,30 +41,108 @@ public interface RequestExecutor {
 		}
 	}
 
-	class ThreadedRequestExecutor implements RequestExecutor, RequestObserver, AuxiliaryExecutorObserver {
+	class ThreadedRequestExecutor implements ParsingRequestExecutor, ScheduledRequestExecutor, CancellingRequestExecutor, RequestObserver, ParsingRequestObserver, AuxiliaryExecutorObserver {
 
 		public interface Config {
 			int NUM_NETWORK_THREADS = 2;
+			int MIN_NETWORK_THREADS = NUM_NETWORK_THREADS;
+			int MAX_NETWORK_THREADS = 6;
+			int NUM_PARSING_THREADS = Runtime.getRuntime().availableProcessors();
 			int NUM_PROCESSING_THREADS = 1;
 			long THREAD_KEEP_ALIVE_TIME = 15;
 		}
 
-		private final IdentifierMap<NetworkingRequest<?>> mNetworkMap = new IdentifierMap<NetworkingRequest<?>>();
-		private final IdentifierMap<ProcessingRequest<?>> mProcessingMap = new IdentifierMap<ProcessingRequest<?>>();
+		private final SingleFlight<Identifier<?>, NetworkingRequest<?>> mNetworkFlights = new SingleFlight<Identifier<?>, NetworkingRequest<?>>();
+		private final SingleFlight<Identifier<?>, ParsingRequest<?>> mParsingFlights = new SingleFlight<Identifier<?>, ParsingRequest<?>>();
+		private final SingleFlight<Identifier<?>, ProcessingRequest<?>> mProcessingFlights = new SingleFlight<Identifier<?>, ProcessingRequest<?>>();
+
+		private final ExecutorStatistics mNetworkStatistics = new ExecutorStatistics(Priority.values().length);
+		private final ExecutorStatistics mParsingStatistics = new ExecutorStatistics(Priority.values().length);
+		private final ExecutorStatistics mProcessingStatistics = new ExecutorStatistics(Priority.values().length);
 
 		private final AuxiliaryExecutor mNetworkExecutor;
+		private final AuxiliaryExecutor mParsingExecutor;
 		private final AuxiliaryExecutor mProcessingExecutor;
 
 		public ThreadedRequestExecutor() {
 			mNetworkExecutor = onCreateNetworkingExecutor();
+			mParsingExecutor = onCreateParsingExecutor();
 			mProcessingExecutor = onCreateProcessingExecutor();
+			mNetworkFlights.setRetention(getNetworkingResultRetention(), TimeUnit.MILLISECONDS);
 		}
 
 		protected AuxiliaryExecutor onCreateNetworkingExecutor() {
 			final AuxiliaryExecutor.Builder builder = new AuxiliaryExecutor.Builder(Priority.newAccessorArray(), this);
 			builder.setKeepAliveTime(Config.THREAD_KEEP_ALIVE_TIME, TimeUnit.SECONDS);
 			builder.setCorePoolSize(Config.NUM_NETWORK_THREADS);
-			builder.allowCoreThreadTimeOut();
+			builder.setPoolSizer(new AdaptivePoolSizer(Config.MIN_NETWORK_THREADS, Config.MAX_NETWORK_THREADS));
+			builder.setKeyLimiter(onCreateNetworkingLimiter());
+			builder.setStatistics(mNetworkStatistics);
+			builder.setThreadPriorityPolicy(onCreateThreadPriorityPolicy());
+			if (allowCoreThreadTimeOut()) {
+				builder.allowCoreThreadTimeOut();
+			}
+			return builder.create();
+		}
+
+		/*
+		 * Return a limiter keyed on NetworkingRequest.KEY to cap how many
+		 * requests for the same host run at once, or how often they start.
+		 * Called from the constructor, so it must not rely on subclass fields.
+		 */
+		protected KeyLimiter onCreateNetworkingLimiter() {
+			return null;
+		}
+
+		/*
+		 * Used by the networking and parsing pools. Return null to leave
+		 * worker threads at their default priority.
+		 */
+		protected ThreadPriorityPolicy onCreateThreadPriorityPolicy() {
+			return new ProcessThreadPriorityPolicy();
+		}
+
+		/*
+		 * Processing threads write to the database and hold its lock, so by
+		 * default they keep their priority rather than risk an inversion
+		 * with the UI thread.
+		 */
+		protected ThreadPriorityPolicy onCreateProcessingThreadPriorityPolicy() {
+			return null;
+		}
+
+		/*
+		 * Idle core threads exit after THREAD_KEEP_ALIVE_TIME. Return false to
+		 * keep them warm for as long as the executor lives. Called from the
+		 * constructor.
+		 */
+		protected boolean allowCoreThreadTimeOut() {
+			return true;
+		}
+
+		/*
+		 * How long, in milliseconds, a networking result is kept and handed
+		 * to tasks asking for the same identifier, without running their
+		 * request. Zero, the default, keeps nothing. Called from the
+		 * constructor.
+		 */
+		protected long getNetworkingResultRetention() {
+			return 0;
+		}
+
+		/*
+		 * Parsing is CPU bound, so it gets one thread per core and keeps
+		 * tasks from holding network or database threads while they parse.
+		 */
+		protected AuxiliaryExecutor onCreateParsingExecutor() {
+			final AuxiliaryExecutor.Builder builder = new AuxiliaryExecutor.Builder(Priority.newAccessorArray(), this);
+			builder.setKeepAliveTime(Config.THREAD_KEEP_ALIVE_TIME, TimeUnit.SECONDS);
+			builder.setCorePoolSize(Config.NUM_PARSING_THREADS);
+			builder.setStatistics(mParsingStatistics);
+			builder.setThreadPriorityPolicy(onCreateThreadPriorityPolicy());
+			if (allowCoreThreadTimeOut()) {
+				builder.allowCoreThreadTimeOut();
+			}
 			return builder.create();
 		}
 
@@ -59,41 +150,125 @@ public interface RequestExecutor {
 			final AuxiliaryExecutor.Builder builder = new AuxiliaryExecutor.Builder(Priority.newAccessorArray(), this);
 			builder.setKeepAliveTime(Config.THREAD_KEEP_ALIVE_TIME, TimeUnit.SECONDS);
 			builder.setCorePoolSize(Config.NUM_PROCESSING_THREADS);
-			builder.allowCoreThreadTimeOut();
+			builder.setStatistics(mProcessingStatistics);
+			builder.setThreadPriorityPolicy(onCreateProcessingThreadPriorityPolicy());
+			if (allowCoreThreadTimeOut()) {
+				builder.allowCoreThreadTimeOut();
+			}
 			return builder.create();
 		}
 
 		// ======================================================
 
 		public int getRequestCount() {
-			synchronized (ThreadedRequestExecutor.this) {
-				final int networkCount = mNetworkExecutor.getQueue().size() + mNetworkExecutor.getActiveCount();
-				final int processingCount = mProcessingExecutor.getQueue().size() + mProcessingExecutor.getActiveCount();
-				return networkCount + processingCount;
-			}
+			final int networkCount = mNetworkExecutor.getQueue().size() + mNetworkExecutor.getActiveCount();
+			final int parsingCount = mParsingExecutor.getQueue().size() + mParsingExecutor.getActiveCount();
+			final int processingCount = mProcessingExecutor.getQueue().size() + mProcessingExecutor.getActiveCount();
+			return networkCount + parsingCount + processingCount;
 		}
 
 		public boolean isEmpty() {
 			return getRequestCount() == 0;
 		}
 
+		/* Queue wait and run times of networking requests, indexed by Priority ordinal. */
+		public ExecutorStatistics getNetworkingStatistics() {
+			return mNetworkStatistics;
+		}
+
+		public ExecutorStatistics getParsingStatistics() {
+			return mParsingStatistics;
+		}
+
+		public ExecutorStatistics getProcessingStatistics() {
+			return mProcessingStatistics;
+		}
+
 		// ======================================================
 
+		/*
+		 * Only the request that starts a flight is handed to the executor. A
+		 * request joining it just moves the queued one up to its priority.
+		 */
 		@Override
 		public void executeNetworkingRequest(final NetworkingRequest<?> request) {
-			synchronized (ThreadedRequestExecutor.this) {
-				final Identifier<?> identifier = request.getIdentifier();
-				mNetworkMap.add(identifier, request);
+			final SingleFlight.JoinResult result = mNetworkFlights.join(request.getIdentifier(), request);
+			if (result == SingleFlight.JoinResult.STARTED) {
 				mNetworkExecutor.execute(request);
+			} else if (result == SingleFlight.JoinResult.JOINED) {
+				promote(mNetworkExecutor, request);
+			}
+		}
+
+		/*
+		 * The request joins its flight straight away, so a request for the
+		 * same identifier arriving during the delay waits with it rather
+		 * than running again. Executors that cannot schedule run it
+		 * immediately.
+		 */
+		@Override
+		public void scheduleNetworkingRequest(final NetworkingRequest<?> request, final long delay, final TimeUnit unit) {
+			final SingleFlight.JoinResult result = mNetworkFlights.join(request.getIdentifier(), request);
+			if (result == SingleFlight.JoinResult.STARTED) {
+				if (mNetworkExecutor instanceof ScheduledAuxiliaryExecutor) {
+					((ScheduledAuxiliaryExecutor) mNetworkExecutor).schedule(request, delay, unit);
+				} else {
+					mNetworkExecutor.execute(request);
+				}
+			} else if (result == SingleFlight.JoinResult.JOINED) {
+				promote(mNetworkExecutor, request);
+			}
+		}
+
+		@Override
+		public boolean attachNetworkingRequest(final NetworkingRequest<?> request) {
+			if (mNetworkFlights.attach(request.getIdentifier(), request)) {
+				promote(mNetworkExecutor, request);
+				return true;
+			}
+			return false;
+		}
+
+		/*
+		 * A request still waiting out its delay is withdrawn and reported
+		 * cancelled, so its flight is handed over. Otherwise the request
+		 * leaves its flight, which is cancelled once no request is waiting on
+		 * it. A request that is already running is left to finish.
+		 */
+		@Override
+		public void cancelNetworkingRequest(final NetworkingRequest<?> request) {
+			if (mNetworkExecutor instanceof ScheduledAuxiliaryExecutor && ((ScheduledAuxiliaryExecutor) mNetworkExecutor).removeScheduled(request)) {
+				request.cancel();
+				onNetworkingRequestCancelled(request);
+			} else {
+				request.cancel();
+				mNetworkFlights.leave(request.getIdentifier(), request);
+			}
+		}
+
+		@Override
+		public void executeParsingRequest(final ParsingRequest<?> request) {
+			final SingleFlight.JoinResult result = mParsingFlights.join(request.getIdentifier(), request);
+			if (result == SingleFlight.JoinResult.STARTED) {
+				mParsingExecutor.execute(request);
+			} else if (result == SingleFlight.JoinResult.JOINED) {
+				promote(mParsingExecutor, request);
 			}
 		}
 
 		@Override
 		public void executeProcessingRequest(final ProcessingRequest<?> request) {
-			synchronized (ThreadedRequestExecutor.this) {
-				final Identifier<?> identifier = request.getIdentifier();
-				mProcessingMap.add(identifier, request);
+			final SingleFlight.JoinResult result = mProcessingFlights.join(request.getIdentifier(), request);
+			if (result == SingleFlight.JoinResult.STARTED) {
 				mProcessingExecutor.execute(request);
+			} else if (result == SingleFlight.JoinResult.JOINED) {
+				promote(mProcessingExecutor, request);
+			}
+		}
+
+		private static void promote(final AuxiliaryExecutor executor, final PrioritizableRequest request) {
+			if (executor instanceof PromotingAuxiliaryExecutor) {
+				((PromotingAuxiliaryExecutor) executor).promote(request.getIdentifier(), request.getAccessorIndex());
 			}
 		}
 
@@ -104,6 +279,10 @@ public interface RequestExecutor {
 				onNetworkingRequestComplete((NetworkingRequest<?>) request);
 			}
 
+			if (request instanceof ParsingRequest) {
+				onParsingRequestComplete((ParsingRequest<?>) request);
+			}
+
 			if (request instanceof ProcessingRequest) {
 				onProcessingRequestComplete((ProcessingRequest<?>) request);
 			}
@@ -116,53 +295,93 @@ public interface RequestExecutor {
 				onNetworkingRequestCancelled((NetworkingRequest<?>) request);
 			}
 
+			if (request instanceof ParsingRequest) {
+				onParsingRequestCancelled((ParsingRequest<?>) request);
+			}
+
 			if (request instanceof ProcessingRequest) {
 				onProcessingRequestCancelled((ProcessingRequest<?>) request);
 			}
 		}
 
+		/*
+		 * The executor is told first, so a request arriving in between either
+		 * joins the flight that is about to complete, and gets its result
+		 * without being executed, or starts a new one.
+		 */
 		@Override
 		public void onNetworkingRequestComplete(final NetworkingRequest<?> request) {
-			synchronized (ThreadedRequestExecutor.this) {
-				final Object data = request.getData();
-				final ServiceError error = request.getError();
-
-				final Identifier<?> identifier = request.getIdentifier();
-				final Set<NetworkingRequest<?>> set = mNetworkMap.remove(identifier);
-
-				for (final NetworkingRequest<?> prioritizable : set) {
-					prioritizable.notifyComplete(data, error);
-				}
+			final Identifier<?> identifier = request.getIdentifier();
+			mNetworkExecutor.notifyRequestComplete(identifier);
+			mNetworkFlights.complete(identifier, request);
+		}
 
-				mNetworkExecutor.notifyRequestComplete(identifier);
-			}
+		@Override
+		public void onParsingRequestComplete(final ParsingRequest<?> request) {
+			final Identifier<?> identifier = request.getIdentifier();
+			mParsingExecutor.notifyRequestComplete(identifier);
+			mParsingFlights.complete(identifier, request);
 		}
 
 		@Override
 		public void onProcessingRequestComplete(final ProcessingRequest<?> request) {
-			synchronized (ThreadedRequestExecutor.this) {
-				final ServiceError error = request.getError();
-
-				final Identifier<?> identifier = request.getIdentifier();
-				final Set<ProcessingRequest<?>> set = mProcessingMap.remove(identifier);
-
-				for (final ProcessingRequest<?> prioritizable : set) {
-					prioritizable.notifyComplete(error);
-				}
+			final Identifier<?> identifier = request.getIdentifier();
+			mProcessingExecutor.notifyRequestComplete(identifier);
+			mProcessingFlights.complete(identifier, request);
+		}
 
-				mProcessingExecutor.notifyRequestComplete(identifier);
+		/*
+		 * Requests that joined a flight are not in the executor, so when the
+		 * one running it is cancelled (e.g. evicted from or refused by a
+		 * bounded lane) a request still waiting on the flight is executed in
+		 * its place. When none is left the flight is cancelled and every
+		 * request in it fails.
+		 */
+		@Override
+		public void onNetworkingRequestCancelled(final NetworkingRequest<?> request) {
+			final SingleFlight.Callback<NetworkingRequest<?>> next = mNetworkFlights.handOver(request.getIdentifier(), request);
+			if (next != null) {
+				mNetworkExecutor.execute((NetworkingRequest<?>) next);
 			}
 		}
 
 		@Override
-		public void onNetworkingRequestCancelled(final NetworkingRequest<?> request) {
-			// do nothing
+		public void onParsingRequestCancelled(final ParsingRequest<?> request) {
+			final SingleFlight.Callback<ParsingRequest<?>> next = mParsingFlights.handOver(request.getIdentifier(), request);
+			if (next != null) {
+				mParsingExecutor.execute((ParsingRequest<?>) next);
+			}
 		}
 
 		@Override
 		public void onProcessingRequestCancelled(final ProcessingRequest<?> request) {
-			// do nothing
+			final SingleFlight.Callback<ProcessingRequest<?>> next = mProcessingFlights.handOver(request.getIdentifier(), request);
+			if (next != null) {
+				mProcessingExecutor.execute((ProcessingRequest<?>) next);
+			}
 		}
 
 	}
+
+	/*
+	 * Runs processing requests from different operations in parallel while
+	 * keeping the requests of each operation in order. Requests are keyed by
+	 * their operation's identifier, usually the URI of the data they write.
+	 */
+	class KeyedThreadedRequestExecutor extends ThreadedRequestExecutor {
+
+		@Override
+		protected AuxiliaryExecutor onCreateProcessingExecutor() {
+			final AuxiliaryExecutor.Builder builder = new AuxiliaryExecutor.Builder(Priority.newAccessorArray(), this);
+			builder.setKeepAliveTime(Config.THREAD_KEEP_ALIVE_TIME, TimeUnit.SECONDS);
+			builder.setCorePoolSize(Runtime.getRuntime().availableProcessors());
+			builder.setSerialKeySelector(SerialKeySelector.GROUP);
+			builder.setStatistics(getProcessingStatistics());
+			builder.setThreadPriorityPolicy(onCreateProcessingThreadPriorityPolicy());
+			if (allowCoreThreadTimeOut()) {
+				builder.allowCoreThreadTimeOut();
+			}
+			return builder.create();
+		}
+	}
 }
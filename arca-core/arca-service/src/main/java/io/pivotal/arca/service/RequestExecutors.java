@@ -0,0 +1,45 @@
+package io.pivotal.arca.service;
+
+/*
+ * Process-wide RequestExecutor shared by every OperationService and
+ * BackgroundService instance, so requests from all of them are deduplicated
+ * against each other and the pools outlive any one service. The default
+ * keeps its core threads warm between services.
+ */
+public final class RequestExecutors {
+
+    private static final Object LOCK = new Object();
+
+    private static RequestExecutor sShared;
+
+    private RequestExecutors() {
+    }
+
+    public static RequestExecutor getShared() {
+        synchronized (LOCK) {
+            if (sShared == null) {
+                sShared = new SharedThreadedRequestExecutor();
+            }
+            return sShared;
+        }
+    }
+
+    /*
+     * Replaces the shared executor, e.g. with one that limits requests per
+     * host. Services created afterwards pick it up. Passing null restores the
+     * default the next time it is needed.
+     */
+    public static void setShared(final RequestExecutor executor) {
+        synchronized (LOCK) {
+            sShared = executor;
+        }
+    }
+
+    private static final class SharedThreadedRequestExecutor extends RequestExecutor.ThreadedRequestExecutor {
+
+        @Override
+        protected boolean allowCoreThreadTimeOut() {
+            return false;
+        }
+    }
+}
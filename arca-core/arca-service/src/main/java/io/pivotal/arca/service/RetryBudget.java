@@ -0,0 +1,53 @@
+package io.pivotal.arca.service;
+
+/*
+ * Caps retries at a fraction of first attempts. Every first attempt deposits
+ * a fraction of a token and every retry withdraws a whole one, so when a
+ * backend is failing across the board retries dry up instead of multiplying
+ * the load. The budget starts full so isolated failures can always retry.
+ */
+public class RetryBudget {
+
+    public static final double DEFAULT_RATIO = 0.2;
+    public static final int DEFAULT_RESERVE = 10;
+
+    private static final RetryBudget DEFAULT = new RetryBudget(DEFAULT_RATIO, DEFAULT_RESERVE);
+
+    private final double mRatio;
+    private final int mReserve;
+
+    private double mTokens;
+
+    public RetryBudget(final double ratio, final int reserve) {
+        if (ratio < 0)
+            throw new IllegalArgumentException("Ratio cannot be negative.");
+
+        if (reserve < 0)
+            throw new IllegalArgumentException("Reserve cannot be negative.");
+
+        mRatio = ratio;
+        mReserve = reserve;
+        mTokens = reserve;
+    }
+
+    /* The process-wide budget used by RetryPolicy unless told otherwise. */
+    public static RetryBudget getDefault() {
+        return DEFAULT;
+    }
+
+    public synchronized void deposit() {
+        mTokens = Math.min(mReserve, mTokens + mRatio);
+    }
+
+    public synchronized boolean tryWithdraw() {
+        if (mTokens >= 1) {
+            mTokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized double getTokens() {
+        return mTokens;
+    }
+}
@@ -0,0 +1,131 @@
+package io.pivotal.arca.service;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Decides whether, and after how long, a failed networking request is tried
+ * again. Delays grow exponentially from the base delay up to the max delay,
+ * with full jitter so that clients failing together do not retry together.
+ * A retry delay sent by the server (ServiceError.getRetryAfter()) is used
+ * as is, unless it is longer than the max delay, in which case the request
+ * is not retried. Every retry also has to be paid for from a RetryBudget.
+ */
+public class RetryPolicy {
+
+    public static final long NO_RETRY = -1;
+
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    public static final long DEFAULT_BASE_DELAY = 500;
+    public static final long DEFAULT_MAX_DELAY = TimeUnit.SECONDS.toMillis(30);
+
+    private static final Random RANDOM = new Random();
+
+    private final int mMaxAttempts;
+    private final long mBaseDelay;
+    private final long mMaxDelay;
+    private final RetryBudget mBudget;
+
+    protected RetryPolicy(final Builder builder) {
+        mMaxAttempts = builder.mMaxAttempts;
+        mBaseDelay = builder.mBaseDelay;
+        mMaxDelay = builder.mMaxDelay;
+        mBudget = builder.mBudget;
+    }
+
+    public RetryPolicy() {
+        this(new Builder());
+    }
+
+    public int getMaxAttempts() {
+        return mMaxAttempts;
+    }
+
+    /*
+     * Called for the first attempt of every request using this policy, which
+     * earns the budget part of a retry.
+     */
+    public void onFirstAttempt() {
+        if (mBudget != null) {
+            mBudget.deposit();
+        }
+    }
+
+    /*
+     * Returns the delay in milliseconds before the next attempt, or NO_RETRY.
+     * attempts is the number of attempts made so far, including the one that
+     * just failed.
+     */
+    public long getRetryDelay(final int attempts, final ServiceError error) {
+        if (attempts >= mMaxAttempts || !isRetryable(error)) {
+            return NO_RETRY;
+        }
+
+        final long retryAfter = error != null ? error.getRetryAfter() : ServiceError.NO_RETRY_AFTER;
+        if (retryAfter > mMaxDelay) {
+            return NO_RETRY;
+        }
+
+        if (mBudget != null && !mBudget.tryWithdraw()) {
+            return NO_RETRY;
+        }
+
+        return retryAfter >= 0 ? retryAfter : getBackoff(attempts);
+    }
+
+    /*
+     * Every failure is retried except requests that were cancelled.
+     * Override to skip errors that will not go away, e.g. client errors.
+     */
+    protected boolean isRetryable(final ServiceError error) {
+        return error == null || !ServiceError.Messages.REQUEST_CANCELLED.equals(error.getMessage());
+    }
+
+    protected long getBackoff(final int attempts) {
+        final int shift = Math.min(attempts - 1, 30);
+        final long ceiling = Math.min(mMaxDelay, mBaseDelay << shift);
+        return (long) (RANDOM.nextDouble() * (ceiling + 1));
+    }
+
+    public static class Builder {
+
+        private int mMaxAttempts = DEFAULT_MAX_ATTEMPTS;
+        private long mBaseDelay = DEFAULT_BASE_DELAY;
+        private long mMaxDelay = DEFAULT_MAX_DELAY;
+        private RetryBudget mBudget = RetryBudget.getDefault();
+
+        public Builder setMaxAttempts(final int maxAttempts) {
+            if (maxAttempts < 1)
+                throw new IllegalArgumentException("Max attempts must be at least one.");
+
+            mMaxAttempts = maxAttempts;
+            return this;
+        }
+
+        public Builder setBaseDelay(final long delay, final TimeUnit unit) {
+            if (delay < 0)
+                throw new IllegalArgumentException("Delay cannot be negative.");
+
+            mBaseDelay = unit.toMillis(delay);
+            return this;
+        }
+
+        public Builder setMaxDelay(final long delay, final TimeUnit unit) {
+            if (delay < 0)
+                throw new IllegalArgumentException("Delay cannot be negative.");
+
+            mMaxDelay = unit.toMillis(delay);
+            return this;
+        }
+
+        /* Passing null lets retries ignore any budget. */
+        public Builder setBudget(final RetryBudget budget) {
+            mBudget = budget;
+            return this;
+        }
+
+        public RetryPolicy build() {
+            return new RetryPolicy(this);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package io.pivotal.arca.service;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * A RequestExecutor that can hold a networking request back for a while
+ * without occupying a worker thread, e.g. to retry it after a backoff. Tasks
+ * with a RetryPolicy only retry on executors that implement this.
+ */
+public interface ScheduledRequestExecutor extends RequestExecutor {
+	void scheduleNetworkingRequest(NetworkingRequest<?> request, long delay, TimeUnit unit);
+
+	/*
+	 * Adds the request to a flight already running or scheduled for its
+	 * identifier. Returns false, without executing it, when there is none.
+	 */
+	boolean attachNetworkingRequest(NetworkingRequest<?> request);
+}
@@ -13,16 +13,29 @@ public class ServiceError implements Parcelable {
 
 	public interface Messages {
 		String UNKNOWN = "An unknown error occured.";
+		String REQUEST_CANCELLED = "Request cancelled.";
 	}
 
+	public static final long NO_RETRY_AFTER = -1;
+
 	private final int mCode;
 	private final String mMessage;
 	private final String mType;
+	private final long mRetryAfter;
 
-	public ServiceError(final int code, final String type, final String message) {
+	/*
+	 * retryAfter is the delay in milliseconds the server asked for before
+	 * the request is tried again, e.g. from a Retry-After header.
+	 */
+	public ServiceError(final int code, final String type, final String message, final long retryAfter) {
 		mCode = code;
 		mMessage = message;
 		mType = type;
+		mRetryAfter = retryAfter;
+	}
+
+	public ServiceError(final int code, final String type, final String message) {
+		this(code, type, message, NO_RETRY_AFTER);
 	}
 
 	public ServiceError(final int code, final String message) {
@@ -41,6 +54,7 @@ public class ServiceError implements Parcelable {
 		mCode = in.readInt();
 		mMessage = in.readString();
 		mType = in.readString();
+		mRetryAfter = in.readLong();
 	}
 
 	@Override
@@ -48,6 +62,7 @@ public class ServiceError implements Parcelable {
 		dest.writeInt(mCode);
 		dest.writeString(mMessage);
 		dest.writeString(mType);
+		dest.writeLong(mRetryAfter);
 	}
 
 	@Override
@@ -67,6 +82,10 @@ public class ServiceError implements Parcelable {
 		return mType;
 	}
 
+	public long getRetryAfter() {
+		return mRetryAfter;
+	}
+
 	@Override
 	public String toString() {
 		return String.format(Locale.getDefault(), "[%d] %s", mCode, mMessage);
@@ -0,0 +1,232 @@
+package io.pivotal.arca.service;
+
+import android.content.Context;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CancellationException;
+
+import io.pivotal.arca.threading.Identifier;
+import io.pivotal.arca.utils.Logger;
+
+/*
+ * A Task whose networking stage hands its result to processing in chunks,
+ * e.g. pages of a feed, instead of one object. Chunks are buffered up to a
+ * fixed capacity and drained on the processing executor while networking is
+ * still running. When the buffer is full the networking thread waits, so a
+ * slow consumer throttles the download rather than letting it pile up in
+ * memory. Processing threads never wait on networking: each drain processes
+ * whatever is buffered and returns, and the next emitted chunk schedules
+ * another one.
+ *
+ * The task completes once networking has returned and every chunk has been
+ * processed. A failure in either stage fails the task, and cancelling it
+ * discards the buffer and stops the networking stage at its next emit.
+ */
+public abstract class StreamingTask<C> extends Task<Void> {
+
+    public static final int DEFAULT_BUFFER_CAPACITY = 4;
+
+    public interface Emitter<C> {
+        void emit(C chunk) throws Exception;
+    }
+
+    private final Object mBufferLock = new Object();
+    private final ArrayDeque<C> mBuffer = new ArrayDeque<C>();
+    private final int mCapacity;
+
+    private boolean mDrainScheduled;
+    private boolean mDraining;
+    private boolean mCancelled;
+    private Exception mFailure;
+
+    private volatile Context mStreamContext;
+
+    public StreamingTask() {
+        this(DEFAULT_BUFFER_CAPACITY);
+    }
+
+    public StreamingTask(final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be greater than zero.");
+        }
+        mCapacity = capacity;
+    }
+
+    public abstract void onExecuteNetworking(Context context, Emitter<C> emitter) throws Exception;
+
+    public abstract void onProcessChunk(Context context, C chunk) throws Exception;
+
+    @Override
+    public final Void onExecuteNetworking(final Context context) throws Exception {
+        mStreamContext = context;
+        try {
+            onExecuteNetworking(context, new Emitter<C>() {
+                @Override
+                public void emit(final C chunk) throws Exception {
+                    StreamingTask.this.emit(chunk);
+                }
+            });
+        } catch (final Exception e) {
+            fail(e);
+            throw e;
+        }
+        return null;
+    }
+
+    /*
+     * Runs once networking has finished and processes whatever the drains
+     * have not reached yet, so the task completes with the last chunk.
+     */
+    @Override
+    public final void onExecuteProcessing(final Context context, final Void data) throws Exception {
+        synchronized (mBufferLock) {
+            while (mDraining) {
+                mBufferLock.wait();
+            }
+            throwIfFailed();
+            mDraining = true;
+        }
+        drainBuffer(context);
+        synchronized (mBufferLock) {
+            throwIfFailed();
+        }
+    }
+
+    /*
+     * A retry would emit the chunks already processed a second time, so a
+     * streaming task is never retried, not even under its operation's
+     * policy.
+     */
+    @Override
+    public void setRetryPolicy(final RetryPolicy policy) {
+    }
+
+    @Override
+    public void cancel() {
+        synchronized (mBufferLock) {
+            mCancelled = true;
+            mBuffer.clear();
+            mBufferLock.notifyAll();
+        }
+        super.cancel();
+    }
+
+    // ======================================================
+
+    private void emit(final C chunk) throws Exception {
+        final boolean scheduleDrain;
+
+        synchronized (mBufferLock) {
+            while (mBuffer.size() >= mCapacity && !mCancelled && mFailure == null) {
+                mBufferLock.wait();
+            }
+            if (mCancelled) {
+                throw new CancellationException();
+            }
+            throwIfFailed();
+
+            mBuffer.addLast(chunk);
+            scheduleDrain = !mDrainScheduled;
+            mDrainScheduled = true;
+        }
+
+        if (scheduleDrain) {
+            scheduleDrain();
+        }
+    }
+
+    private void scheduleDrain() {
+        final RequestExecutor executor = getRequestExecutor();
+        if (executor == null) {
+            throw new IllegalStateException(Messages.NO_EXECUTOR);
+        }
+
+        final ProcessingPrioritizable<Void> prioritizable = new ProcessingPrioritizable<Void>(new DrainTask(), null);
+        prioritizable.setGroup(getGroup());
+        prioritizable.setPriorityValue(-getCriticalPath());
+        executor.executeProcessingRequest(new ProcessingRequest<Void>(prioritizable, getPriority().ordinal(), new DrainObserver()));
+    }
+
+    private void drain() {
+        synchronized (mBufferLock) {
+            if (mDraining) {
+                // the final processing stage took over
+                return;
+            }
+            mDraining = true;
+        }
+        drainBuffer(mStreamContext);
+    }
+
+    private void drainBuffer(final Context context) {
+        while (true) {
+            final C chunk;
+            synchronized (mBufferLock) {
+                chunk = mBuffer.pollFirst();
+                if (chunk == null) {
+                    mDraining = false;
+                    mDrainScheduled = false;
+                    mBufferLock.notifyAll();
+                    return;
+                }
+                mBufferLock.notifyAll();
+            }
+
+            try {
+                onProcessChunk(context, chunk);
+            } catch (final Exception e) {
+                Logger.ex(e);
+                fail(e);
+                return;
+            }
+        }
+    }
+
+    private void fail(final Exception e) {
+        synchronized (mBufferLock) {
+            if (mFailure == null) {
+                mFailure = e;
+            }
+            mBuffer.clear();
+            mDraining = false;
+            mDrainScheduled = false;
+            mBufferLock.notifyAll();
+        }
+    }
+
+    private void throwIfFailed() throws Exception {
+        if (mFailure != null) {
+            throw mFailure;
+        }
+    }
+
+    /*
+     * Each drain gets its own identifier so it is never merged with, or
+     * cancelled as a duplicate of, the task's own processing request.
+     */
+    private final class DrainTask implements ProcessingTask<Void> {
+        private final Identifier<?> mIdentifier = new Identifier<Object>(new Object());
+
+        @Override
+        public Identifier<?> getIdentifier() {
+            return mIdentifier;
+        }
+
+        @Override
+        public void executeProcessing(final Void data) {
+            drain();
+        }
+    }
+
+    private final class DrainObserver implements ProcessingPrioritizableObserver<Void> {
+
+        @Override
+        public void onProcessingComplete() {
+        }
+
+        @Override
+        public void onProcessingFailure(final ServiceError error) {
+            fail(new ServiceException(error));
+        }
+    }
+}
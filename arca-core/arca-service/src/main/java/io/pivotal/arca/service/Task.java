@@ -2,8 +2,13 @@ package io.pivotal.arca.service;
 
 import android.content.Context;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import io.pivotal.arca.threading.Identifier;
 import io.pivotal.arca.utils.Logger;
@@ -14,6 +19,26 @@ public abstract class Task<T> implements NetworkingTask<T>, NetworkingPrioritiza
         String NO_EXECUTOR = "Cannot execute request. No request executor found.";
     }
 
+    /*
+     * Orders tasks so each priority lane serves the longest remaining chain
+     * of work first. A stack lane serves the newest request first, so its
+     * tasks are executed shortest chain first.
+     */
+    static final Comparator<Task<?>> EXECUTION_ORDER = new Comparator<Task<?>>() {
+        @Override
+        public int compare(final Task<?> lhs, final Task<?> rhs) {
+            final Priority priority = lhs.getPriority();
+            if (priority != rhs.getPriority()) {
+                return priority.compareTo(rhs.getPriority());
+            }
+
+            final long lhsPath = lhs.getCriticalPath();
+            final long rhsPath = rhs.getCriticalPath();
+            final int order = lhsPath > rhsPath ? -1 : (lhsPath == rhsPath ? 0 : 1);
+            return priority.isLastInFirstOut() ? -order : order;
+        }
+    };
+
     private enum State {
         PENDING, STARTING, NETWORKING, PROCESSING, COMPLETE, CANCELLED, FAILED
     }
@@ -27,6 +52,15 @@ public abstract class Task<T> implements NetworkingTask<T>, NetworkingPrioritiza
     private State mState = State.PENDING;
     private Priority mPriority = Priority.MEDIUM;
     private Identifier<?> mIdentifier;
+    private Object mGroup;
+
+    private volatile RetryPolicy mRetryPolicy;
+    private volatile NetworkingRequest<?> mNetworkingRequest;
+    private volatile int mAttempts;
+
+    private volatile long mCriticalPath;
+    private volatile long mStartTime;
+    private volatile long mDuration = -1;
 
     private TaskObserver mObserver;
     private RequestExecutor mExecutor;
@@ -59,6 +93,59 @@ public abstract class Task<T> implements NetworkingTask<T>, NetworkingPrioritiza
         return mDependencies;
     }
 
+    /* Networking attempts made so far, including retries. */
+    public int getAttempts() {
+        return mAttempts;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return mRetryPolicy;
+    }
+
+    /*
+     * Failed networking requests are retried according to the policy when
+     * the request executor is a ScheduledRequestExecutor.
+     */
+    public void setRetryPolicy(final RetryPolicy policy) {
+        mRetryPolicy = policy;
+    }
+
+    /*
+     * Estimated time from the start of this task until the end of the longest
+     * chain of dependencies it unlocks. Set by Operation before execution.
+     */
+    public long getCriticalPath() {
+        return mCriticalPath;
+    }
+
+    public void setCriticalPath(final long criticalPath) {
+        mCriticalPath = criticalPath;
+    }
+
+    /*
+     * Nanoseconds from the start of networking until processing completed,
+     * or -1 if the task has not completed.
+     */
+    public long getDuration() {
+        return mDuration;
+    }
+
+    protected final Priority getPriority() {
+        return mPriority;
+    }
+
+    protected final Object getGroup() {
+        return mGroup;
+    }
+
+    protected final RequestExecutor getRequestExecutor() {
+        return mExecutor;
+    }
+
+    protected final Context getContext() {
+        return mContext;
+    }
+
     public void setContext(final Context context) {
         mContext = context;
     }
@@ -67,6 +154,10 @@ public abstract class Task<T> implements NetworkingTask<T>, NetworkingPrioritiza
         mPriority = priority;
     }
 
+    public void setGroup(final Object group) {
+        mGroup = group;
+    }
+
     public void setTaskObserver(final TaskObserver observer) {
         mObserver = observer;
     }
@@ -85,6 +176,7 @@ public abstract class Task<T> implements NetworkingTask<T>, NetworkingPrioritiza
         Logger.v("Task[%s] cancel", this);
 
         changeState(State.CANCELLED);
+        cancelNetworkingRequest();
     }
 
     private void changeState(final State state) {
@@ -103,6 +195,7 @@ public abstract class Task<T> implements NetworkingTask<T>, NetworkingPrioritiza
                 break;
 
             case NETWORKING:
+                mStartTime = System.nanoTime();
                 notifyStarted();
                 startNetworkingRequest();
                 break;
@@ -112,6 +205,7 @@ public abstract class Task<T> implements NetworkingTask<T>, NetworkingPrioritiza
                 break;
 
             case COMPLETE:
+                mDuration = System.nanoTime() - mStartTime;
                 notifyComplete();
                 break;
 
@@ -152,6 +246,14 @@ public abstract class Task<T> implements NetworkingTask<T>, NetworkingPrioritiza
 
     public abstract void onExecuteProcessing(Context context, T data) throws Exception;
 
+    /*
+     * Networking requests can be limited per key, e.g. the host they talk to.
+     * See ThreadedRequestExecutor.onCreateNetworkingLimiter().
+     */
+    public Object onCreateNetworkingKey() {
+        return null;
+    }
+
 
     // ======================================================
 
@@ -227,14 +329,106 @@ public abstract class Task<T> implements NetworkingTask<T>, NetworkingPrioritiza
         Logger.v("Task[%s] start networking request", this);
 
         if (mExecutor != null) {
-            final NetworkingPrioritizable<T> prioritizable = new NetworkingPrioritizable<T>(this);
-            final NetworkingRequest<T> request = new NetworkingRequest<T>(prioritizable, mPriority.ordinal(), this);
+            if (mAttempts++ == 0 && mRetryPolicy != null) {
+                mRetryPolicy.onFirstAttempt();
+            }
+            final NetworkingRequest<?> request = newNetworkingRequest();
+            mNetworkingRequest = request;
             mExecutor.executeNetworkingRequest(request);
+
+            // cancelled while the request was being handed over
+            if (isFinished()) {
+                cancelNetworkingRequest();
+            }
         } else {
             throw new IllegalStateException(Messages.NO_EXECUTOR);
         }
     }
 
+    /*
+     * A ParsedTask networks for its raw response rather than its data, so it
+     * builds the request around its own networking stage.
+     */
+    NetworkingRequest<?> newNetworkingRequest() {
+        return newNetworkingRequest(this, this);
+    }
+
+    final <R> NetworkingRequest<R> newNetworkingRequest(final NetworkingTask<R> task, final NetworkingPrioritizableObserver<R> observer) {
+        final NetworkingPrioritizable<R> prioritizable = new NetworkingPrioritizable<R>(task);
+        prioritizable.setGroup(mGroup);
+        prioritizable.setKey(onCreateNetworkingKey());
+        prioritizable.setPriorityValue(-mCriticalPath);
+        return new NetworkingRequest<R>(prioritizable, mPriority.ordinal(), observer);
+    }
+
+    /*
+     * The retry is scheduled in the task's own priority lane and waits in the
+     * executor's scheduler, not on a worker thread.
+     */
+    private boolean retryNetworkingRequest(final ServiceError error) {
+        final RetryPolicy policy = mRetryPolicy;
+        if (policy == null || isFinished() || !(mExecutor instanceof ScheduledRequestExecutor)) {
+            return false;
+        }
+
+        final long delay = policy.getRetryDelay(mAttempts, error);
+        if (delay < 0) {
+            return false;
+        }
+
+        Logger.v("Task[%s] retry networking request in %dms, attempt %d", this, delay, mAttempts + 1);
+
+        mAttempts++;
+        final NetworkingRequest<?> request = newNetworkingRequest();
+        mNetworkingRequest = request;
+        ((ScheduledRequestExecutor) mExecutor).scheduleNetworkingRequest(request, delay, TimeUnit.MILLISECONDS);
+
+        // cancelled while the retry was being scheduled
+        if (isFinished()) {
+            cancelNetworkingRequest();
+        }
+        return true;
+    }
+
+    /*
+     * A task that only joined a failed flight follows the retry scheduled
+     * by the task that ran it, so the flight is retried once, after one
+     * backoff, and charged to the budget once.
+     */
+    private boolean attachToRetry() {
+        if (mRetryPolicy == null || isFinished() || !(mExecutor instanceof ScheduledRequestExecutor)) {
+            return false;
+        }
+
+        final NetworkingRequest<?> request = newNetworkingRequest();
+        mNetworkingRequest = request;
+        mAttempts++;
+        if (!((ScheduledRequestExecutor) mExecutor).attachNetworkingRequest(request)) {
+            mNetworkingRequest = null;
+            mAttempts--;
+            return false;
+        }
+
+        Logger.v("Task[%s] attached to networking retry, attempt %d", this, mAttempts);
+
+        // cancelled while the request was being attached
+        if (isFinished()) {
+            cancelNetworkingRequest();
+        }
+        return true;
+    }
+
+    /*
+     * A cancelled task takes its networking request back, so a retry in its
+     * backoff never runs and a request that joined a flight leaves it.
+     */
+    private void cancelNetworkingRequest() {
+        final NetworkingRequest<?> request = mNetworkingRequest;
+        if (request != null && mExecutor instanceof CancellingRequestExecutor) {
+            ((CancellingRequestExecutor) mExecutor).cancelNetworkingRequest(request);
+        }
+    }
+
     @Override
     public final T executeNetworking() throws Exception {
         return onExecuteNetworking(mContext);
@@ -244,15 +438,41 @@ public abstract class Task<T> implements NetworkingTask<T>, NetworkingPrioritiza
     public final void onNetworkingComplete(final T data) {
         Logger.v("Task[%s] networking complete", this);
 
-        mData = data;
+        mNetworkingRequest = null;
 
-        changeState(State.PROCESSING);
+        onDataReady(data);
     }
 
     @Override
     public final void onNetworkingFailure(final ServiceError error) {
         Logger.v("Task[%s] networking failure : %s", this, error);
 
+        final NetworkingRequest<?> request = mNetworkingRequest;
+        mNetworkingRequest = null;
+
+        if (request != null && request.isJoined() && attachToRetry()) {
+            return;
+        }
+
+        if (retryNetworkingRequest(error)) {
+            return;
+        }
+
+        fail(error);
+    }
+
+    /*
+     * Hands the data on to processing, straight from networking or once a
+     * ParsedTask has parsed its response.
+     */
+    final void onDataReady(final T data) {
+        mData = data;
+
+        changeState(State.PROCESSING);
+    }
+
+    /* Fails the task without retrying, e.g. when its response cannot be parsed. */
+    final void fail(final ServiceError error) {
         mError = error;
 
         changeState(State.FAILED);
@@ -267,6 +487,8 @@ public abstract class Task<T> implements NetworkingTask<T>, NetworkingPrioritiza
 
         if (mExecutor != null) {
             final ProcessingPrioritizable<T> prioritizable = new ProcessingPrioritizable<T>(this, data);
+            prioritizable.setGroup(mGroup);
+            prioritizable.setPriorityValue(-mCriticalPath);
             final ProcessingRequest<T> request = new ProcessingRequest<T>(prioritizable, mPriority.ordinal(), this);
             mExecutor.executeProcessingRequest(request);
         } else {
@@ -327,7 +549,9 @@ public abstract class Task<T> implements NetworkingTask<T>, NetworkingPrioritiza
 
     private void notifyDependentsOfCompletion() {
         synchronized (mTaskLock) {
-            for (final Task<?> dependant : mDependencies) {
+            final List<Task<?>> dependencies = new ArrayList<Task<?>>(mDependencies);
+            Collections.sort(dependencies, EXECUTION_ORDER);
+            for (final Task<?> dependant : dependencies) {
                 dependant.onPrerequisiteComplete(this);
             }
         }
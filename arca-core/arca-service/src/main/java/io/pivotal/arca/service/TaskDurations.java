@@ -0,0 +1,49 @@
+package io.pivotal.arca.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Process-wide history of how long each kind of Task takes, from the start
+ * of its networking request to the end of its processing request. Kept as
+ * an exponentially weighted average per Task class so that Operations can
+ * estimate the critical path of their task graph.
+ */
+public final class TaskDurations {
+
+    public static final long DEFAULT_DURATION = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private static final int WEIGHT = 4;
+
+    private static final Map<Class<?>, Long> sDurations = new ConcurrentHashMap<Class<?>, Long>();
+
+    private TaskDurations() {
+    }
+
+    public static void record(final Task<?> task, final long durationNanos) {
+        if (durationNanos < 0) {
+            return;
+        }
+
+        final Class<?> type = task.getClass();
+        final Long average = sDurations.get(type);
+        if (average == null) {
+            sDurations.put(type, durationNanos);
+        } else {
+            sDurations.put(type, average + (durationNanos - average) / WEIGHT);
+        }
+    }
+
+    /*
+     * Returns DEFAULT_DURATION for tasks that have not completed yet.
+     */
+    public static long estimate(final Task<?> task) {
+        final Long average = sDurations.get(task.getClass());
+        return average != null ? average : DEFAULT_DURATION;
+    }
+
+    public static void clear() {
+        sDurations.clear();
+    }
+}
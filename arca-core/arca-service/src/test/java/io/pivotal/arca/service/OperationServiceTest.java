@@ -1,9 +1,18 @@
 package io.pivotal.arca.service;
 
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.ContextWrapper;
 import android.content.Intent;
+import android.net.Uri;
 import android.os.IBinder;
 import android.test.ServiceTestCase;
 
+import java.util.HashSet;
+
+import io.pivotal.arca.threading.Identifier;
+import io.pivotal.arca.threading.SheddingPolicy;
+
 public class OperationServiceTest extends ServiceTestCase<OperationService> {
 
 	public OperationServiceTest() {
@@ -55,4 +64,77 @@ public class OperationServiceTest extends ServiceTestCase<OperationService> {
 		assertFalse(OperationService.cancel(getContext(), null));
 	}
 
+	// ===========================================
+
+	public void testOperationServiceStartRejectsNewestWhenSaturated() {
+		OperationService.setCapacity(Priority.LIVE, 1, SheddingPolicy.REJECT_NEWEST);
+		try {
+			final Operation first = newOperation("first");
+			final Operation second = newOperation("second");
+
+			assertTrue(OperationService.start(getContext(), first));
+			assertTrue(OperationService.start(getContext(), first));
+			assertFalse(OperationService.start(getContext(), second));
+		} finally {
+			OperationService.clearCapacity(Priority.LIVE);
+		}
+	}
+
+	public void testOperationServiceStartDropsOldestWhenSaturated() {
+		OperationService.setCapacity(Priority.LIVE, 1, SheddingPolicy.DROP_OLDEST);
+		try {
+			final Operation first = newOperation("first");
+			final Operation second = newOperation("second");
+
+			assertTrue(OperationService.start(getContext(), first));
+			assertTrue(OperationService.start(getContext(), second));
+		} finally {
+			OperationService.clearCapacity(Priority.LIVE);
+		}
+	}
+
+	public void testOperationServiceReleasesSlotWhenServiceCannotStart() {
+		OperationService.setCapacity(Priority.LIVE, 1, SheddingPolicy.REJECT_NEWEST);
+		try {
+			final Operation first = newOperation("first");
+			final Operation second = newOperation("second");
+			final Context background = new ContextWrapper(getContext()) {
+				@Override
+				public ComponentName startService(final Intent service) {
+					throw new IllegalStateException("Not allowed to start service");
+				}
+			};
+
+			try {
+				OperationService.start(background, first);
+				fail();
+			} catch (final IllegalStateException e) {
+				assertNotNull(e);
+			}
+			assertTrue(OperationService.start(getContext(), second));
+		} finally {
+			OperationService.clearCapacity(Priority.LIVE);
+		}
+	}
+
+	public void testOperationServiceSetCapacityValidatesArguments() {
+		try {
+			OperationService.setCapacity(Priority.LOW, 0, SheddingPolicy.REJECT_NEWEST);
+			fail();
+		} catch (final IllegalArgumentException e) {
+			assertNotNull(e);
+		}
+	}
+
+	// ===========================================
+
+	/* TestOperation shares one identifier between instances, admission needs distinct ones. */
+	private static Operation newOperation(final String name) {
+		return new TestOperation(Uri.parse("content://test/" + name), new HashSet<Task<?>>()) {
+			@Override
+			public Identifier<?> onCreateIdentifier() {
+				return new Identifier<String>(name);
+			}
+		};
+	}
 }
@@ -6,6 +6,15 @@ import android.test.AndroidTestCase;
 
 import junit.framework.Assert;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import io.pivotal.arca.threading.Identifier;
+import io.pivotal.arca.threading.PriorityAccessor;
+
 public class OperationTest extends AndroidTestCase {
 
     private static final String ERROR = "test_error";
@@ -584,6 +593,70 @@ public class OperationTest extends AndroidTestCase {
         parcel.recycle();
     }
 
+    public void testOperationAssignsCriticalPathsToTasks() {
+        final Task<?> auth = new TestTask(new Identifier<String>("auth"));
+        final Task<?> list = new TestTask(new Identifier<String>("list"));
+        final Task<?> details = new TestTask(new Identifier<String>("details"));
+        final Task<?> avatar = new TestTask(new Identifier<String>("avatar"));
+        final Task<?> single = new TestTask(new Identifier<String>("single"));
+        auth.addDependency(list);
+        auth.addDependency(avatar);
+        list.addDependency(details);
+
+        final Set<Task<?>> tasks = new HashSet<Task<?>>(Arrays.asList(single, avatar, details, list, auth));
+        final List<Identifier<?>> started = new ArrayList<Identifier<?>>();
+        final TestOperation operation = new TestOperation(null, Priority.MEDIUM, tasks) {
+            @Override
+            public long onEstimateTaskDuration(final Task<?> task) {
+                return 1;
+            }
+        };
+        operation.setRequestExecutor(new RequestExecutor.SerialRequestExecutor() {
+            @Override
+            public void executeNetworkingRequest(final NetworkingRequest<?> request) {
+                started.add(request.getIdentifier());
+                super.executeNetworkingRequest(request);
+            }
+        });
+        operation.execute();
+
+        assertEquals(3, auth.getCriticalPath());
+        assertEquals(2, list.getCriticalPath());
+        assertEquals(1, details.getCriticalPath());
+        assertEquals(1, avatar.getCriticalPath());
+        assertEquals(1, single.getCriticalPath());
+
+        final List<Identifier<?>> expected = Arrays.<Identifier<?>> asList(new Identifier<String>("auth"), new Identifier<String>("list"),
+                new Identifier<String>("details"), new Identifier<String>("avatar"), new Identifier<String>("single"));
+        assertEquals(expected, started);
+    }
+
+    public void testLiveTasksAreDequeuedLongestCriticalPathFirst() {
+        final Task<?> shortest = new TestTask(new Identifier<String>("shortest"));
+        final Task<?> longest = new TestTask(new Identifier<String>("longest"));
+        final Task<?> middle = new TestTask(new Identifier<String>("middle"));
+        final Set<Task<?>> tasks = new HashSet<Task<?>>(Arrays.asList(shortest, longest, middle));
+
+        final PriorityAccessor live = Priority.newAccessorArray()[Priority.LIVE.ordinal()];
+        final TestOperation operation = new TestOperation(null, Priority.LIVE, tasks) {
+            @Override
+            public long onEstimateTaskDuration(final Task<?> task) {
+                return task == longest ? 3 : (task == middle ? 2 : 1);
+            }
+        };
+        operation.setRequestExecutor(new RequestExecutor.SerialRequestExecutor() {
+            @Override
+            public void executeNetworkingRequest(final NetworkingRequest<?> request) {
+                live.attach(request);
+            }
+        });
+        operation.execute();
+
+        assertEquals(new Identifier<String>("longest"), live.detachHighestPriorityItem().getIdentifier());
+        assertEquals(new Identifier<String>("middle"), live.detachHighestPriorityItem().getIdentifier());
+        assertEquals(new Identifier<String>("shortest"), live.detachHighestPriorityItem().getIdentifier());
+    }
+
     // =============================================
 
     private static class ObserverCounter {
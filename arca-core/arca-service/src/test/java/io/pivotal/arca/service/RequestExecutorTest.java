@@ -4,6 +4,17 @@ import android.test.AndroidTestCase;
 
 import junit.framework.Assert;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import io.pivotal.arca.threading.AuxiliaryExecutor;
+import io.pivotal.arca.threading.AuxiliaryExecutorObserver;
+import io.pivotal.arca.threading.Identifier;
+import io.pivotal.arca.threading.PrioritizableRequest;
+import io.pivotal.arca.threading.PromotingAuxiliaryExecutor;
+
 public class RequestExecutorTest extends AndroidTestCase {
 
 	public void testRequestExecutorConfig() {
@@ -118,6 +129,230 @@ public class RequestExecutorTest extends AndroidTestCase {
 
 	// =============================================
 
+	public void testJoiningNetworkingRequestPromotesQueuedRequest() {
+		final QueuedRequestExecutor executor = new QueuedRequestExecutor();
+		final CountingNetworkingRequest queued = new CountingNetworkingRequest(2);
+		final CountingNetworkingRequest joining = new CountingNetworkingRequest(0);
+
+		executor.executeNetworkingRequest(queued);
+		executor.executeNetworkingRequest(joining);
+
+		assertEquals(1, executor.getNetworkExecutor().mQueued.size());
+		assertEquals(1, executor.getNetworkExecutor().mPromotions.size());
+		assertEquals(Integer.valueOf(0), executor.getNetworkExecutor().mPromotions.get(0));
+
+		executor.getNetworkExecutor().runNext();
+
+		assertEquals(1, queued.mCompleted);
+		assertEquals(1, joining.mCompleted);
+	}
+
+	public void testNetworkingRequestJoiningDuringCompletionIsNotExecuted() {
+		final CountingNetworkingRequest late = new CountingNetworkingRequest(1);
+		final QueuedRequestExecutor executor = new QueuedRequestExecutor() {
+
+			@Override
+			public void onNetworkingRequestComplete(final NetworkingRequest<?> request) {
+				getNetworkExecutor().notifyRequestComplete(request.getIdentifier());
+				executeNetworkingRequest(late);
+				super.onNetworkingRequestComplete(request);
+			}
+		};
+		final CountingNetworkingRequest request = new CountingNetworkingRequest(1);
+
+		executor.executeNetworkingRequest(request);
+		executor.getNetworkExecutor().runNext();
+
+		assertTrue(executor.getNetworkExecutor().mQueued.isEmpty());
+		assertEquals(1, request.mCompleted);
+		assertEquals(1, late.mCompleted);
+	}
+
+	public void testJoinedNetworkingRequestTakesOverWhenQueuedRequestIsCancelled() {
+		final QueuedRequestExecutor executor = new QueuedRequestExecutor();
+		final CountingNetworkingRequest cancelled = new CountingNetworkingRequest(1);
+		final CountingNetworkingRequest joining = new CountingNetworkingRequest(1);
+
+		executor.executeNetworkingRequest(cancelled);
+		executor.executeNetworkingRequest(joining);
+		cancelled.cancel();
+		executor.getNetworkExecutor().runNext();
+
+		assertEquals(1, executor.getNetworkExecutor().mQueued.size());
+		assertSame(joining, executor.getNetworkExecutor().mQueued.get(0));
+
+		executor.getNetworkExecutor().runNext();
+
+		assertEquals(1, joining.mCompleted);
+		assertEquals(0, joining.mFailed);
+	}
+
+	public void testNetworkingFlightFailsWhenEveryRequestIsCancelled() {
+		final QueuedRequestExecutor executor = new QueuedRequestExecutor();
+		final CountingNetworkingRequest first = new CountingNetworkingRequest(1);
+		final CountingNetworkingRequest second = new CountingNetworkingRequest(1);
+
+		executor.executeNetworkingRequest(first);
+		executor.executeNetworkingRequest(second);
+		first.cancel();
+		second.cancel();
+		executor.getNetworkExecutor().runNext();
+
+		assertTrue(executor.getNetworkExecutor().mQueued.isEmpty());
+		assertEquals(1, first.mFailed);
+		assertEquals(1, second.mFailed);
+	}
+
+	public void testCancelledJoinedRequestLeavesFlight() {
+		final QueuedRequestExecutor executor = new QueuedRequestExecutor();
+		final CountingNetworkingRequest queued = new CountingNetworkingRequest(1);
+		final CountingNetworkingRequest joining = new CountingNetworkingRequest(1);
+
+		executor.executeNetworkingRequest(queued);
+		executor.executeNetworkingRequest(joining);
+		executor.cancelNetworkingRequest(joining);
+		executor.getNetworkExecutor().runNext();
+
+		assertEquals(1, queued.mCompleted);
+		assertEquals(0, joining.mCompleted);
+		assertEquals(0, joining.mFailed);
+	}
+
+	public void testNetworkingFlightIsDroppedWhenEveryRequestLeaves() {
+		final QueuedRequestExecutor executor = new QueuedRequestExecutor();
+		final CountingNetworkingRequest first = new CountingNetworkingRequest(1);
+		final CountingNetworkingRequest second = new CountingNetworkingRequest(1);
+		final CountingNetworkingRequest third = new CountingNetworkingRequest(1);
+
+		executor.executeNetworkingRequest(first);
+		executor.executeNetworkingRequest(second);
+		executor.cancelNetworkingRequest(first);
+		executor.cancelNetworkingRequest(second);
+		executor.executeNetworkingRequest(third);
+
+		assertEquals(2, executor.getNetworkExecutor().mQueued.size());
+
+		executor.getNetworkExecutor().runNext();
+		executor.getNetworkExecutor().runNext();
+
+		assertTrue(executor.getNetworkExecutor().mQueued.isEmpty());
+		assertEquals(0, first.mCompleted);
+		assertEquals(0, second.mCompleted);
+		assertEquals(1, third.mCompleted);
+	}
+
+	public void testRetainedNetworkingResultAnswersLateRequest() {
+		final QueuedRequestExecutor executor = new QueuedRequestExecutor() {
+
+			@Override
+			protected long getNetworkingResultRetention() {
+				return 1000;
+			}
+		};
+		final CountingNetworkingRequest request = new CountingNetworkingRequest(1);
+		final CountingNetworkingRequest late = new CountingNetworkingRequest(1);
+
+		executor.executeNetworkingRequest(request);
+		executor.getNetworkExecutor().runNext();
+		executor.executeNetworkingRequest(late);
+
+		assertTrue(executor.getNetworkExecutor().mQueued.isEmpty());
+		assertEquals(1, late.mCompleted);
+	}
+
+	// =============================================
+
+	private static class CountingNetworkingRequest extends NetworkingRequest<String> {
+
+		private int mCompleted;
+		private int mFailed;
+
+		public CountingNetworkingRequest(final int accessorIndex) {
+			super(new TestNetworkingPrioritizable(), accessorIndex, null);
+		}
+
+		@Override
+		public void notifyComplete(final Object data, final ServiceError error) {
+			if (error == null) {
+				mCompleted++;
+			} else {
+				mFailed++;
+			}
+		}
+	}
+
+	private static class QueuedRequestExecutor extends RequestExecutor.ThreadedRequestExecutor {
+
+		/* Assigned from the super constructor, so it must not have an initializer. */
+		private QueuedAuxiliaryExecutor mQueuedExecutor;
+
+		@Override
+		protected AuxiliaryExecutor onCreateNetworkingExecutor() {
+			mQueuedExecutor = new QueuedAuxiliaryExecutor(this);
+			return mQueuedExecutor;
+		}
+
+		public QueuedAuxiliaryExecutor getNetworkExecutor() {
+			return mQueuedExecutor;
+		}
+	}
+
+	/* Holds requests until the test runs them, one at a time. */
+	private static class QueuedAuxiliaryExecutor implements PromotingAuxiliaryExecutor {
+
+		private final List<PrioritizableRequest> mQueued = new ArrayList<PrioritizableRequest>();
+		private final List<Integer> mPromotions = new ArrayList<Integer>();
+		private final AuxiliaryExecutorObserver mObserver;
+
+		public QueuedAuxiliaryExecutor(final AuxiliaryExecutorObserver observer) {
+			mObserver = observer;
+		}
+
+		public void runNext() {
+			final PrioritizableRequest request = mQueued.remove(0);
+			if (!request.isCancelled()) {
+				request.run();
+				mObserver.onComplete(request);
+			} else {
+				mObserver.onCancelled(request);
+			}
+		}
+
+		@Override
+		public void promote(final Identifier<?> identifier, final int accessorIndex) {
+			mPromotions.add(accessorIndex);
+		}
+
+		@Override
+		public void execute(final Runnable command) {
+			mQueued.add((PrioritizableRequest) command);
+		}
+
+		@Override
+		public void notifyRequestComplete(final Identifier<?> identifier) {
+		}
+
+		@Override
+		public BlockingQueue<Runnable> getQueue() {
+			return new ArrayBlockingQueue<Runnable>(1);
+		}
+
+		@Override
+		public int getActiveCount() {
+			return 0;
+		}
+
+		@Override
+		public boolean remove(final Runnable task) {
+			return mQueued.remove(task);
+		}
+
+		@Override
+		public void cancelAll() {
+			mQueued.clear();
+		}
+	}
+
 	private static class RequestHandlerCounter {
 
 		private final AssertionLatch mNetworkLatch;
@@ -0,0 +1,35 @@
+package io.pivotal.arca.service;
+
+import android.test.AndroidTestCase;
+
+public class RequestExecutorsTest extends AndroidTestCase {
+
+    @Override
+    protected void tearDown() throws Exception {
+        RequestExecutors.setShared(null);
+        super.tearDown();
+    }
+
+    public void testSharedExecutorIsReused() {
+        final RequestExecutor executor = RequestExecutors.getShared();
+        assertNotNull(executor);
+        assertTrue(executor instanceof RequestExecutor.ThreadedRequestExecutor);
+        assertSame(executor, RequestExecutors.getShared());
+    }
+
+    public void testSharedExecutorCanBeReplaced() {
+        final RequestExecutor executor = new TestThreadedRequestExecutor();
+        RequestExecutors.setShared(executor);
+        assertSame(executor, RequestExecutors.getShared());
+    }
+
+    public void testClearingSharedExecutorRestoresDefault() {
+        final RequestExecutor executor = new TestThreadedRequestExecutor();
+        RequestExecutors.setShared(executor);
+        RequestExecutors.setShared(null);
+
+        final RequestExecutor shared = RequestExecutors.getShared();
+        assertNotSame(executor, shared);
+        assertTrue(shared instanceof RequestExecutor.ThreadedRequestExecutor);
+    }
+}
@@ -0,0 +1,252 @@
+package io.pivotal.arca.service;
+
+import android.content.Context;
+import android.test.AndroidTestCase;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.pivotal.arca.threading.Identifier;
+
+public class RetryPolicyTest extends AndroidTestCase {
+
+	private static final String ERROR = "test_error";
+	private static final String RESULT = "test_result";
+
+	public void testBackoffGrowsUpToMaxDelay() {
+		final RetryPolicy policy = newPolicy(10, null);
+		final ServiceError error = new ServiceError(ERROR);
+
+		for (int i = 0; i < 50; i++) {
+			assertTrue(policy.getRetryDelay(1, error) <= 100);
+			assertTrue(policy.getRetryDelay(2, error) <= 200);
+			final long delay = policy.getRetryDelay(8, error);
+			assertTrue(delay >= 0 && delay <= 1000);
+		}
+	}
+
+	public void testRetriesStopAtMaxAttempts() {
+		final RetryPolicy policy = newPolicy(3, null);
+		final ServiceError error = new ServiceError(ERROR);
+
+		assertTrue(policy.getRetryDelay(2, error) >= 0);
+		assertEquals(RetryPolicy.NO_RETRY, policy.getRetryDelay(3, error));
+	}
+
+	public void testServerRetryAfterIsHonoured() {
+		final RetryPolicy policy = newPolicy(3, null);
+
+		assertEquals(250, policy.getRetryDelay(1, new ServiceError(503, null, ERROR, 250)));
+		assertEquals(RetryPolicy.NO_RETRY, policy.getRetryDelay(1, new ServiceError(503, null, ERROR, 5000)));
+	}
+
+	public void testCancelledRequestsAreNotRetried() {
+		final RetryPolicy policy = newPolicy(3, null);
+
+		assertEquals(RetryPolicy.NO_RETRY, policy.getRetryDelay(1, new ServiceError(ServiceError.Messages.REQUEST_CANCELLED)));
+	}
+
+	public void testBudgetLimitsRetries() {
+		final RetryBudget budget = new RetryBudget(0.5, 2);
+		final RetryPolicy policy = newPolicy(10, budget);
+		final ServiceError error = new ServiceError(ERROR);
+
+		assertTrue(policy.getRetryDelay(1, error) >= 0);
+		assertTrue(policy.getRetryDelay(1, error) >= 0);
+		assertEquals(RetryPolicy.NO_RETRY, policy.getRetryDelay(1, error));
+
+		policy.onFirstAttempt();
+		policy.onFirstAttempt();
+		assertTrue(policy.getRetryDelay(1, error) >= 0);
+		assertEquals(RetryPolicy.NO_RETRY, policy.getRetryDelay(1, error));
+	}
+
+	public void testInvalidMaxAttemptsThrows() {
+		try {
+			new RetryPolicy.Builder().setMaxAttempts(0);
+			fail();
+		} catch (final IllegalArgumentException e) {
+			assertNotNull(e);
+		}
+	}
+
+	public void testTaskRetriesFailedNetworkingRequest() throws Exception {
+		final CountDownLatch complete = new CountDownLatch(1);
+		final FlakyTask task = new FlakyTask(2);
+		task.setRetryPolicy(newPolicy(3, null));
+		task.setTaskObserver(new TaskCompletionObserver(complete));
+		task.setRequestExecutor(new RequestExecutor.ThreadedRequestExecutor());
+		task.execute();
+
+		assertTrue(complete.await(2, TimeUnit.SECONDS));
+		assertEquals(3, task.getAttempts());
+		assertEquals(3, task.mCalls.get());
+		assertEquals(RESULT, task.getData());
+		assertNull(task.getError());
+	}
+
+	public void testTaskFailsWhenRetriesRunOut() throws Exception {
+		final CountDownLatch failed = new CountDownLatch(1);
+		final FlakyTask task = new FlakyTask(5);
+		task.setRetryPolicy(newPolicy(2, null));
+		task.setTaskObserver(new TaskCompletionObserver(failed));
+		task.setRequestExecutor(new RequestExecutor.ThreadedRequestExecutor());
+		task.execute();
+
+		assertTrue(failed.await(2, TimeUnit.SECONDS));
+		assertEquals(2, task.mCalls.get());
+		assertEquals(ERROR, task.getError().getMessage());
+	}
+
+	public void testTaskDoesNotRetryWithoutScheduledExecutor() {
+		final FlakyTask task = new FlakyTask(1);
+		task.setRetryPolicy(newPolicy(3, null));
+		task.setRequestExecutor(new RequestExecutor.SerialRequestExecutor());
+		task.execute();
+
+		assertEquals(1, task.mCalls.get());
+		assertEquals(ERROR, task.getError().getMessage());
+	}
+
+	public void testTaskCancelledDuringBackoffIsNotRetried() throws Exception {
+		final CountDownLatch scheduled = new CountDownLatch(1);
+		final RequestExecutor.ThreadedRequestExecutor executor = new RequestExecutor.ThreadedRequestExecutor() {
+			@Override
+			public void scheduleNetworkingRequest(final NetworkingRequest<?> request, final long delay, final TimeUnit unit) {
+				super.scheduleNetworkingRequest(request, 200, TimeUnit.MILLISECONDS);
+				scheduled.countDown();
+			}
+		};
+
+		final FlakyTask task = new FlakyTask(1);
+		task.setRetryPolicy(newPolicy(3, null));
+		task.setRequestExecutor(executor);
+		task.execute();
+
+		assertTrue(scheduled.await(2, TimeUnit.SECONDS));
+		task.cancel();
+		Thread.sleep(400);
+
+		assertEquals(1, task.mCalls.get());
+		assertNull(task.getData());
+
+		final CountDownLatch complete = new CountDownLatch(1);
+		final FlakyTask next = new FlakyTask(0);
+		next.setTaskObserver(new TaskCompletionObserver(complete));
+		next.setRequestExecutor(executor);
+		next.execute();
+
+		assertTrue(complete.await(2, TimeUnit.SECONDS));
+		assertEquals(RESULT, next.getData());
+	}
+
+	public void testTasksSharingFailedFlightRetryItOnce() throws Exception {
+		final AtomicInteger schedules = new AtomicInteger();
+		final RequestExecutor.ThreadedRequestExecutor executor = new RequestExecutor.ThreadedRequestExecutor() {
+			@Override
+			public void scheduleNetworkingRequest(final NetworkingRequest<?> request, final long delay, final TimeUnit unit) {
+				schedules.incrementAndGet();
+				super.scheduleNetworkingRequest(request, 200, TimeUnit.MILLISECONDS);
+			}
+		};
+		final RetryBudget budget = new RetryBudget(0, 5);
+		final CountDownLatch gate = new CountDownLatch(1);
+		final CountDownLatch complete = new CountDownLatch(2);
+
+		final FlakyTask first = new FlakyTask(1, gate);
+		final FlakyTask second = new FlakyTask(1);
+		for (final FlakyTask task : new FlakyTask[] { first, second }) {
+			task.setRetryPolicy(newPolicy(3, budget));
+			task.setTaskObserver(new TaskCompletionObserver(complete));
+			task.setRequestExecutor(executor);
+		}
+
+		final long start = System.nanoTime();
+		first.execute();
+		second.execute();
+		gate.countDown();
+
+		assertTrue(complete.await(2, TimeUnit.SECONDS));
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+		assertEquals(1, schedules.get());
+		assertEquals(2, first.mCalls.get() + second.mCalls.get());
+		assertEquals(4.0, budget.getTokens());
+		assertEquals(RESULT, first.getData());
+		assertEquals(RESULT, second.getData());
+	}
+
+	// =============================================
+
+	private static RetryPolicy newPolicy(final int maxAttempts, final RetryBudget budget) {
+		return new RetryPolicy.Builder()
+				.setMaxAttempts(maxAttempts)
+				.setBaseDelay(100, TimeUnit.MILLISECONDS)
+				.setMaxDelay(1, TimeUnit.SECONDS)
+				.setBudget(budget)
+				.build();
+	}
+
+	private static class FlakyTask extends Task<String> {
+
+		final AtomicInteger mCalls = new AtomicInteger();
+		private final int mFailures;
+		private final CountDownLatch mGate;
+
+		public FlakyTask(final int failures) {
+			this(failures, null);
+		}
+
+		/* Networking waits for the gate, so other tasks can join the flight first. */
+		public FlakyTask(final int failures, final CountDownLatch gate) {
+			mFailures = failures;
+			mGate = gate;
+		}
+
+		@Override
+		public Identifier<?> onCreateIdentifier() {
+			return new Identifier<String>("flaky");
+		}
+
+		@Override
+		public String onExecuteNetworking(final Context context) throws Exception {
+			if (mGate != null) {
+				mGate.await(1, TimeUnit.SECONDS);
+			}
+			if (mCalls.incrementAndGet() <= mFailures) {
+				throw new ServiceException(new ServiceError(ERROR));
+			}
+			return RESULT;
+		}
+
+		@Override
+		public void onExecuteProcessing(final Context context, final String data) {
+		}
+	}
+
+	private static class TaskCompletionObserver implements TaskObserver {
+		private final CountDownLatch mLatch;
+
+		public TaskCompletionObserver(final CountDownLatch latch) {
+			mLatch = latch;
+		}
+
+		@Override
+		public void onTaskStarted(final Task<?> task) {
+		}
+
+		@Override
+		public void onTaskComplete(final Task<?> task) {
+			mLatch.countDown();
+		}
+
+		@Override
+		public void onTaskFailure(final Task<?> task, final ServiceError error) {
+			mLatch.countDown();
+		}
+
+		@Override
+		public void onTaskCancelled(final Task<?> task) {
+		}
+	}
+}
@@ -0,0 +1,221 @@
+package io.pivotal.arca.service;
+
+import android.content.Context;
+import android.test.AndroidTestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.pivotal.arca.threading.Identifier;
+
+public class StreamingTaskTest extends AndroidTestCase {
+
+	private static final String ERROR = "test_error";
+
+	public void testChunksAreProcessedInOrder() {
+		final List<Integer> processed = new ArrayList<Integer>();
+		final TaskCounter counter = new TaskCounter();
+
+		final StreamingTask<Integer> task = new TestStreamingTask(2) {
+			@Override
+			public void onExecuteNetworking(final Context context, final Emitter<Integer> emitter) throws Exception {
+				for (int i = 0; i < 5; i++) {
+					emitter.emit(i);
+				}
+			}
+
+			@Override
+			public void onProcessChunk(final Context context, final Integer chunk) {
+				processed.add(chunk);
+			}
+		};
+		task.setTaskObserver(counter);
+		task.setRequestExecutor(new RequestExecutor.SerialRequestExecutor());
+		task.execute();
+
+		assertEquals(Arrays.asList(0, 1, 2, 3, 4), processed);
+		assertEquals(1, counter.mCompleted.get());
+		assertEquals(0, counter.mFailed.get());
+	}
+
+	public void testProcessingOverlapsNetworkingWithBoundedBuffer() throws Exception {
+		final CountDownLatch firstChunkProcessed = new CountDownLatch(1);
+		final CountDownLatch complete = new CountDownLatch(1);
+		final AtomicInteger emitted = new AtomicInteger();
+		final AtomicInteger maxBuffered = new AtomicInteger();
+		final List<Integer> processed = Collections.synchronizedList(new ArrayList<Integer>());
+
+		final StreamingTask<Integer> task = new TestStreamingTask(2) {
+			@Override
+			public void onExecuteNetworking(final Context context, final Emitter<Integer> emitter) throws Exception {
+				emitter.emit(0);
+				emitted.incrementAndGet();
+				if (!firstChunkProcessed.await(1, TimeUnit.SECONDS)) {
+					throw new IllegalStateException("First chunk was not processed while networking.");
+				}
+
+				for (int i = 1; i < 20; i++) {
+					emitter.emit(i);
+					emitted.incrementAndGet();
+				}
+			}
+
+			@Override
+			public void onProcessChunk(final Context context, final Integer chunk) throws Exception {
+				processed.add(chunk);
+				maxBuffered.set(Math.max(maxBuffered.get(), emitted.get() - processed.size()));
+				firstChunkProcessed.countDown();
+				Thread.sleep(2);
+			}
+		};
+		task.setTaskObserver(new TaskCounter() {
+			@Override
+			public void onTaskComplete(final Task<?> task) {
+				super.onTaskComplete(task);
+				complete.countDown();
+			}
+		});
+		task.setRequestExecutor(new RequestExecutor.ThreadedRequestExecutor());
+		task.execute();
+
+		assertTrue(complete.await(5, TimeUnit.SECONDS));
+		assertEquals(20, processed.size());
+		for (int i = 0; i < 20; i++) {
+			assertEquals(Integer.valueOf(i), processed.get(i));
+		}
+		assertTrue(maxBuffered.get() <= 2);
+	}
+
+	public void testProcessingFailureFailsTask() {
+		final TaskCounter counter = new TaskCounter();
+
+		final StreamingTask<Integer> task = new TestStreamingTask(2) {
+			@Override
+			public void onExecuteNetworking(final Context context, final Emitter<Integer> emitter) throws Exception {
+				emitter.emit(0);
+				emitter.emit(1);
+			}
+
+			@Override
+			public void onProcessChunk(final Context context, final Integer chunk) throws Exception {
+				throw new ServiceException(new ServiceError(ERROR));
+			}
+		};
+		task.setTaskObserver(counter);
+		task.setRequestExecutor(new RequestExecutor.SerialRequestExecutor());
+		task.execute();
+
+		assertEquals(0, counter.mCompleted.get());
+		assertEquals(1, counter.mFailed.get());
+		assertEquals(ERROR, task.getError().getMessage());
+	}
+
+	public void testTaskIsNotRetriedUnderOperationRetryPolicy() throws Exception {
+		final CountDownLatch complete = new CountDownLatch(1);
+		final AtomicInteger attempts = new AtomicInteger();
+		final List<Integer> processed = Collections.synchronizedList(new ArrayList<Integer>());
+
+		final StreamingTask<Integer> task = new TestStreamingTask(2) {
+			@Override
+			public void onExecuteNetworking(final Context context, final Emitter<Integer> emitter) throws Exception {
+				attempts.incrementAndGet();
+				emitter.emit(0);
+				throw new ServiceException(new ServiceError(ERROR));
+			}
+
+			@Override
+			public void onProcessChunk(final Context context, final Integer chunk) {
+				processed.add(chunk);
+			}
+		};
+
+		final Set<Task<?>> tasks = new HashSet<Task<?>>();
+		tasks.add(task);
+		final TestOperation operation = new TestOperation(tasks) {
+			@Override
+			public RetryPolicy onCreateRetryPolicy() {
+				return new RetryPolicy.Builder()
+						.setMaxAttempts(3)
+						.setBaseDelay(10, TimeUnit.MILLISECONDS)
+						.build();
+			}
+		};
+		operation.setRequestExecutor(new RequestExecutor.ThreadedRequestExecutor());
+		operation.setOperationObserver(new OperationObserver() {
+			@Override
+			public void onOperationComplete(final Operation o) {
+				complete.countDown();
+			}
+		});
+		operation.execute();
+
+		assertTrue(complete.await(2, TimeUnit.SECONDS));
+		assertNull(task.getRetryPolicy());
+		assertEquals(1, attempts.get());
+		assertEquals(1, task.getAttempts());
+		assertTrue(processed.size() <= 1);
+		assertEquals(ERROR, task.getError().getMessage());
+		assertEquals(1, operation.getFailedTasks().size());
+	}
+
+	public void testInvalidCapacityThrows() {
+		try {
+			new TestStreamingTask(0) {
+				@Override
+				public void onExecuteNetworking(final Context context, final Emitter<Integer> emitter) {
+				}
+
+				@Override
+				public void onProcessChunk(final Context context, final Integer chunk) {
+				}
+			};
+			fail();
+		} catch (final IllegalArgumentException e) {
+			assertNotNull(e);
+		}
+	}
+
+	// =============================================
+
+	private static abstract class TestStreamingTask extends StreamingTask<Integer> {
+
+		public TestStreamingTask(final int capacity) {
+			super(capacity);
+		}
+
+		@Override
+		public Identifier<?> onCreateIdentifier() {
+			return new Identifier<String>("stream");
+		}
+	}
+
+	private static class TaskCounter implements TaskObserver {
+		final AtomicInteger mCompleted = new AtomicInteger();
+		final AtomicInteger mFailed = new AtomicInteger();
+
+		@Override
+		public void onTaskStarted(final Task<?> task) {
+		}
+
+		@Override
+		public void onTaskComplete(final Task<?> task) {
+			mCompleted.incrementAndGet();
+		}
+
+		@Override
+		public void onTaskFailure(final Task<?> task, final ServiceError error) {
+			mFailed.incrementAndGet();
+		}
+
+		@Override
+		public void onTaskCancelled(final Task<?> task) {
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package io.pivotal.arca.service;
 
+import android.content.Context;
 import android.test.AndroidTestCase;
 
 import junit.framework.Assert;
@@ -1254,6 +1255,130 @@ public class TaskTest extends AndroidTestCase {
         latch.assertComplete();
     }
 
+	public void testTaskExecutesParsingRequestBetweenNetworkingAndProcessing() {
+		final RequestCounter latch = new RequestCounter(1, 1);
+		final AssertionLatch parsingLatch = new AssertionLatch(1);
+		final Task<String> task = new ParsingTestTask(null);
+		task.setRequestExecutor(new ParsingRequestExecutor() {
+
+			@Override
+			public void executeNetworkingRequest(final NetworkingRequest<?> request) {
+				latch.executeNetworkingRequest();
+
+				request.notifyComplete(RESULT.getBytes(), null);
+			}
+
+			@Override
+			public void executeParsingRequest(final ParsingRequest<?> request) {
+				parsingLatch.countDown();
+
+				request.run();
+				request.notifyComplete(request.getData(), request.getError());
+			}
+
+			@Override
+			public void executeProcessingRequest(final ProcessingRequest<?> request) {
+				latch.executeProcessingRequest();
+
+				assertEquals("parsed:" + RESULT, request.getData());
+			}
+
+		});
+		task.execute();
+		latch.assertComplete();
+		parsingLatch.assertComplete();
+	}
+
+	public void testTaskParsesInlineWithoutParsingExecutor() {
+		final RequestCounter latch = new RequestCounter(1, 1);
+		final Task<String> task = new ParsingTestTask(null);
+		task.setRequestExecutor(new RequestExecutor() {
+
+			@Override
+			public void executeNetworkingRequest(final NetworkingRequest<?> request) {
+				latch.executeNetworkingRequest();
+
+				request.notifyComplete(RESULT.getBytes(), null);
+			}
+
+			@Override
+			public void executeProcessingRequest(final ProcessingRequest<?> request) {
+				latch.executeProcessingRequest();
+
+				assertEquals("parsed:" + RESULT, request.getData());
+			}
+
+		});
+		task.execute();
+		latch.assertComplete();
+	}
+
+	public void testTaskParsingFailureFailsTask() {
+		final ObserverCounter latch = new ObserverCounter(1, 0, 1, 0);
+		final ServiceError error = new ServiceError(ERROR);
+		final Task<String> task = new ParsingTestTask(new ServiceException(error));
+		task.setRequestExecutor(new RequestExecutor.SerialRequestExecutor());
+		task.setTaskObserver(new TaskObserver() {
+
+			@Override
+			public void onTaskStarted(final Task<?> t) {
+				latch.onTaskStarted();
+			}
+
+			@Override
+			public void onTaskComplete(final Task<?> t) {
+				latch.onTaskComplete();
+			}
+
+			@Override
+			public void onTaskFailure(final Task<?> t, final ServiceError e) {
+				latch.onTaskFailure();
+
+				assertEquals(error, e);
+			}
+
+			@Override
+			public void onTaskCancelled(final Task<?> t) {
+				latch.onTaskCancelled();
+			}
+		});
+		task.execute();
+		latch.assertComplete();
+	}
+
+	// =============================================
+
+	private static class ParsingTestTask extends ParsedTask<byte[], String> {
+
+		private final Exception mParsingException;
+
+		public ParsingTestTask(final Exception parsingException) {
+			mParsingException = parsingException;
+		}
+
+		@Override
+		public Identifier<?> onCreateIdentifier() {
+			return new Identifier<String>(IDENTIFIER);
+		}
+
+		@Override
+		public byte[] onExecuteRequest(final Context context) {
+			return RESULT.getBytes();
+		}
+
+		@Override
+		public String onExecuteParsing(final Context context, final byte[] response) throws Exception {
+			if (mParsingException != null) {
+				throw mParsingException;
+			}
+			return "parsed:" + new String(response);
+		}
+
+		@Override
+		public void onExecuteProcessing(final Context context, final String data) {
+		}
+	}
+
 	// =============================================
 
 	private static class ObserverCounter {
@@ -27,6 +27,11 @@ public class TestOperation extends Operation {
 		mTasks = tasks;
 	}
 
+	public TestOperation(final Uri uri, final Priority priority, final Set<Task<?>> tasks) {
+		super(uri, priority);
+		mTasks = tasks;
+	}
+
 	public TestOperation(final Parcel in) {
 		super(in);
 		mTasks = null;
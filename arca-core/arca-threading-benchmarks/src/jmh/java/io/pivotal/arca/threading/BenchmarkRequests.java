@@ -0,0 +1,73 @@
+package io.pivotal.arca.threading;
+
+import java.util.concurrent.CountDownLatch;
+
+final class BenchmarkRequests {
+
+	private BenchmarkRequests() {
+	}
+
+	/* Requests with distinct identifiers, spread over the given number of groups. */
+	public static PrioritizableRequest[] newRequests(final int count, final int numGroups) {
+		final PrioritizableRequest[] requests = new PrioritizableRequest[count];
+		for (int i = 0; i < count; i++) {
+			final BenchmarkPrioritizable prioritizable = new BenchmarkPrioritizable(new Identifier<Integer>(i), null);
+			prioritizable.setGroup(i % numGroups);
+			prioritizable.setPriorityValue(i % 7);
+			prioritizable.setDeadline(i % 11);
+			requests[i] = new PrioritizableRequest(prioritizable, 0);
+		}
+		return requests;
+	}
+
+	public static PrioritizableRequest newRequest(final Identifier<?> identifier, final int accessorIndex, final CountDownLatch latch) {
+		return new PrioritizableRequest(new BenchmarkPrioritizable(identifier, latch), accessorIndex);
+	}
+
+	public static PriorityAccessor newAccessor(final String type) {
+		if ("queue".equals(type)) {
+			return new QueuePriorityAccessor();
+		} else if ("stack".equals(type)) {
+			return new StackPriorityAccessor();
+		} else if ("fair".equals(type)) {
+			return new FairQueuePriorityAccessor();
+		} else if ("numeric".equals(type)) {
+			return new NumericPriorityAccessor();
+		} else if ("deadline".equals(type)) {
+			return new DeadlinePriorityAccessor();
+		} else {
+			throw new IllegalArgumentException("Unknown accessor type " + type + ".");
+		}
+	}
+
+	public static PriorityAccessor[] newAccessorArray() {
+		return new PriorityAccessor[] {
+				new StackPriorityAccessor(),
+				new QueuePriorityAccessor(),
+				new QueuePriorityAccessor(),
+				new QueuePriorityAccessor()
+		};
+	}
+
+	private static final class BenchmarkPrioritizable extends Prioritizable {
+		private final Identifier<?> mIdentifier;
+		private final CountDownLatch mLatch;
+
+		BenchmarkPrioritizable(final Identifier<?> identifier, final CountDownLatch latch) {
+			mIdentifier = identifier;
+			mLatch = latch;
+		}
+
+		@Override
+		public Identifier<?> getIdentifier() {
+			return mIdentifier;
+		}
+
+		@Override
+		public void execute() {
+			if (mLatch != null) {
+				mLatch.countDown();
+			}
+		}
+	}
+}
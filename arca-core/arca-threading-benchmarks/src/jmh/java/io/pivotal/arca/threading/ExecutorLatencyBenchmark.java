@@ -0,0 +1,87 @@
+package io.pivotal.arca.threading;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * End to end time from execute() until the request has run on a worker,
+ * for a single request at a time and for bursts that queue up behind the
+ * pool.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ExecutorLatencyBenchmark {
+	private static final int BURST_SIZE = 100;
+
+	@Param({ "default", "striped", "workStealing" })
+	public String queue;
+
+	@Param({ "2" })
+	public int threads;
+
+	private AuxiliaryExecutor mExecutor;
+	private long mNext;
+
+	@Setup
+	public void setUp() {
+		final AuxiliaryExecutor.Builder builder = new AuxiliaryExecutor.Builder(BenchmarkRequests.newAccessorArray(), new AuxiliaryExecutorObserver() {
+			@Override
+			public void onComplete(final PrioritizableRequest request) {
+				mExecutor.notifyRequestComplete(request.getIdentifier());
+			}
+
+			@Override
+			public void onCancelled(final PrioritizableRequest request) {
+			}
+		});
+		builder.setCorePoolSize(threads);
+
+		if ("striped".equals(queue)) {
+			builder.useStripedQueue();
+		} else if ("workStealing".equals(queue)) {
+			builder.useWorkStealingQueue(new PriorityAccessorFactory() {
+				@Override
+				public PriorityAccessor[] newAccessorArray() {
+					return BenchmarkRequests.newAccessorArray();
+				}
+			});
+		}
+
+		mExecutor = builder.create();
+	}
+
+	@TearDown
+	public void tearDown() {
+		((DefaultAuxiliaryExecutor) mExecutor).shutdownNow();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SampleTime)
+	public void single() throws InterruptedException {
+		final CountDownLatch latch = new CountDownLatch(1);
+		mExecutor.execute(BenchmarkRequests.newRequest(new Identifier<Long>(mNext++), 1, latch));
+		latch.await();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OperationsPerInvocation(BURST_SIZE)
+	public void burst() throws InterruptedException {
+		final CountDownLatch latch = new CountDownLatch(BURST_SIZE);
+		for (int i = 0; i < BURST_SIZE; i++) {
+			mExecutor.execute(BenchmarkRequests.newRequest(new Identifier<Long>(mNext++), 1 + i % 3, latch));
+		}
+		latch.await();
+	}
+}
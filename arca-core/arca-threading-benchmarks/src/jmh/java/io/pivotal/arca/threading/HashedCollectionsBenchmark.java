@@ -0,0 +1,67 @@
+package io.pivotal.arca.threading;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HashedCollectionsBenchmark {
+
+	@Param({ "16", "1024" })
+	public int size;
+
+	private HashedQueue<Object> mQueue;
+	private HashedStack<Object> mStack;
+	private Object[] mItems;
+	private Object mSpare;
+	private int mIndex;
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		mQueue = new HashedQueue<Object>();
+		mStack = new HashedStack<Object>();
+		mItems = new Object[size];
+		for (int i = 0; i < size; i++) {
+			mItems[i] = new Object();
+			mQueue.offer(mItems[i]);
+			mStack.push(mItems[i]);
+		}
+		mSpare = new Object();
+		mIndex = 0;
+	}
+
+	@Benchmark
+	public Object queueOfferAndPoll() {
+		mQueue.offer(mSpare);
+		mSpare = mQueue.poll();
+		return mSpare;
+	}
+
+	@Benchmark
+	public void queueBump() {
+		mQueue.bump(mItems[mIndex]);
+		mIndex = (mIndex + 1) % size;
+	}
+
+	@Benchmark
+	public Object stackPushAndPop() {
+		mStack.push(mSpare);
+		return mStack.pop();
+	}
+
+	@Benchmark
+	public void stackBump() {
+		mStack.bump(mItems[mIndex]);
+		mIndex = (mIndex + 1) % size;
+	}
+}
@@ -0,0 +1,69 @@
+package io.pivotal.arca.threading;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Steady state cost of each accessor holding a fixed number of requests.
+ * Every operation attaches one spare request and detaches whichever the
+ * accessor hands back, or removes a queued request and attaches it again,
+ * which is what promoting a request does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PriorityAccessorBenchmark {
+	private static final int NUM_GROUPS = 8;
+
+	@Param({ "queue", "stack", "fair", "numeric", "deadline" })
+	public String accessor;
+
+	@Param({ "16", "1024" })
+	public int size;
+
+	private PriorityAccessor mAccessor;
+	private PrioritizableRequest[] mQueued;
+	private PrioritizableRequest[] mSpare;
+	private int mIndex;
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		final PrioritizableRequest[] requests = BenchmarkRequests.newRequests(size * 2, NUM_GROUPS);
+		mAccessor = BenchmarkRequests.newAccessor(accessor);
+		mQueued = new PrioritizableRequest[size];
+		mSpare = new PrioritizableRequest[size];
+		for (int i = 0; i < size; i++) {
+			mQueued[i] = requests[i];
+			mSpare[i] = requests[size + i];
+			mAccessor.attach(mQueued[i]);
+		}
+		mIndex = 0;
+	}
+
+	@Benchmark
+	public PrioritizableRequest attachAndDetach() {
+		mAccessor.attach(mSpare[mIndex]);
+		final PrioritizableRequest request = mAccessor.detachHighestPriorityItem();
+		mSpare[mIndex] = request;
+		mIndex = (mIndex + 1) % size;
+		return request;
+	}
+
+	@Benchmark
+	public boolean removeAndAttach() {
+		final PrioritizableRequest request = mQueued[mIndex];
+		final boolean removed = mAccessor.remove(request);
+		mAccessor.attach(request);
+		mIndex = (mIndex + 1) % size;
+		return removed;
+	}
+}
@@ -0,0 +1,79 @@
+package io.pivotal.arca.threading;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Offers and polls from several threads at once, spread across the lanes,
+ * to compare how the queues hold up under contention. Only meaningful on a
+ * machine with at least as many cores as benchmark threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QueueThroughputBenchmark {
+	private static final int NUM_THREADS = 4;
+
+	private static final AuxiliaryExecutorObserver OBSERVER = new AuxiliaryExecutorObserver() {
+		@Override
+		public void onComplete(final PrioritizableRequest request) {
+		}
+
+		@Override
+		public void onCancelled(final PrioritizableRequest request) {
+		}
+	};
+
+	@Param({ "default", "striped", "workStealing" })
+	public String queue;
+
+	private BlockingQueue<Runnable> mQueue;
+
+	@State(Scope.Thread)
+	public static class Lane {
+		private static int sNext;
+
+		int accessorIndex;
+		long next;
+
+		@Setup
+		public void setUp() {
+			synchronized (Lane.class) {
+				accessorIndex = sNext++ % BenchmarkRequests.newAccessorArray().length;
+			}
+		}
+	}
+
+	@Setup
+	public void setUp() {
+		if ("striped".equals(queue)) {
+			mQueue = new StripedAuxiliaryBlockingQueue(BenchmarkRequests.newAccessorArray(), OBSERVER);
+		} else if ("workStealing".equals(queue)) {
+			mQueue = new WorkStealingBlockingQueue(BenchmarkRequests.newAccessorArray(), new PriorityAccessorFactory() {
+				@Override
+				public PriorityAccessor[] newAccessorArray() {
+					return BenchmarkRequests.newAccessorArray();
+				}
+			}, NUM_THREADS, OBSERVER);
+		} else {
+			mQueue = new AuxiliaryBlockingQueue(BenchmarkRequests.newAccessorArray(), OBSERVER);
+		}
+	}
+
+	@Benchmark
+	@Threads(NUM_THREADS)
+	public Runnable offerPoll(final Lane lane) {
+		mQueue.offer(BenchmarkRequests.newRequest(new Identifier<Long>(lane.next++), lane.accessorIndex, null));
+		return mQueue.poll();
+	}
+}
@@ -0,0 +1,58 @@
+package io.pivotal.arca.threading;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Dedup through QueuingMaps with several threads sharing a small set of
+ * identifiers. The thread whose request heads the list runs it straight
+ * away and completes it, every other request either joins the list or is
+ * cancelled because the identifier is already running.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(4)
+public class QueuingMapsBenchmark {
+
+	@Param({ "1", "16", "256" })
+	public int identifiers;
+
+	private QueuingMaps mQueuingMaps;
+	private Identifier<?>[] mIdentifiers;
+
+	@Setup
+	public void setUp() {
+		mQueuingMaps = new QueuingMaps();
+		mIdentifiers = new Identifier<?>[identifiers];
+		for (int i = 0; i < identifiers; i++) {
+			mIdentifiers[i] = new Identifier<Integer>(i);
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Cursor {
+		private int mNext;
+	}
+
+	@Benchmark
+	public PrioritizableRequest putAndExecute(final Cursor cursor) {
+		final Identifier<?> identifier = mIdentifiers[cursor.mNext++ % identifiers];
+		final PrioritizableRequest request = BenchmarkRequests.newRequest(identifier, 0, null);
+		final PrioritizableRequest queued = mQueuingMaps.put(request);
+		if (queued == null && !request.isCancelled()) {
+			mQueuingMaps.notifyExecuting(request);
+			mQueuingMaps.onComplete(identifier);
+		}
+		return queued;
+	}
+}
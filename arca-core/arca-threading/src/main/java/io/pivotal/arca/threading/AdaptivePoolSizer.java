@@ -0,0 +1,148 @@
+package io.pivotal.arca.threading;
+
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Resizes the core pool of a single executor between a lower and upper bound
+ * using additive increase and multiplicative decrease. Requests are sampled
+ * over a time window. At the end of each window the pool grows by one thread
+ * while requests wait in the queue and their latency stays close to the best
+ * latency seen. It shrinks by the backoff ratio once latency inflates past
+ * the tolerance, which is what happens when extra threads only contend for a
+ * slow network or disk. A thread that did not raise throughput is given back.
+ */
+public class AdaptivePoolSizer {
+	private static final int MIN_SAMPLES = 4;
+	private static final double MIN_THROUGHPUT_GAIN = 0.05;
+	private static final double BASELINE_DRIFT = 0.05;
+
+	private final int mMinPoolSize;
+	private final int mMaxPoolSize;
+
+	private long mWindowNanos = TimeUnit.SECONDS.toNanos(1);
+	private double mLatencyTolerance = 2.0;
+	private double mBackoffRatio = 0.75;
+	private double mWaitRatio = 0.5;
+
+	private long mWindowStart;
+	private int mNumSamples;
+	private long mTotalWaitNanos;
+	private long mTotalRunNanos;
+
+	private double mBaselineLatency;
+	private double mLastThroughput;
+	private boolean mGrewLastWindow;
+
+	public AdaptivePoolSizer(final int minPoolSize, final int maxPoolSize) {
+		if (minPoolSize <= 0 || maxPoolSize < minPoolSize)
+			throw new IllegalArgumentException("Pool size bounds must satisfy 0 < min <= max.");
+
+		mMinPoolSize = minPoolSize;
+		mMaxPoolSize = maxPoolSize;
+	}
+
+	public int getMinPoolSize() {
+		return mMinPoolSize;
+	}
+
+	public int getMaxPoolSize() {
+		return mMaxPoolSize;
+	}
+
+	public synchronized void setSampleWindow(final long window, final TimeUnit unit) {
+		mWindowNanos = unit.toNanos(window);
+	}
+
+	/*
+	 * How far average latency may rise above the baseline, as a multiple,
+	 * before the pool backs off.
+	 */
+	public synchronized void setLatencyTolerance(final double tolerance) {
+		if (tolerance < 1.0)
+			throw new IllegalArgumentException("Latency tolerance must be at least 1.0.");
+
+		mLatencyTolerance = tolerance;
+	}
+
+	public synchronized void setBackoffRatio(final double ratio) {
+		if (ratio <= 0.0 || ratio >= 1.0)
+			throw new IllegalArgumentException("Backoff ratio must be between 0.0 and 1.0.");
+
+		mBackoffRatio = ratio;
+	}
+
+	/*
+	 * The pool grows while requests spend more than this fraction of their
+	 * run time waiting in the queue.
+	 */
+	public synchronized void setWaitRatio(final double ratio) {
+		if (ratio < 0.0)
+			throw new IllegalArgumentException("Wait ratio cannot be negative.");
+
+		mWaitRatio = ratio;
+	}
+
+	public int clamp(final int poolSize) {
+		return Math.max(mMinPoolSize, Math.min(mMaxPoolSize, poolSize));
+	}
+
+	public void onRequestComplete(final ThreadPoolExecutor executor, final long waitNanos, final long runNanos) {
+		onRequestComplete(executor, waitNanos, runNanos, System.nanoTime());
+	}
+
+	synchronized void onRequestComplete(final ThreadPoolExecutor executor, final long waitNanos, final long runNanos, final long now) {
+		if (mNumSamples == 0) {
+			mWindowStart = now;
+		}
+
+		mNumSamples++;
+		mTotalWaitNanos += Math.max(waitNanos, 0);
+		mTotalRunNanos += Math.max(runNanos, 0);
+
+		if (mNumSamples >= MIN_SAMPLES && now - mWindowStart >= mWindowNanos) {
+			resize(executor, now);
+			mNumSamples = 0;
+			mTotalWaitNanos = 0;
+			mTotalRunNanos = 0;
+		}
+	}
+
+	private void resize(final ThreadPoolExecutor executor, final long now) {
+		final double latency = mTotalRunNanos / (double) mNumSamples;
+		final double wait = mTotalWaitNanos / (double) mNumSamples;
+		final double throughput = mNumSamples / (double) Math.max(now - mWindowStart, 1);
+
+		if (mBaselineLatency == 0 || latency < mBaselineLatency) {
+			mBaselineLatency = latency;
+		} else {
+			mBaselineLatency += (latency - mBaselineLatency) * BASELINE_DRIFT;
+		}
+
+		final int poolSize = executor.getCorePoolSize();
+		int newPoolSize = poolSize;
+
+		if (latency > mBaselineLatency * mLatencyTolerance) {
+			newPoolSize = (int) (poolSize * mBackoffRatio);
+		} else if (mGrewLastWindow && throughput < mLastThroughput * (1 + MIN_THROUGHPUT_GAIN)) {
+			newPoolSize = poolSize - 1;
+		} else if (wait > latency * mWaitRatio) {
+			newPoolSize = poolSize + 1;
+		}
+
+		newPoolSize = clamp(newPoolSize);
+		mGrewLastWindow = newPoolSize > poolSize;
+		mLastThroughput = throughput;
+
+		if (newPoolSize != poolSize) {
+			setPoolSize(executor, newPoolSize);
+		}
+	}
+
+	private static void setPoolSize(final ThreadPoolExecutor executor, final int poolSize) {
+		if (poolSize > executor.getMaximumPoolSize()) {
+			executor.setMaximumPoolSize(poolSize);
+		}
+		executor.setCorePoolSize(poolSize);
+	}
+}
@@ -0,0 +1,120 @@
+package io.pivotal.arca.threading;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.concurrent.TimeUnit;
+
+public class AgingSchedulingPolicy implements SchedulingPolicy {
+
+	/*
+	 * The requests queued in one lane, in arrival order. Lanes such as
+	 * stacks or fair queues do not hand out their oldest request first, so
+	 * starvation is judged from the head of this set rather than from the
+	 * lane's own peek().
+	 */
+	private static final class Lane {
+		private final LinkedHashSet<PrioritizableRequest> requests = new LinkedHashSet<PrioritizableRequest>();
+	}
+
+	private final long[] mMaxWaitNanos;
+	private final WaitTimeStatistics[] mStatistics;
+	private final Lane[] mLanes;
+
+	/*
+	 * maxWaitTimes[i] bounds how long the oldest request in accessor i may wait before
+	 * it is served ahead of every other accessor. Use Long.MAX_VALUE to opt a
+	 * lane out of aging.
+	 */
+	public AgingSchedulingPolicy(final long[] maxWaitTimes, final TimeUnit unit) {
+		if (maxWaitTimes == null)
+			throw new IllegalArgumentException("Max wait time array cannot be null.");
+
+		mMaxWaitNanos = new long[maxWaitTimes.length];
+		mStatistics = new WaitTimeStatistics[maxWaitTimes.length];
+		mLanes = new Lane[maxWaitTimes.length];
+
+		for (int i = 0; i < maxWaitTimes.length; i++) {
+			if (maxWaitTimes[i] < 0) {
+				throw new IllegalArgumentException("The max wait time provided at index " + i + " is negative!");
+			}
+			mMaxWaitNanos[i] = maxWaitTimes[i] == Long.MAX_VALUE ? Long.MAX_VALUE : unit.toNanos(maxWaitTimes[i]);
+			mStatistics[i] = new WaitTimeStatistics();
+			mLanes[i] = new Lane();
+		}
+	}
+
+	public WaitTimeStatistics getWaitTimeStatistics(final int accessorIndex) {
+		return mStatistics[accessorIndex];
+	}
+
+	@Override
+	public PrioritizableRequest getStarvedRequest(final PriorityAccessor[] accessors) {
+		final long now = System.nanoTime();
+		final int numAccessors = Math.min(accessors.length, mMaxWaitNanos.length);
+
+		PrioritizableRequest starved = null;
+		long mostOverdue = 0;
+		for (int i = 0; i < numAccessors; i++) {
+			if (mMaxWaitNanos[i] == Long.MAX_VALUE) {
+				continue;
+			}
+
+			final PrioritizableRequest request = getOldestRequest(i);
+			if (request != null) {
+				final long overdue = now - request.getQueuedTime() - mMaxWaitNanos[i];
+				if (overdue >= 0 && (starved == null || overdue > mostOverdue)) {
+					starved = request;
+					mostOverdue = overdue;
+				}
+			}
+		}
+		return starved;
+	}
+
+	@Override
+	public void onAttached(final int accessorIndex, final PrioritizableRequest request) {
+		if (accessorIndex < mLanes.length) {
+			final Lane lane = mLanes[accessorIndex];
+			synchronized (lane) {
+				lane.requests.add(request);
+			}
+		}
+	}
+
+	@Override
+	public void onDetached(final int accessorIndex, final PrioritizableRequest request) {
+		if (accessorIndex < mStatistics.length) {
+			onRemoved(accessorIndex, request);
+			mStatistics[accessorIndex].record(System.nanoTime() - request.getQueuedTime());
+		}
+	}
+
+	@Override
+	public void onRemoved(final int accessorIndex, final PrioritizableRequest request) {
+		if (accessorIndex < mLanes.length) {
+			final Lane lane = mLanes[accessorIndex];
+			synchronized (lane) {
+				lane.requests.remove(request);
+			}
+		}
+	}
+
+	/*
+	 * Cancelled requests are dropped here rather than when they are
+	 * cancelled, since the queue only discards them once it reaches them.
+	 */
+	private PrioritizableRequest getOldestRequest(final int accessorIndex) {
+		final Lane lane = mLanes[accessorIndex];
+		synchronized (lane) {
+			final Iterator<PrioritizableRequest> iterator = lane.requests.iterator();
+			while (iterator.hasNext()) {
+				final PrioritizableRequest request = iterator.next();
+				if (!request.isCancelled()) {
+					return request;
+				}
+				iterator.remove();
+			}
+			return null;
+		}
+	}
+}
@@ -1,35 +1,62 @@
 package io.pivotal.arca.threading;
 
 import java.util.AbstractQueue;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.concurrent.BlockingQueue;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
-public class AuxiliaryBlockingQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+public class AuxiliaryBlockingQueue extends AbstractQueue<Runnable> implements PrioritizableBlockingQueue {
 
 	private final AuxiliaryQueue mQueue;
+	private final AuxiliaryExecutorObserver mObserver;
+	private volatile OnEvictedListener mOnEvictedListener;
+	private volatile OnDiscardedListener mOnDiscardedListener;
+	private final List<PrioritizableRequest> mDiscarded = new ArrayList<PrioritizableRequest>();
 	private final ReentrantLock mLock = new ReentrantLock(true);
 	private final Condition mNotEmpty;
+	private final Condition mNotFull;
 	private int mCount = 0;
 
 	public AuxiliaryBlockingQueue(final PriorityAccessor[] accessors, final AuxiliaryExecutorObserver observer) {
-		mQueue = new AuxiliaryQueue(accessors, observer);
+		this(accessors, observer, null);
+	}
+
+	public AuxiliaryBlockingQueue(final PriorityAccessor[] accessors, final AuxiliaryExecutorObserver observer, final SchedulingPolicy policy) {
+		mQueue = new AuxiliaryQueue(accessors, policy);
+		mObserver = observer;
 		mNotEmpty = mLock.newCondition();
+		mNotFull = mLock.newCondition();
+	}
+
+	@Override
+	public void setOnEvictedListener(final OnEvictedListener listener) {
+		mOnEvictedListener = listener;
+	}
+
+	@Override
+	public void setOnDiscardedListener(final OnDiscardedListener listener) {
+		mOnDiscardedListener = listener;
 	}
 
 	@Override
 	public boolean offer(final Runnable e) {
 		checkNotNull(e);
+		final List<PrioritizableRequest> evicted;
 		mLock.lock();
 		try {
-			insert(e);
-			return true;
+			if (!mQueue.admits((PrioritizableRequest) e)) {
+				return false;
+			}
+			evicted = insert(e);
 		} finally {
 			mLock.unlock();
 		}
+		AuxiliaryQueue.notifyEvicted(evicted, mOnEvictedListener, mObserver);
+		return true;
 	}
 
 	@Override
@@ -44,28 +71,49 @@ public class AuxiliaryBlockingQueue extends AbstractQueue<Runnable> implements B
 
 	@Override
 	public Runnable poll() {
+		final PrioritizableRequest request;
+		final List<PrioritizableRequest> discarded;
 		mLock.lock();
 		try {
-			return extract();
+			request = extract();
+			discarded = takeDiscarded();
 		} finally {
 			mLock.unlock();
 		}
+		notifyDiscarded(discarded);
+		return request;
 	}
 
 	@Override
 	public void clear() {
+		final List<PrioritizableRequest> discarded;
 		mLock.lock();
 		try {
 			while (extract() != null)
 				;
+			discarded = takeDiscarded();
 		} finally {
 			mLock.unlock();
 		}
+		notifyDiscarded(discarded);
 	}
 
+	/*
+	 * Iterates over a copy taken under the queue lock, so it never throws
+	 * ConcurrentModificationException. Removing through the iterator
+	 * removes the request from the queue.
+	 */
 	@Override
 	public Iterator<Runnable> iterator() {
-		return null;
+		final List<Runnable> snapshot;
+		mLock.lock();
+		try {
+			snapshot = new ArrayList<Runnable>(mQueue.size());
+			mQueue.copyTo(snapshot);
+		} finally {
+			mLock.unlock();
+		}
+		return new SnapshotIterator(this, snapshot);
 	}
 
 	@Override
@@ -80,11 +128,17 @@ public class AuxiliaryBlockingQueue extends AbstractQueue<Runnable> implements B
 
 	@Override
 	public int drainTo(final Collection<? super Runnable> collection) {
+		return drainTo(collection, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public int drainTo(final Collection<? super Runnable> collection, final int maxNumberToDrain) {
 		checkNotNull(collection);
+		final List<PrioritizableRequest> discarded;
+		int numDrained = 0;
 		mLock.lock();
 		try {
-			int numDrained = 0;
-			while (mQueue.size() > 0) {
+			while (numDrained < maxNumberToDrain) {
 				final Runnable runnable = extract();
 				if (runnable == null) {
 					break;
@@ -92,102 +146,142 @@ public class AuxiliaryBlockingQueue extends AbstractQueue<Runnable> implements B
 				collection.add(runnable);
 				numDrained++;
 			}
-			// FIXME We need to signal an empty queue here.
-			return numDrained;
+			discarded = takeDiscarded();
 		} finally {
 			mLock.unlock();
 		}
+		notifyDiscarded(discarded);
+		return numDrained;
 	}
 
 	@Override
-	public int drainTo(final Collection<? super Runnable> collection, final int maxNumberToDrain) {
-		checkNotNull(collection);
+	public boolean remove(final Object object) {
+		if (!(object instanceof PrioritizableRequest)) {
+			return false;
+		}
+		final PrioritizableRequest request = (PrioritizableRequest) object;
 		mLock.lock();
 		try {
-			int numDrained = 0;
-			for (int i = 0; i < maxNumberToDrain; i++) {
-				final Runnable runnable = extract();
-				if (runnable == null) {
-					break;
-				}
-				collection.add(runnable);
-				numDrained++;
+			if (!mQueue.remove(request)) {
+				return false;
+			}
+			if (mCount > 0) {
+				mCount--;
 			}
-			return numDrained;
+			mNotFull.signalAll();
 		} finally {
 			mLock.unlock();
 		}
-	}
-
-	@Override
-	public boolean remove(final Object object) {
-		return false; // TODO need to implement
+		if (request.isCancelled()) {
+			AuxiliaryQueue.notifyDiscarded(request, mOnDiscardedListener, mObserver);
+		}
+		return true;
 	}
 
 	@Override
 	public boolean removeAll(final Collection<?> collection) {
-		return false; // TODO need to implement
+		checkNotNull(collection);
+		boolean modified = false;
+		for (final Object object : collection) {
+			modified |= remove(object);
+		}
+		return modified;
 	}
 
 	@Override
 	public boolean offer(final Runnable e, final long timeout, final TimeUnit unit) throws InterruptedException {
 		checkNotNull(e);
+		long nanos = unit.toNanos(timeout);
+		final List<PrioritizableRequest> evicted;
 		mLock.lockInterruptibly();
 		try {
-			insert(e);
-			return true;
+			while (!mQueue.admits((PrioritizableRequest) e)) {
+				if (nanos <= 0) {
+					return false;
+				}
+				nanos = mNotFull.awaitNanos(nanos);
+			}
+			evicted = insert(e);
 		} finally {
 			mLock.unlock();
 		}
+		AuxiliaryQueue.notifyEvicted(evicted, mOnEvictedListener, mObserver);
+		return true;
 	}
 
 	@Override
 	public Runnable poll(final long timeout, final TimeUnit unit) throws InterruptedException {
 		long nanos = unit.toNanos(timeout);
-		mLock.lockInterruptibly();
-		try {
-			Runnable runnable = extract();
-			while (runnable == null) {
-				if (nanos <= 0) {
-					return null;
+		for (;;) {
+			PrioritizableRequest request;
+			List<PrioritizableRequest> discarded;
+			mLock.lockInterruptibly();
+			try {
+				request = extract();
+				discarded = takeDiscarded();
+				if (request == null && discarded == null) {
+					if (nanos <= 0) {
+						return null;
+					}
+					nanos = mNotEmpty.awaitNanos(nanos);
+					continue;
 				}
-				nanos = mNotEmpty.awaitNanos(nanos);
-				runnable = extract();
+			} finally {
+				mLock.unlock();
+			}
+			notifyDiscarded(discarded);
+			if (request != null) {
+				return request;
 			}
-			return runnable;
-		} finally {
-			mLock.unlock();
 		}
 	}
 
 	@Override
 	public void put(final Runnable e) throws InterruptedException {
 		checkNotNull(e);
+		final List<PrioritizableRequest> evicted;
 		mLock.lockInterruptibly();
 		try {
-			insert(e);
+			while (!mQueue.admits((PrioritizableRequest) e)) {
+				mNotFull.await();
+			}
+			evicted = insert(e);
 		} finally {
 			mLock.unlock();
 		}
+		AuxiliaryQueue.notifyEvicted(evicted, mOnEvictedListener, mObserver);
 	}
 
 	@Override
 	public int remainingCapacity() {
-		return Integer.MAX_VALUE;
+		mLock.lock();
+		try {
+			return mQueue.remainingCapacity();
+		} finally {
+			mLock.unlock();
+		}
 	}
 
 	@Override
 	public Runnable take() throws InterruptedException {
-		mLock.lockInterruptibly();
-		try {
-			Runnable runnable = extract();
-			while (runnable == null) {
-				mNotEmpty.await();
-				runnable = extract();
+		for (;;) {
+			PrioritizableRequest request;
+			List<PrioritizableRequest> discarded;
+			mLock.lockInterruptibly();
+			try {
+				request = extract();
+				discarded = takeDiscarded();
+				if (request == null && discarded == null) {
+					mNotEmpty.await();
+					continue;
+				}
+			} finally {
+				mLock.unlock();
+			}
+			notifyDiscarded(discarded);
+			if (request != null) {
+				return request;
 			}
-			return runnable;
-		} finally {
-			mLock.unlock();
 		}
 	}
 
@@ -200,31 +294,53 @@ public class AuxiliaryBlockingQueue extends AbstractQueue<Runnable> implements B
 		}
 	}
 
-	private void insert(final Runnable r) {
-		mQueue.add((PrioritizableRequest) r);
+	private List<PrioritizableRequest> insert(final Runnable r) {
+		final List<PrioritizableRequest> evicted = mQueue.add((PrioritizableRequest) r);
 		mCount++;
 		if (mCount == 1) {
 			mNotEmpty.signal();
 		}
+		if (evicted != null) {
+			mCount = Math.max(mCount - evicted.size(), 0);
+		}
+		return evicted;
 	}
 
+	/*
+	 * Cancelled requests are set aside while the lock is held and reported
+	 * once it has been released, observers are free to call back into the
+	 * executor.
+	 */
 	private PrioritizableRequest extract() {
 		PrioritizableRequest request;
-		do {
-			request = mQueue.removeHighestPriorityRunnable();
+		while ((request = mQueue.removeHighestPriorityRunnable()) != null) {
 			if (mCount > 0) {
-				if (request != null) {
-					mCount--;
-				} else {
-					mCount = mQueue.size();
-				}
+				mCount--;
 			}
-		} while ((request == null || request.isCancelled()) && mCount > 0);
+			mNotFull.signalAll();
+			if (!request.isCancelled()) {
+				return request;
+			}
+			mDiscarded.add(request);
+		}
+		mCount = 0;
+		return null;
+	}
 
-		if (request == null) {
+	private List<PrioritizableRequest> takeDiscarded() {
+		if (mDiscarded.isEmpty()) {
 			return null;
-		} else {
-			return request.isCancelled() ? null : request;
+		}
+		final List<PrioritizableRequest> discarded = new ArrayList<PrioritizableRequest>(mDiscarded);
+		mDiscarded.clear();
+		return discarded;
+	}
+
+	private void notifyDiscarded(final List<PrioritizableRequest> discarded) {
+		if (discarded != null) {
+			for (final PrioritizableRequest request : discarded) {
+				AuxiliaryQueue.notifyDiscarded(request, mOnDiscardedListener, mObserver);
+			}
 		}
 	}
 
@@ -26,6 +26,14 @@ public interface AuxiliaryExecutor {
 		private final PriorityAccessor[] mPriorityAccessors;
 		private final AuxiliaryExecutorObserver mObserver;
 		private boolean mAllowCoreThreadTimeOut;
+		private boolean mUseStripedQueue;
+		private SchedulingPolicy mSchedulingPolicy;
+		private SerialKeySelector mSerialKeySelector;
+		private KeyLimiter mKeyLimiter;
+		private PriorityAccessorFactory mWorkStealingFactory;
+		private AdaptivePoolSizer mPoolSizer;
+		private ExecutorStatistics mStatistics;
+		private ThreadPriorityPolicy mThreadPriorityPolicy;
 
 		public Builder(final PriorityAccessor[] accessors, final AuxiliaryExecutorObserver observer) {
 			if (accessors == null)
@@ -59,11 +67,88 @@ public interface AuxiliaryExecutor {
 			return this;
 		}
 
+		public Builder useStripedQueue() {
+			mUseStripedQueue = true;
+			return this;
+		}
+
+		public Builder useWorkStealingQueue(final PriorityAccessorFactory factory) {
+			if (factory == null)
+				throw new IllegalArgumentException("Accessor factory cannot be null.");
+
+			mWorkStealingFactory = factory;
+			return this;
+		}
+
+		public Builder setPoolSizer(final AdaptivePoolSizer sizer) {
+			mPoolSizer = sizer;
+			return this;
+		}
+
+		public Builder setStatistics(final ExecutorStatistics statistics) {
+			mStatistics = statistics;
+			return this;
+		}
+
+		public Builder setThreadPriorityPolicy(final ThreadPriorityPolicy policy) {
+			mThreadPriorityPolicy = policy;
+			return this;
+		}
+
+		public Builder setSchedulingPolicy(final SchedulingPolicy policy) {
+			mSchedulingPolicy = policy;
+			return this;
+		}
+
+		public Builder setSerialKeySelector(final SerialKeySelector selector) {
+			mSerialKeySelector = selector;
+			return this;
+		}
+
+		public Builder setKeyLimiter(final KeyLimiter limiter) {
+			mKeyLimiter = limiter;
+			return this;
+		}
+
 		public AuxiliaryExecutor create() {
-			final AuxiliaryBlockingQueue queue = new AuxiliaryBlockingQueue(mPriorityAccessors, mObserver);
-			final DefaultAuxiliaryExecutor executor = new DefaultAuxiliaryExecutor(mCorePoolSize, mCorePoolSize + mAdditionalThreads, mKeepAliveTime, mTimeUnit, queue, mObserver);
+			return createScheduled();
+		}
+
+		public ScheduledAuxiliaryExecutor createScheduled() {
+			final PrioritizableBlockingQueue queue = createQueue();
+			final DefaultAuxiliaryExecutor executor = createExecutor(queue);
 			executor.allowCoreThreadTimeOut(mAllowCoreThreadTimeOut);
+			executor.setPoolSizer(mPoolSizer);
+			executor.setStatistics(mStatistics);
+			if (mThreadPriorityPolicy != null) {
+				executor.setThreadPriorityPolicy(mThreadPriorityPolicy);
+			}
+			queue.setOnEvictedListener(executor);
 			return executor;
 		}
+
+		private DefaultAuxiliaryExecutor createExecutor(final PrioritizableBlockingQueue queue) {
+			final int corePoolSize = mPoolSizer != null ? mPoolSizer.clamp(mCorePoolSize) : mCorePoolSize;
+			final int maximumPoolSize = Math.max(corePoolSize + mAdditionalThreads, mPoolSizer != null ? mPoolSizer.getMaxPoolSize() : 0);
+			final KeyLimiter limiter = mKeyLimiter != null ? mKeyLimiter : (mSerialKeySelector != null ? new KeyLimiter(mSerialKeySelector, 1) : null);
+			if (limiter != null) {
+				final KeyedAuxiliaryExecutor executor = new KeyedAuxiliaryExecutor(corePoolSize, maximumPoolSize, mKeepAliveTime, mTimeUnit, queue, mObserver, limiter);
+				queue.setOnDiscardedListener(executor);
+				return executor;
+			} else {
+				return new DefaultAuxiliaryExecutor(corePoolSize, maximumPoolSize, mKeepAliveTime, mTimeUnit, queue, mObserver);
+			}
+		}
+
+		private PrioritizableBlockingQueue createQueue() {
+			if (mWorkStealingFactory != null) {
+				final int numStripes = Math.max(mCorePoolSize + mAdditionalThreads, mPoolSizer != null ? mPoolSizer.getMaxPoolSize() : 1);
+				return new WorkStealingBlockingQueue(mPriorityAccessors, mWorkStealingFactory, numStripes, mObserver, mSchedulingPolicy);
+			} else if (mUseStripedQueue) {
+				return new StripedAuxiliaryBlockingQueue(mPriorityAccessors, mObserver, mSchedulingPolicy);
+			} else {
+				return new AuxiliaryBlockingQueue(mPriorityAccessors, mObserver, mSchedulingPolicy);
+			}
+		}
 	}
 }
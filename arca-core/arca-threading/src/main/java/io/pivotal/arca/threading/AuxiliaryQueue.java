@@ -1,17 +1,19 @@
 package io.pivotal.arca.threading;
 
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 class AuxiliaryQueue {
 
 	private final PriorityAccessor[] mPriorityAccessors;
-	private final AuxiliaryExecutorObserver mObserver;
+	private final SchedulingPolicy mPolicy;
 	private final int mNumAccessors;
 
-	public AuxiliaryQueue(final PriorityAccessor[] accessors, final AuxiliaryExecutorObserver observer) {
+	public AuxiliaryQueue(final PriorityAccessor[] accessors, final SchedulingPolicy policy) {
 		mNumAccessors = accessors.length;
 		mPriorityAccessors = new PriorityAccessor[mNumAccessors];
-		mObserver = observer;
+		mPolicy = policy;
 
 		for (int i = 0; i < mNumAccessors; i++) {
 			if (accessors[i] == null) {
@@ -21,25 +23,77 @@ class AuxiliaryQueue {
 		}
 	}
 
-	public synchronized void add(final PrioritizableRequest request) {
+	public synchronized List<PrioritizableRequest> add(final PrioritizableRequest request) {
 		final int index = request.getAccessorIndex();
+		request.markQueued();
 		mPriorityAccessors[index].attach(request);
+		final List<PrioritizableRequest> evicted = detachEvictedItems(mPriorityAccessors[index]);
+		if (mPolicy != null) {
+			notifyPolicy(mPolicy, index, request, evicted);
+		}
+		return evicted;
+	}
+
+	public synchronized boolean admits(final PrioritizableRequest request) {
+		return admits(mPriorityAccessors[request.getAccessorIndex()], request);
+	}
+
+	public synchronized int remainingCapacity() {
+		return remainingCapacity(mPriorityAccessors);
+	}
+
+	public synchronized boolean remove(final PrioritizableRequest request) {
+		final int index = request.getAccessorIndex();
+		if (index < mNumAccessors && mPriorityAccessors[index].remove(request)) {
+			if (mPolicy != null) {
+				mPolicy.onRemoved(index, request);
+			}
+			return true;
+		}
+		return false;
 	}
 
+	/*
+	 * Cancelled requests are returned as well, the caller is expected to
+	 * discard them once it no longer holds any lock.
+	 */
 	public synchronized PrioritizableRequest removeHighestPriorityRunnable() {
 		PrioritizableRequest request;
+		if (mPolicy != null && (request = detachStarved()) != null) {
+			return request;
+		}
 		for (int i = 0; i < mNumAccessors; i++) {
-			while ((request = mPriorityAccessors[i].detachHighestPriorityItem()) != null) {
-				if (!request.isCancelled()) {
-					return request;
-				} else {
-					mObserver.onCancelled(request);
-				}
+			if ((request = detach(i)) != null) {
+				return request;
 			}
 		}
 		return null;
 	}
 
+	private PrioritizableRequest detachStarved() {
+		final PrioritizableRequest request = mPolicy.getStarvedRequest(mPriorityAccessors);
+		if (request == null) {
+			return null;
+		}
+
+		final int index = request.getAccessorIndex();
+		if (!mPriorityAccessors[index].remove(request)) {
+			return null;
+		}
+		if (!request.isCancelled()) {
+			mPolicy.onDetached(index, request);
+		}
+		return request;
+	}
+
+	private PrioritizableRequest detach(final int index) {
+		final PrioritizableRequest request = mPriorityAccessors[index].detachHighestPriorityItem();
+		if (request != null && !request.isCancelled() && mPolicy != null) {
+			mPolicy.onDetached(index, request);
+		}
+		return request;
+	}
+
 	public synchronized int size() {
 		int size = 0;
 		for (int i = 0; i < mNumAccessors; i++) {
@@ -58,38 +112,95 @@ class AuxiliaryQueue {
 		return null;
 	}
 
-	// TODO Fill in the iterator.
-	public Iterator<Runnable> buildIterator() {
-		return new Iterator<Runnable>() {
-			@Override
-			public boolean hasNext() {
-				return false;
+	/* Lanes whose accessor is not an IterablePriorityAccessor are left out. */
+	public synchronized void copyTo(final Collection<? super PrioritizableRequest> collection) {
+		for (int i = 0; i < mNumAccessors; i++) {
+			if (mPriorityAccessors[i] instanceof IterablePriorityAccessor) {
+				((IterablePriorityAccessor) mPriorityAccessors[i]).copyTo(collection);
 			}
+		}
+	}
+
+	public void clear() {
+		for (int i = 0; i < mNumAccessors; i++) {
+			mPriorityAccessors[i].clear();
+		}
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
 
-			@Override
-			public Runnable next() {
-				return null;
+	static boolean admits(final PriorityAccessor accessor, final PrioritizableRequest request) {
+		return !(accessor instanceof BoundedPriorityAccessor) || ((BoundedPriorityAccessor) accessor).admits(request);
+	}
+
+	/* Lanes that never refuse a request leave the queue unbounded. */
+	static int remainingCapacity(final PriorityAccessor[] accessors) {
+		long remaining = 0;
+		for (final PriorityAccessor accessor : accessors) {
+			if (!(accessor instanceof BoundedPriorityAccessor) || ((BoundedPriorityAccessor) accessor).getPolicy() != SheddingPolicy.REJECT_NEWEST) {
+				return Integer.MAX_VALUE;
 			}
+			remaining += ((BoundedPriorityAccessor) accessor).remainingCapacity();
+		}
+		return (int) Math.min(remaining, Integer.MAX_VALUE);
+	}
 
-			@Override
-			public void remove() {
+	static List<PrioritizableRequest> detachEvictedItems(final PriorityAccessor accessor) {
+		if (!(accessor instanceof EvictingPriorityAccessor)) {
+			return null;
+		}
+
+		List<PrioritizableRequest> evicted = null;
+		PrioritizableRequest request;
+		while ((request = ((EvictingPriorityAccessor) accessor).detachEvictedItem()) != null) {
+			if (evicted == null) {
+				evicted = new ArrayList<PrioritizableRequest>(1);
 			}
-		};
+			evicted.add(request);
+		}
+		return evicted;
 	}
 
-	// TODO Fill in the "buildArray" method.
-	public Object[] buildArray() {
-		return null;
+	/*
+	 * Evicted requests are only cancelled once the lock is released, so the
+	 * policy is told about them straight away.
+	 */
+	static void notifyPolicy(final SchedulingPolicy policy, final int index, final PrioritizableRequest request, final List<PrioritizableRequest> evicted) {
+		if (evicted == null || !evicted.contains(request)) {
+			policy.onAttached(index, request);
+		}
+		if (evicted != null) {
+			for (final PrioritizableRequest r : evicted) {
+				policy.onRemoved(index, r);
+			}
+		}
 	}
 
-	public void clear() {
-		for (int i = 0; i < mNumAccessors; i++) {
-			mPriorityAccessors[i].clear();
+	/*
+	 * Must be called outside of any queue lock, the listener may enqueue a
+	 * replacement for the evicted request.
+	 */
+	static void notifyEvicted(final List<PrioritizableRequest> evicted, final PrioritizableBlockingQueue.OnEvictedListener listener, final AuxiliaryExecutorObserver observer) {
+		if (evicted == null) {
+			return;
+		}
+
+		for (final PrioritizableRequest request : evicted) {
+			request.cancel();
+			if (listener != null) {
+				listener.onEvicted(request);
+			}
+			observer.onCancelled(request);
 		}
 	}
 
-	public boolean isEmpty() {
-		return size() == 0;
+	static void notifyDiscarded(final PrioritizableRequest request, final PrioritizableBlockingQueue.OnDiscardedListener listener, final AuxiliaryExecutorObserver observer) {
+		if (listener != null) {
+			listener.onDiscarded(request);
+		}
+		observer.onCancelled(request);
 	}
 
 	public interface OnRemovedListener {
@@ -0,0 +1,110 @@
+package io.pivotal.arca.threading;
+
+import java.util.Collection;
+
+/*
+ * Caps the number of requests held by another accessor. Arrival order is
+ * tracked separately so the oldest request can be dropped no matter how the
+ * wrapped accessor orders its requests.
+ */
+public class BoundedPriorityAccessor implements EvictingPriorityAccessor, IterablePriorityAccessor {
+	private final HashedQueue<PrioritizableRequest> mArrivals = new HashedQueue<PrioritizableRequest>();
+	private final PriorityAccessor mAccessor;
+	private final SheddingPolicy mPolicy;
+	private final int mCapacity;
+
+	public BoundedPriorityAccessor(final PriorityAccessor accessor, final int capacity, final SheddingPolicy policy) {
+		if (accessor == null)
+			throw new IllegalArgumentException("Accessor cannot be null.");
+
+		if (capacity <= 0)
+			throw new IllegalArgumentException("Capacity must be greater than zero.");
+
+		if (policy == null)
+			throw new IllegalArgumentException("Shedding policy cannot be null.");
+
+		mAccessor = accessor;
+		mCapacity = capacity;
+		mPolicy = policy;
+	}
+
+	public int getCapacity() {
+		return mCapacity;
+	}
+
+	public SheddingPolicy getPolicy() {
+		return mPolicy;
+	}
+
+	public synchronized int remainingCapacity() {
+		return Math.max(mCapacity - mArrivals.size(), 0);
+	}
+
+	/* Whether a request that is not already held would be accepted. */
+	public synchronized boolean admits(final PrioritizableRequest request) {
+		return mPolicy == SheddingPolicy.DROP_OLDEST || mArrivals.size() < mCapacity || mArrivals.contains(request);
+	}
+
+	@Override
+	public synchronized void attach(final PrioritizableRequest request) {
+		if (!mArrivals.contains(request)) {
+			mArrivals.add(request);
+		}
+		mAccessor.attach(request);
+	}
+
+	@Override
+	public synchronized PrioritizableRequest detachHighestPriorityItem() {
+		final PrioritizableRequest request = mAccessor.detachHighestPriorityItem();
+		if (request != null) {
+			mArrivals.remove(request);
+		}
+		return request;
+	}
+
+	@Override
+	public synchronized PrioritizableRequest detachEvictedItem() {
+		if (mAccessor instanceof EvictingPriorityAccessor) {
+			final PrioritizableRequest request = ((EvictingPriorityAccessor) mAccessor).detachEvictedItem();
+			if (request != null) {
+				mArrivals.remove(request);
+				return request;
+			}
+		}
+		if (mArrivals.size() > mCapacity) {
+			final PrioritizableRequest request = mArrivals.poll();
+			mAccessor.remove(request);
+			return request;
+		}
+		return null;
+	}
+
+	@Override
+	public synchronized PrioritizableRequest peek() {
+		return mAccessor.peek();
+	}
+
+	@Override
+	public synchronized int size() {
+		return mAccessor.size();
+	}
+
+	@Override
+	public synchronized boolean remove(final PrioritizableRequest request) {
+		mArrivals.remove(request);
+		return mAccessor.remove(request);
+	}
+
+	@Override
+	public synchronized void clear() {
+		mArrivals.clear();
+		mAccessor.clear();
+	}
+
+	@Override
+	public synchronized void copyTo(final Collection<? super PrioritizableRequest> collection) {
+		for (final PrioritizableRequest request : mArrivals) {
+			collection.add(request);
+		}
+	}
+}
@@ -0,0 +1,6 @@
+package io.pivotal.arca.threading;
+
+public interface DeadlineObserver extends AuxiliaryExecutorObserver {
+
+	public void onDeadlineMissed(PrioritizableRequest request, long latenessNanos);
+}
@@ -0,0 +1,24 @@
+package io.pivotal.arca.threading;
+
+public class DeadlinePriorityAccessor extends HeapPriorityAccessor {
+
+	@Override
+	protected long getKey(final PrioritizableRequest request) {
+		return request.getDeadline();
+	}
+
+	/*
+	 * Deadlines are System.nanoTime() values, which may wrap, so they are
+	 * compared by their difference. Requests without a deadline go last.
+	 */
+	@Override
+	protected boolean isBefore(final long key, final long otherKey) {
+		if (otherKey == Prioritizable.NO_DEADLINE) {
+			return key != Prioritizable.NO_DEADLINE;
+		}
+		if (key == Prioritizable.NO_DEADLINE) {
+			return false;
+		}
+		return key - otherKey < 0;
+	}
+}
@@ -1,21 +1,70 @@
 package io.pivotal.arca.threading;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
-public class DefaultAuxiliaryExecutor extends ThreadPoolExecutor implements AuxiliaryExecutor {
+public class DefaultAuxiliaryExecutor extends ThreadPoolExecutor implements ScheduledAuxiliaryExecutor, PromotingAuxiliaryExecutor, PrioritizableBlockingQueue.OnEvictedListener {
+
+	/*
+	 * A full lane refuses a request once no thread is left to take it. It is
+	 * shed the same way an evicted request is, so anything waiting on it is
+	 * requeued and the observer hears it was cancelled.
+	 */
+	private static final RejectedExecutionHandler SHED_POLICY = new RejectedExecutionHandler() {
+		@Override
+		public void rejectedExecution(final Runnable r, final ThreadPoolExecutor executor) {
+			if (executor.isShutdown()) {
+				throw new RejectedExecutionException();
+			}
+			((DefaultAuxiliaryExecutor) executor).onRejected((PrioritizableRequest) r);
+		}
+	};
 
 	private final QueuingMaps mQueuingMaps = new QueuingMaps();
 
+	private final RequestScheduler mScheduler = new RequestScheduler(new RequestScheduler.OnRequestDueListener() {
+		@Override
+		public void onRequestsDue(final List<PrioritizableRequest> requests) {
+			executeAll(requests);
+		}
+	});
+
 	private final AuxiliaryExecutorObserver mObserver;
 
-	public DefaultAuxiliaryExecutor(final int corePoolSize, final int maximumPoolSize, final long keepAliveTime, final TimeUnit unit, final AuxiliaryBlockingQueue queue,
+	private volatile AdaptivePoolSizer mPoolSizer;
+	private volatile ExecutorStatistics mStatistics;
+	private volatile ThreadPriorityPolicy mThreadPriorityPolicy;
+	private final ThreadLocal<Integer> mSavedThreadPriority = new ThreadLocal<Integer>();
+
+	public DefaultAuxiliaryExecutor(final int corePoolSize, final int maximumPoolSize, final long keepAliveTime, final TimeUnit unit, final BlockingQueue<Runnable> queue,
 			final AuxiliaryExecutorObserver observer) {
-		super(corePoolSize, maximumPoolSize, keepAliveTime, unit, queue);
+		super(corePoolSize, maximumPoolSize, keepAliveTime, unit, queue, SHED_POLICY);
 		mObserver = observer;
 	}
 
+	void setPoolSizer(final AdaptivePoolSizer sizer) {
+		mPoolSizer = sizer;
+	}
+
+	void setStatistics(final ExecutorStatistics statistics) {
+		mStatistics = statistics;
+	}
+
+	public ExecutorStatistics getStatistics() {
+		return mStatistics;
+	}
+
+	void setThreadPriorityPolicy(final ThreadPriorityPolicy policy) {
+		mThreadPriorityPolicy = policy;
+		setThreadFactory(new PriorityThreadFactory(policy));
+	}
+
 	@Override
 	public void execute(final Runnable command) {
 		final PrioritizableRequest request = (PrioritizableRequest) command;
@@ -23,10 +72,79 @@ public class DefaultAuxiliaryExecutor extends ThreadPoolExecutor implements Auxi
 			return;
 		}
 
-		if (!isShutdown()) {
-			mQueuingMaps.put(request);
+		final List<PrioritizableRequest> scheduled = mScheduler.release(request.getIdentifier());
+
+		if (scheduled != null) {
+			scheduled.add(0, request);
+			executeAll(scheduled);
+		} else {
+			executeAll(Collections.singletonList(request));
+		}
+	}
+
+	/*
+	 * Every request is put into the queuing maps before any of them is
+	 * queued, so one with the same identifier as the others cannot run and
+	 * finish before the rest have joined it.
+	 */
+	private void executeAll(final List<PrioritizableRequest> requests) {
+		final List<PrioritizableRequest> pending = new ArrayList<PrioritizableRequest>(1);
+		for (final PrioritizableRequest request : requests) {
+			if (request.isCancelled()) {
+				continue;
+			}
+			if (!isShutdown()) {
+				final PrioritizableRequest queued = mQueuingMaps.put(request);
+				if (queued != null) {
+					promote(queued, request.getAccessorIndex());
+				} else {
+					pending.add(request);
+				}
+			} else {
+				pending.add(request);
+			}
+		}
+
+		for (final PrioritizableRequest request : pending) {
+			enqueue(request);
 		}
-		super.execute(request);
+	}
+
+	@Override
+	public void schedule(final Runnable command, final long delay, final TimeUnit unit) {
+		final PrioritizableRequest request = (PrioritizableRequest) command;
+		if (request.isCancelled()) {
+			return;
+		}
+
+		if (isShutdown()) {
+			throw new RejectedExecutionException();
+		}
+
+		if (delay > 0) {
+			mScheduler.schedule(request, unit.toNanos(delay));
+		} else {
+			execute(request);
+		}
+	}
+
+	@Override
+	public void promote(final Identifier<?> identifier, final int accessorIndex) {
+		mScheduler.promote(identifier, accessorIndex);
+
+		final PrioritizableRequest queued = mQueuingMaps.getQueued(identifier);
+		if (queued != null) {
+			promote(queued, accessorIndex);
+		}
+	}
+
+	@Override
+	public boolean removeScheduled(final Runnable command) {
+		return mScheduler.remove((PrioritizableRequest) command);
+	}
+
+	public int getScheduledCount() {
+		return mScheduler.size();
 	}
 
 	@Override
@@ -37,44 +155,189 @@ public class DefaultAuxiliaryExecutor extends ThreadPoolExecutor implements Auxi
 	@Override
 	public boolean remove(final Runnable task) {
 		final PrioritizableRequest request = (PrioritizableRequest) task;
-		mQueuingMaps.cancel(request);
-		return super.remove(task); // TODO need to actually make this work
+		if (mScheduler.remove(request)) {
+			return true;
+		}
+
+		final PrioritizableRequest replacement = mQueuingMaps.cancel(request);
+		final boolean removed = super.remove(task);
+		if (replacement != null) {
+			enqueue(replacement);
+		}
+		return removed;
+	}
+
+	@Override
+	public void onEvicted(final PrioritizableRequest request) {
+		final PrioritizableRequest replacement = mQueuingMaps.cancel(request);
+		if (replacement != null && !isShutdown()) {
+			enqueue(replacement);
+		}
+	}
+
+	private void onRejected(final PrioritizableRequest request) {
+		request.cancel();
+		onEvicted(request);
+		if (mObserver != null) {
+			mObserver.onCancelled(request);
+		}
 	}
 
 	@Override
 	protected final void beforeExecute(final Thread t, final Runnable r) {
 		notifyBeforeExecuteCalled(r);
+		applyThreadPriority((PrioritizableRequest) r);
+		((PrioritizableRequest) r).markStarted();
 		super.beforeExecute(t, r);
 	}
 
 	@Override
 	public void cancelAll() {
-		mQueuingMaps.cancelAll();
+		for (final PrioritizableRequest request : mScheduler.removeAll()) {
+			request.cancel();
+			if (mObserver != null) {
+				mObserver.onCancelled(request);
+			}
+		}
+
+		final List<PrioritizableRequest> cancelled = mQueuingMaps.cancelAll();
+		getQueue().removeAll(cancelled);
+	}
+
+	@Override
+	public void shutdown() {
+		cancelScheduled();
+		super.shutdown();
 	}
 
 	@Override
 	public List<Runnable> shutdownNow() {
+		cancelScheduled();
 		mQueuingMaps.cancelAll();
 		return super.shutdownNow();
 	}
 
+	private void cancelScheduled() {
+		for (final PrioritizableRequest request : mScheduler.shutdown()) {
+			request.cancel();
+		}
+	}
+
 	@Override
 	protected final void afterExecute(final Runnable r, final Throwable t) {
 		super.afterExecute(r, t);
 		final PrioritizableRequest request = (PrioritizableRequest) r;
+		request.markFinished();
+		restoreThreadPriority();
 		notifyReferenceManager(request);
+		notifyTimings(request);
+		onRequestFinished(request);
+	}
+
+	protected void onRequestFinished(final PrioritizableRequest request) {
+	}
+
+	protected void enqueue(final PrioritizableRequest request) {
+		synchronized (request) {
+			super.execute(request);
+		}
+	}
+
+	private void promote(final PrioritizableRequest request, final int accessorIndex) {
+		synchronized (request) {
+			if (accessorIndex < request.getAccessorIndex()) {
+				final BlockingQueue<Runnable> queue = getQueue();
+				if (queue.remove(request)) {
+					final int previousIndex = request.getAccessorIndex();
+					request.setAccessorIndex(accessorIndex);
+					if (!queue.offer(request)) {
+						request.setAccessorIndex(previousIndex);
+						if (!queue.offer(request)) {
+							onRejected(request);
+						}
+					}
+				} else {
+					request.setAccessorIndex(accessorIndex);
+				}
+			}
+		}
 	}
 
 	private void notifyReferenceManager(final PrioritizableRequest request) {
 		if (mObserver != null) {
 			if (!request.isCancelled()) {
 				mObserver.onComplete(request);
+				notifyDeadlineMissed(request);
 			} else {
 				mObserver.onCancelled(request);
 			}
 		}
 	}
 
+	private void notifyDeadlineMissed(final PrioritizableRequest request) {
+		if (mObserver instanceof DeadlineObserver) {
+			final long deadline = request.getDeadline();
+			if (deadline != Prioritizable.NO_DEADLINE) {
+				final long lateness = System.nanoTime() - deadline;
+				if (lateness > 0) {
+					((DeadlineObserver) mObserver).onDeadlineMissed(request, lateness);
+				}
+			}
+		}
+	}
+
+	/* A request handed straight to a new worker is counted as not having waited. */
+	private void notifyTimings(final PrioritizableRequest request) {
+		if (request.isCancelled()) {
+			return;
+		}
+
+		final long started = request.getStartedTime();
+		final long queued = request.getQueuedTime();
+		final long waitNanos = queued != PrioritizableRequest.NOT_QUEUED ? started - queued : 0;
+		final long runNanos = request.getFinishedTime() - started;
+
+		final AdaptivePoolSizer sizer = mPoolSizer;
+		if (sizer != null) {
+			sizer.onRequestComplete(this, waitNanos, runNanos);
+		}
+
+		final ExecutorStatistics statistics = mStatistics;
+		if (statistics != null) {
+			statistics.record(request.getAccessorIndex(), waitNanos, runNanos);
+		}
+
+		if (mObserver instanceof TimingObserver) {
+			((TimingObserver) mObserver).onRequestTimed(request, waitNanos, runNanos);
+		}
+	}
+
+	/*
+	 * The thread's own priority is saved first and put back afterwards, so
+	 * a priority the request changes while it runs does not leak into the
+	 * next one.
+	 */
+	private void applyThreadPriority(final PrioritizableRequest request) {
+		final ThreadPriorityPolicy policy = mThreadPriorityPolicy;
+		if (policy != null) {
+			final int previous = policy.getThreadPriority();
+			mSavedThreadPriority.set(previous);
+			final int priority = policy.getPriority(request);
+			if (priority != previous) {
+				policy.setThreadPriority(priority);
+			}
+		}
+	}
+
+	private void restoreThreadPriority() {
+		final ThreadPriorityPolicy policy = mThreadPriorityPolicy;
+		final Integer previous = mSavedThreadPriority.get();
+		if (policy != null && previous != null) {
+			mSavedThreadPriority.remove();
+			policy.setThreadPriority(previous);
+		}
+	}
+
 	private void notifyBeforeExecuteCalled(final Runnable r) {
 		final PrioritizableRequest request = (PrioritizableRequest) r;
 		if (!request.isCancelled())
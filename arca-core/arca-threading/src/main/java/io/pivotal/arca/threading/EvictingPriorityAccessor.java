@@ -0,0 +1,10 @@
+package io.pivotal.arca.threading;
+
+public interface EvictingPriorityAccessor extends PriorityAccessor {
+
+	/*
+	 * Returns a request that was pushed out by a previous attach, or null once
+	 * the accessor is back within its capacity.
+	 */
+	public PrioritizableRequest detachEvictedItem();
+}
@@ -0,0 +1,50 @@
+package io.pivotal.arca.threading;
+
+/*
+ * Queue wait and run time histograms for each accessor lane of an executor.
+ * A request is counted against the lane it ran from, which may be higher
+ * than the one it was first queued on if it was promoted.
+ */
+public class ExecutorStatistics {
+
+	private final LatencyHistogram[] mWaitTimes;
+	private final LatencyHistogram[] mRunTimes;
+
+	public ExecutorStatistics(final int numAccessors) {
+		if (numAccessors <= 0)
+			throw new IllegalArgumentException("Number of accessors must be greater than zero.");
+
+		mWaitTimes = new LatencyHistogram[numAccessors];
+		mRunTimes = new LatencyHistogram[numAccessors];
+
+		for (int i = 0; i < numAccessors; i++) {
+			mWaitTimes[i] = new LatencyHistogram();
+			mRunTimes[i] = new LatencyHistogram();
+		}
+	}
+
+	public int getNumAccessors() {
+		return mWaitTimes.length;
+	}
+
+	public LatencyHistogram getWaitTimes(final int accessorIndex) {
+		return mWaitTimes[accessorIndex];
+	}
+
+	public LatencyHistogram getRunTimes(final int accessorIndex) {
+		return mRunTimes[accessorIndex];
+	}
+
+	public void record(final int accessorIndex, final long waitNanos, final long runNanos) {
+		final int index = Math.min(accessorIndex, mWaitTimes.length - 1);
+		mWaitTimes[index].record(waitNanos);
+		mRunTimes[index].record(runNanos);
+	}
+
+	public void reset() {
+		for (int i = 0; i < mWaitTimes.length; i++) {
+			mWaitTimes[i].reset();
+			mRunTimes[i].reset();
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package io.pivotal.arca.threading;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * Round-robins between the groups of the requests it holds, keeping FIFO
+ * order within each group. A group with a weight of n is served up to n
+ * requests per turn.
+ */
+public class FairQueuePriorityAccessor implements IterablePriorityAccessor {
+	private static final int DEFAULT_WEIGHT = 1;
+
+	private final Map<Object, Group> mGroups = new HashMap<Object, Group>();
+	private final Map<PrioritizableRequest, Group> mMembership = new HashMap<PrioritizableRequest, Group>();
+	private final Map<Object, Integer> mWeights = new HashMap<Object, Integer>();
+	private final ArrayDeque<Group> mRotation = new ArrayDeque<Group>();
+
+	private static class Group {
+		final Object key;
+		final HashedQueue<PrioritizableRequest> queue = new HashedQueue<PrioritizableRequest>();
+		int credit;
+
+		Group(final Object key) {
+			this.key = key;
+		}
+	}
+
+	public synchronized void setWeight(final Object group, final int weight) {
+		if (weight <= 0)
+			throw new IllegalArgumentException("Weight must be greater than zero.");
+
+		mWeights.put(group, weight);
+	}
+
+	@Override
+	public synchronized void attach(final PrioritizableRequest request) {
+		Group group = mMembership.get(request);
+		if (group == null) {
+			final Object key = request.getGroup();
+			group = mGroups.get(key);
+			if (group == null) {
+				group = new Group(key);
+				mGroups.put(key, group);
+			}
+			mMembership.put(request, group);
+		}
+
+		if (group.queue.isEmpty()) {
+			group.credit = getWeight(group.key);
+			mRotation.addLast(group);
+		}
+		group.queue.add(request);
+	}
+
+	@Override
+	public synchronized PrioritizableRequest detachHighestPriorityItem() {
+		final Group group = mRotation.peekFirst();
+		if (group == null) {
+			return null;
+		}
+
+		final PrioritizableRequest request = group.queue.poll();
+		mMembership.remove(request);
+
+		if (group.queue.isEmpty()) {
+			mRotation.pollFirst();
+			mGroups.remove(group.key);
+		} else if (--group.credit <= 0) {
+			group.credit = getWeight(group.key);
+			mRotation.addLast(mRotation.pollFirst());
+		}
+		return request;
+	}
+
+	@Override
+	public synchronized PrioritizableRequest peek() {
+		final Group group = mRotation.peekFirst();
+		return group != null ? group.queue.peek() : null;
+	}
+
+	@Override
+	public synchronized int size() {
+		return mMembership.size();
+	}
+
+	@Override
+	public synchronized boolean remove(final PrioritizableRequest request) {
+		final Group group = mMembership.remove(request);
+		if (group == null) {
+			return false;
+		}
+
+		group.queue.remove(request);
+		if (group.queue.isEmpty()) {
+			mRotation.remove(group);
+			mGroups.remove(group.key);
+		}
+		return true;
+	}
+
+	@Override
+	public synchronized void clear() {
+		mGroups.clear();
+		mMembership.clear();
+		mRotation.clear();
+	}
+
+	@Override
+	public synchronized void copyTo(final Collection<? super PrioritizableRequest> collection) {
+		collection.addAll(mMembership.keySet());
+	}
+
+	private int getWeight(final Object key) {
+		final Integer weight = mWeights.get(key);
+		return weight != null ? weight : DEFAULT_WEIGHT;
+	}
+}
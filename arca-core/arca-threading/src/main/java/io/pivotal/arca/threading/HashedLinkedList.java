@@ -0,0 +1,271 @@
+package io.pivotal.arca.threading;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/*
+ * Doubly linked list with a hash index, shared by HashedQueue and
+ * HashedStack. Each node is both a list entry and a hash bucket entry, so
+ * finding, moving or unlinking an element takes a single lookup. Unlinked
+ * nodes are kept on a small free list, adding and removing elements at a
+ * steady size does not allocate. Not thread safe, callers synchronize.
+ */
+class HashedLinkedList<T> implements Iterable<T> {
+	private static final int DEFAULT_CAPACITY = 16;
+	private static final int MAX_POOLED_NODES = 64;
+
+	private static final class Node<T> {
+		private T data;
+		private int hash;
+		private Node<T> next;
+		private Node<T> previous;
+		private Node<T> bucketNext;
+	}
+
+	private Node<T>[] mBuckets = newBuckets(DEFAULT_CAPACITY);
+	private Node<T> mHead;
+	private Node<T> mTail;
+	private int mSize;
+
+	private Node<T> mPool;
+	private int mPoolSize;
+
+	public int size() {
+		return mSize;
+	}
+
+	public boolean isEmpty() {
+		return mHead == null;
+	}
+
+	public boolean contains(final Object object) {
+		return find(object) != null;
+	}
+
+	public T peekFirst() {
+		return mHead != null ? mHead.data : null;
+	}
+
+	public T peekLast() {
+		return mTail != null ? mTail.data : null;
+	}
+
+	/* Appends the element, or moves it to the end if it is already present. */
+	public void addLast(final T e) {
+		final Node<T> node = find(e);
+		if (node != null) {
+			moveToLast(node);
+		} else {
+			linkLast(insert(e));
+		}
+	}
+
+	/* Moves the element to the end if it is present. */
+	public boolean bump(final T e) {
+		final Node<T> node = find(e);
+		if (node == null) {
+			return false;
+		}
+		moveToLast(node);
+		return true;
+	}
+
+	public boolean remove(final Object object) {
+		final Node<T> node = find(object);
+		if (node == null) {
+			return false;
+		}
+		unlink(node);
+		release(node);
+		return true;
+	}
+
+	public T removeFirst() {
+		final Node<T> node = mHead;
+		if (node == null) {
+			return null;
+		}
+		final T data = node.data;
+		unlink(node);
+		release(node);
+		return data;
+	}
+
+	public T removeLast() {
+		final Node<T> node = mTail;
+		if (node == null) {
+			return null;
+		}
+		final T data = node.data;
+		unlink(node);
+		release(node);
+		return data;
+	}
+
+	public void clear() {
+		Arrays.fill(mBuckets, null);
+		mHead = null;
+		mTail = null;
+		mSize = 0;
+	}
+
+	public Object[] toArray() {
+		final Object[] dataArray = new Object[mSize];
+		int i = 0;
+		for (Node<T> node = mHead; node != null; node = node.next) {
+			dataArray[i++] = node.data;
+		}
+		return dataArray;
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+		return new Iterator<T>() {
+			private Node<T> current = mHead;
+
+			@Override
+			public boolean hasNext() {
+				return current != null;
+			}
+
+			@Override
+			public T next() {
+				if (current == null) {
+					throw new NoSuchElementException("No more elements inside of the iterator.");
+				}
+
+				final T data = current.data;
+				current = current.next;
+				return data;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	private Node<T> find(final Object object) {
+		final int hash = hash(object);
+		Node<T> node = mBuckets[hash & (mBuckets.length - 1)];
+		while (node != null) {
+			if (node.hash == hash && (node.data == object || (object != null && object.equals(node.data)))) {
+				return node;
+			}
+			node = node.bucketNext;
+		}
+		return null;
+	}
+
+	private Node<T> insert(final T e) {
+		if (mSize >= mBuckets.length - (mBuckets.length >>> 2)) {
+			resize(mBuckets.length << 1);
+		}
+
+		final Node<T> node = obtain();
+		node.data = e;
+		node.hash = hash(e);
+
+		final int index = node.hash & (mBuckets.length - 1);
+		node.bucketNext = mBuckets[index];
+		mBuckets[index] = node;
+		mSize++;
+		return node;
+	}
+
+	private void unlink(final Node<T> node) {
+		final int index = node.hash & (mBuckets.length - 1);
+		Node<T> current = mBuckets[index];
+		if (current == node) {
+			mBuckets[index] = node.bucketNext;
+		} else {
+			while (current.bucketNext != node) {
+				current = current.bucketNext;
+			}
+			current.bucketNext = node.bucketNext;
+		}
+		unlinkFromList(node);
+		mSize--;
+	}
+
+	private void moveToLast(final Node<T> node) {
+		if (node != mTail) {
+			unlinkFromList(node);
+			linkLast(node);
+		}
+	}
+
+	private void linkLast(final Node<T> node) {
+		node.next = null;
+		node.previous = mTail;
+		if (mTail == null) {
+			mHead = node;
+		} else {
+			mTail.next = node;
+		}
+		mTail = node;
+	}
+
+	private void unlinkFromList(final Node<T> node) {
+		final Node<T> previous = node.previous;
+		final Node<T> next = node.next;
+
+		if (previous != null) {
+			previous.next = next;
+		} else {
+			mHead = next;
+		}
+
+		if (next != null) {
+			next.previous = previous;
+		} else {
+			mTail = previous;
+		}
+
+		node.next = null;
+		node.previous = null;
+	}
+
+	private void resize(final int capacity) {
+		final Node<T>[] buckets = newBuckets(capacity);
+		for (Node<T> node = mHead; node != null; node = node.next) {
+			final int index = node.hash & (capacity - 1);
+			node.bucketNext = buckets[index];
+			buckets[index] = node;
+		}
+		mBuckets = buckets;
+	}
+
+	private Node<T> obtain() {
+		final Node<T> node = mPool;
+		if (node == null) {
+			return new Node<T>();
+		}
+		mPool = node.next;
+		node.next = null;
+		mPoolSize--;
+		return node;
+	}
+
+	private void release(final Node<T> node) {
+		node.data = null;
+		node.bucketNext = null;
+		if (mPoolSize < MAX_POOLED_NODES) {
+			node.next = mPool;
+			mPool = node;
+			mPoolSize++;
+		}
+	}
+
+	private static int hash(final Object object) {
+		final int hash = object != null ? object.hashCode() : 0;
+		return hash ^ (hash >>> 16);
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static <T> Node<T>[] newBuckets(final int capacity) {
+		return new Node[capacity];
+	}
+}
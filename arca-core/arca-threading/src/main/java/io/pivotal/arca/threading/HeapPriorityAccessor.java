@@ -0,0 +1,225 @@
+package io.pivotal.arca.threading;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public abstract class HeapPriorityAccessor implements IterablePriorityAccessor {
+	private final Map<PrioritizableRequest, Entry> mEntryMap = new HashMap<PrioritizableRequest, Entry>();
+	private final Map<Identifier<?>, List<Entry>> mIdentifierMap = new HashMap<Identifier<?>, List<Entry>>();
+	private Entry[] mHeap = new Entry[16];
+	private int mSize = 0;
+	private long mSequence = 0;
+
+	private static class Entry {
+		final PrioritizableRequest request;
+		final Identifier<?> identifier;
+		long key;
+		long sequence;
+		int index;
+
+		Entry(final PrioritizableRequest request) {
+			this.request = request;
+			this.identifier = request.getIdentifier();
+		}
+
+	}
+
+	protected abstract long getKey(PrioritizableRequest request);
+
+	/*
+	 * Orders two keys, lowest first. Subclasses whose keys can wrap around,
+	 * such as System.nanoTime() values, override this.
+	 */
+	protected boolean isBefore(final long key, final long otherKey) {
+		return key < otherKey;
+	}
+
+	@Override
+	public synchronized void attach(final PrioritizableRequest request) {
+		Entry entry = mEntryMap.get(request);
+		if (entry == null) {
+			entry = new Entry(request);
+			entry.key = getKey(request);
+			entry.sequence = mSequence++;
+			entry.index = mSize;
+			ensureCapacity();
+			mHeap[mSize++] = entry;
+			mEntryMap.put(request, entry);
+			addToIdentifierMap(entry);
+			siftUp(entry.index);
+		} else {
+			update(entry, getKey(request));
+		}
+	}
+
+	@Override
+	public synchronized PrioritizableRequest detachHighestPriorityItem() {
+		if (mSize == 0) {
+			return null;
+		}
+		final Entry entry = mHeap[0];
+		removeAt(0);
+		return entry.request;
+	}
+
+	@Override
+	public synchronized PrioritizableRequest peek() {
+		return mSize == 0 ? null : mHeap[0].request;
+	}
+
+	@Override
+	public synchronized int size() {
+		return mSize;
+	}
+
+	@Override
+	public synchronized boolean remove(final PrioritizableRequest request) {
+		final Entry entry = mEntryMap.get(request);
+		if (entry == null) {
+			return false;
+		}
+		removeAt(entry.index);
+		return true;
+	}
+
+	@Override
+	public synchronized void clear() {
+		for (int i = 0; i < mSize; i++) {
+			mHeap[i] = null;
+		}
+		mSize = 0;
+		mEntryMap.clear();
+		mIdentifierMap.clear();
+	}
+
+	@Override
+	public synchronized void copyTo(final Collection<? super PrioritizableRequest> collection) {
+		for (int i = 0; i < mSize; i++) {
+			collection.add(mHeap[i].request);
+		}
+	}
+
+	public synchronized boolean contains(final Identifier<?> identifier) {
+		return mIdentifierMap.containsKey(identifier);
+	}
+
+	protected synchronized List<PrioritizableRequest> getRequests(final Identifier<?> identifier) {
+		final List<Entry> entries = mIdentifierMap.get(identifier);
+		final List<PrioritizableRequest> requests = new ArrayList<PrioritizableRequest>();
+		if (entries != null) {
+			for (final Entry entry : entries) {
+				requests.add(entry.request);
+			}
+		}
+		return requests;
+	}
+
+	protected synchronized boolean update(final Identifier<?> identifier) {
+		final List<Entry> entries = mIdentifierMap.get(identifier);
+		if (entries == null) {
+			return false;
+		}
+		for (final Entry entry : entries) {
+			update(entry, getKey(entry.request));
+		}
+		return true;
+	}
+
+	private void update(final Entry entry, final long key) {
+		entry.key = key;
+		siftUp(entry.index);
+		siftDown(entry.index);
+	}
+
+	private void addToIdentifierMap(final Entry entry) {
+		List<Entry> entries = mIdentifierMap.get(entry.identifier);
+		if (entries == null) {
+			entries = new ArrayList<Entry>(1);
+			mIdentifierMap.put(entry.identifier, entries);
+		}
+		entries.add(entry);
+	}
+
+	private void removeFromIdentifierMap(final Entry entry) {
+		final List<Entry> entries = mIdentifierMap.get(entry.identifier);
+		if (entries != null) {
+			entries.remove(entry);
+			if (entries.isEmpty()) {
+				mIdentifierMap.remove(entry.identifier);
+			}
+		}
+	}
+
+	private void removeAt(final int index) {
+		final Entry removed = mHeap[index];
+		mEntryMap.remove(removed.request);
+		removeFromIdentifierMap(removed);
+
+		final int last = --mSize;
+		if (index != last) {
+			final Entry moved = mHeap[last];
+			mHeap[index] = moved;
+			moved.index = index;
+			mHeap[last] = null;
+			siftUp(index);
+			siftDown(moved.index);
+		} else {
+			mHeap[last] = null;
+		}
+	}
+
+	private void siftUp(int index) {
+		final Entry entry = mHeap[index];
+		while (index > 0) {
+			final int parent = (index - 1) >>> 1;
+			final Entry parentEntry = mHeap[parent];
+			if (!isBefore(entry, parentEntry)) {
+				break;
+			}
+			mHeap[index] = parentEntry;
+			parentEntry.index = index;
+			index = parent;
+		}
+		mHeap[index] = entry;
+		entry.index = index;
+	}
+
+	private void siftDown(int index) {
+		final Entry entry = mHeap[index];
+		final int half = mSize >>> 1;
+		while (index < half) {
+			int child = (index << 1) + 1;
+			final int right = child + 1;
+			if (right < mSize && isBefore(mHeap[right], mHeap[child])) {
+				child = right;
+			}
+			final Entry childEntry = mHeap[child];
+			if (!isBefore(childEntry, entry)) {
+				break;
+			}
+			mHeap[index] = childEntry;
+			childEntry.index = index;
+			index = child;
+		}
+		mHeap[index] = entry;
+		entry.index = index;
+	}
+
+	private boolean isBefore(final Entry entry, final Entry other) {
+		if (entry.key != other.key) {
+			return isBefore(entry.key, other.key);
+		}
+		return entry.sequence < other.sequence;
+	}
+
+	private void ensureCapacity() {
+		if (mSize == mHeap.length) {
+			final Entry[] heap = new Entry[mHeap.length * 2];
+			System.arraycopy(mHeap, 0, heap, 0, mSize);
+			mHeap = heap;
+		}
+	}
+}
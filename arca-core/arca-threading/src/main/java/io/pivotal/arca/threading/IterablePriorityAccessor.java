@@ -0,0 +1,12 @@
+package io.pivotal.arca.threading;
+
+import java.util.Collection;
+
+public interface IterablePriorityAccessor extends PriorityAccessor {
+
+	/*
+	 * Adds every held request to the collection. The order is whatever is
+	 * cheapest for the accessor, not necessarily the order they are detached.
+	 */
+	public void copyTo(Collection<? super PrioritizableRequest> collection);
+}
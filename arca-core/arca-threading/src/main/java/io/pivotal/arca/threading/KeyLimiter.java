@@ -0,0 +1,54 @@
+package io.pivotal.arca.threading;
+
+/*
+ * Limits requests that share a key, such as the host they talk to. Each key
+ * may have at most maxInFlight requests queued or running, and optionally
+ * draws one token per request from its own bucket. Requests over the limit
+ * are held outside the queue, so workers move on to other keys.
+ */
+public class KeyLimiter {
+	private final KeySelector mSelector;
+	private final int mMaxInFlight;
+
+	private double mPermitsPerSecond;
+	private int mBurst;
+
+	public KeyLimiter(final KeySelector selector, final int maxInFlight) {
+		if (selector == null)
+			throw new IllegalArgumentException("Key selector cannot be null.");
+
+		if (maxInFlight <= 0)
+			throw new IllegalArgumentException("Max in flight must be greater than zero.");
+
+		mSelector = selector;
+		mMaxInFlight = maxInFlight;
+	}
+
+	public KeyLimiter setRate(final double permitsPerSecond, final int burst) {
+		if (permitsPerSecond <= 0)
+			throw new IllegalArgumentException("Rate must be greater than zero.");
+
+		if (burst <= 0)
+			throw new IllegalArgumentException("Burst must be greater than zero.");
+
+		mPermitsPerSecond = permitsPerSecond;
+		mBurst = burst;
+		return this;
+	}
+
+	public KeySelector getSelector() {
+		return mSelector;
+	}
+
+	public int getMaxInFlight() {
+		return mMaxInFlight;
+	}
+
+	public boolean isRateLimited() {
+		return mPermitsPerSecond > 0;
+	}
+
+	TokenBucket newTokenBucket(final long now) {
+		return isRateLimited() ? new TokenBucket(mPermitsPerSecond, mBurst, now) : null;
+	}
+}
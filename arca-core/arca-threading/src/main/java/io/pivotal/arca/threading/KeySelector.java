@@ -0,0 +1,10 @@
+package io.pivotal.arca.threading;
+
+public interface KeySelector {
+
+	/*
+	 * A null key leaves the request unrestricted. The key must not change
+	 * while the request is in the executor.
+	 */
+	public Object getKey(PrioritizableRequest request);
+}
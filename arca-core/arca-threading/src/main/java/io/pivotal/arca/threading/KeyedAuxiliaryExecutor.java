@@ -0,0 +1,222 @@
+package io.pivotal.arca.threading;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class KeyedAuxiliaryExecutor extends DefaultAuxiliaryExecutor implements PrioritizableBlockingQueue.OnDiscardedListener {
+
+	/*
+	 * Each active key owns at most maxInFlight requests in the underlying
+	 * queue or on a worker. Everything else with that key waits here until
+	 * one of them finishes or, when rate limited, a token is available. Held
+	 * requests are released highest priority lane first, in arrival order
+	 * within a lane. A SerialKeySelector promises per key order, so its
+	 * requests are released in arrival order whatever their lane.
+	 */
+	private final Map<Object, Lane> mLanes = new HashMap<Object, Lane>();
+
+	private final KeySelector mSelector;
+	private final KeyLimiter mLimiter;
+	private final boolean mSerial;
+
+	private final RequestScheduler mWakeUps = new RequestScheduler(new RequestScheduler.OnRequestDueListener() {
+		@Override
+		public void onRequestsDue(final List<PrioritizableRequest> requests) {
+			for (final PrioritizableRequest request : requests) {
+				dispatch(mSelector.getKey(request), request);
+			}
+		}
+	});
+
+	public KeyedAuxiliaryExecutor(final int corePoolSize, final int maximumPoolSize, final long keepAliveTime, final TimeUnit unit, final BlockingQueue<Runnable> queue,
+			final AuxiliaryExecutorObserver observer, final SerialKeySelector selector) {
+		this(corePoolSize, maximumPoolSize, keepAliveTime, unit, queue, observer, new KeyLimiter(selector, 1));
+	}
+
+	public KeyedAuxiliaryExecutor(final int corePoolSize, final int maximumPoolSize, final long keepAliveTime, final TimeUnit unit, final BlockingQueue<Runnable> queue,
+			final AuxiliaryExecutorObserver observer, final KeyLimiter limiter) {
+		super(corePoolSize, maximumPoolSize, keepAliveTime, unit, queue, observer);
+
+		if (limiter == null)
+			throw new IllegalArgumentException("Key limiter cannot be null.");
+
+		mSelector = limiter.getSelector();
+		mLimiter = limiter;
+		mSerial = mSelector instanceof SerialKeySelector;
+	}
+
+	@Override
+	public boolean remove(final Runnable task) {
+		final PrioritizableRequest request = (PrioritizableRequest) task;
+		final boolean held = removeFromLane(request);
+		return super.remove(task) || held;
+	}
+
+	@Override
+	public void onEvicted(final PrioritizableRequest request) {
+		super.onEvicted(request);
+		onRequestFinished(request);
+	}
+
+	@Override
+	public void onDiscarded(final PrioritizableRequest request) {
+		onRequestFinished(request);
+	}
+
+	@Override
+	public void shutdown() {
+		mWakeUps.shutdown();
+		super.shutdown();
+	}
+
+	@Override
+	public List<Runnable> shutdownNow() {
+		mWakeUps.shutdown();
+		return super.shutdownNow();
+	}
+
+	@Override
+	protected void enqueue(final PrioritizableRequest request) {
+		final Object key = mSelector.getKey(request);
+		if (key != null) {
+			synchronized (mLanes) {
+				Lane lane = mLanes.get(key);
+				if (lane == null) {
+					lane = new Lane(mLimiter.newTokenBucket(System.nanoTime()));
+					mLanes.put(key, lane);
+				}
+				if (!lane.mHeld.isEmpty() || !tryAcquire(lane, request)) {
+					lane.mHeld.add(request);
+					return;
+				}
+			}
+		}
+		super.enqueue(request);
+	}
+
+	@Override
+	protected void onRequestFinished(final PrioritizableRequest request) {
+		final Object key = mSelector.getKey(request);
+		if (key == null) {
+			return;
+		}
+
+		synchronized (mLanes) {
+			final Lane lane = mLanes.get(key);
+			if (lane == null) {
+				return;
+			}
+			lane.mInFlight--;
+		}
+
+		dispatch(key, request);
+	}
+
+	/*
+	 * An idle lane is dropped once its bucket has refilled, a new lane would
+	 * start with a full bucket anyway. Until then a wake up is scheduled for
+	 * the moment it is full, so lanes for keys that are not used again do
+	 * not pile up.
+	 */
+	private void dispatch(final Object key, final PrioritizableRequest trigger) {
+		final List<PrioritizableRequest> next = new ArrayList<PrioritizableRequest>(1);
+		synchronized (mLanes) {
+			final Lane lane = mLanes.get(key);
+			if (lane == null) {
+				return;
+			}
+
+			PrioritizableRequest request;
+			while ((request = peekNextRequest(lane.mHeld)) != null && tryAcquire(lane, request)) {
+				lane.mHeld.remove(request);
+				next.add(request);
+			}
+
+			if (lane.mHeld.isEmpty() && lane.mInFlight == 0) {
+				final long now = System.nanoTime();
+				if (lane.mBucket == null || lane.mBucket.isFull(now)) {
+					mLanes.remove(key);
+				} else if (!isShutdown()) {
+					mWakeUps.schedule(trigger, lane.mBucket.getNanosUntilFull(now));
+				}
+			}
+		}
+
+		for (final PrioritizableRequest request : next) {
+			super.enqueue(request);
+		}
+	}
+
+	/*
+	 * Must be called while holding the lanes lock. A request held back only
+	 * by the rate limit schedules a wake up for when the next token is due.
+	 */
+	private boolean tryAcquire(final Lane lane, final PrioritizableRequest request) {
+		if (lane.mInFlight >= mLimiter.getMaxInFlight()) {
+			return false;
+		}
+
+		if (lane.mBucket != null) {
+			final long now = System.nanoTime();
+			if (!lane.mBucket.tryAcquire(now)) {
+				if (!isShutdown()) {
+					mWakeUps.schedule(request, lane.mBucket.getNanosUntilAvailable(now));
+				}
+				return false;
+			}
+		}
+
+		lane.mInFlight++;
+		return true;
+	}
+
+	int getLaneCount() {
+		synchronized (mLanes) {
+			return mLanes.size();
+		}
+	}
+
+	/*
+	 * Read at dispatch time rather than kept sorted, since a held request
+	 * can still be promoted to a higher lane by a duplicate.
+	 */
+	private PrioritizableRequest peekNextRequest(final List<PrioritizableRequest> held) {
+		if (mSerial) {
+			return held.isEmpty() ? null : held.get(0);
+		}
+
+		PrioritizableRequest highest = null;
+		for (final PrioritizableRequest request : held) {
+			if (highest == null || request.getAccessorIndex() < highest.getAccessorIndex()) {
+				highest = request;
+			}
+		}
+		return highest;
+	}
+
+	private boolean removeFromLane(final PrioritizableRequest request) {
+		final Object key = mSelector.getKey(request);
+		if (key == null) {
+			return false;
+		}
+
+		synchronized (mLanes) {
+			final Lane lane = mLanes.get(key);
+			return lane != null && lane.mHeld.remove(request);
+		}
+	}
+
+	private static final class Lane {
+		private final List<PrioritizableRequest> mHeld = new ArrayList<PrioritizableRequest>(2);
+		private final TokenBucket mBucket;
+		private int mInFlight;
+
+		Lane(final TokenBucket bucket) {
+			mBucket = bucket;
+		}
+	}
+}
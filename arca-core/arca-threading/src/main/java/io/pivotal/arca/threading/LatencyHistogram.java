@@ -0,0 +1,86 @@
+package io.pivotal.arca.threading;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Counts durations in power of two buckets, so recording is a couple of
+ * atomic increments and never allocates. Percentiles are reported as the
+ * upper bound of the bucket they fall in, i.e. to within a factor of two.
+ */
+public class LatencyHistogram {
+	private static final int NUM_BUCKETS = 64;
+
+	private final AtomicLongArray mBuckets = new AtomicLongArray(NUM_BUCKETS);
+	private final AtomicLong mCount = new AtomicLong();
+	private final AtomicLong mTotalNanos = new AtomicLong();
+	private final AtomicLong mMaxNanos = new AtomicLong();
+
+	public void record(final long nanos) {
+		final long value = Math.max(nanos, 0);
+		mBuckets.incrementAndGet(getBucket(value));
+		mCount.incrementAndGet();
+		mTotalNanos.addAndGet(value);
+
+		long max;
+		while (value > (max = mMaxNanos.get()) && !mMaxNanos.compareAndSet(max, value))
+			;
+	}
+
+	public long getCount() {
+		return mCount.get();
+	}
+
+	public long getMean(final TimeUnit unit) {
+		final long count = mCount.get();
+		return count == 0 ? 0 : unit.convert(mTotalNanos.get() / count, TimeUnit.NANOSECONDS);
+	}
+
+	public long getMax(final TimeUnit unit) {
+		return unit.convert(mMaxNanos.get(), TimeUnit.NANOSECONDS);
+	}
+
+	/* Percentile is given as a fraction, e.g. 0.99 for the 99th percentile. */
+	public long getPercentile(final double percentile, final TimeUnit unit) {
+		if (percentile < 0 || percentile > 1)
+			throw new IllegalArgumentException("Percentile must be between 0 and 1.");
+
+		final long[] buckets = new long[NUM_BUCKETS];
+		long count = 0;
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			buckets[i] = mBuckets.get(i);
+			count += buckets[i];
+		}
+		if (count == 0) {
+			return 0;
+		}
+
+		final long rank = Math.max((long) Math.ceil(percentile * count), 1);
+		long seen = 0;
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			seen += buckets[i];
+			if (seen >= rank) {
+				return unit.convert(Math.min(getUpperBound(i), mMaxNanos.get()), TimeUnit.NANOSECONDS);
+			}
+		}
+		return getMax(unit);
+	}
+
+	public void reset() {
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			mBuckets.set(i, 0);
+		}
+		mCount.set(0);
+		mTotalNanos.set(0);
+		mMaxNanos.set(0);
+	}
+
+	private static int getBucket(final long nanos) {
+		return Math.min(NUM_BUCKETS - Long.numberOfLeadingZeros(nanos), NUM_BUCKETS - 1);
+	}
+
+	private static long getUpperBound(final int bucket) {
+		return bucket >= NUM_BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+	}
+}
@@ -0,0 +1,16 @@
+package io.pivotal.arca.threading;
+
+public class NumericPriorityAccessor extends HeapPriorityAccessor {
+
+	@Override
+	protected long getKey(final PrioritizableRequest request) {
+		return request.getPriorityValue();
+	}
+
+	public synchronized boolean reprioritize(final Identifier<?> identifier, final long priorityValue) {
+		for (final PrioritizableRequest request : getRequests(identifier)) {
+			request.getPrioritizable().setPriorityValue(priorityValue);
+		}
+		return update(identifier);
+	}
+}
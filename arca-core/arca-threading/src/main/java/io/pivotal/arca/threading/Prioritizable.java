@@ -1,13 +1,66 @@
 package io.pivotal.arca.threading;
 
+import java.util.concurrent.TimeUnit;
+
 public abstract class Prioritizable {
+	public static final long NO_DEADLINE = Long.MAX_VALUE;
+
+	/*
+	 * Deadlines are compared by difference, which only holds while they lie
+	 * less than 2^63 nanoseconds apart, so longer delays are capped.
+	 */
+	private static final long MAX_DELAY_NANOS = Long.MAX_VALUE >> 2;
+
 	private volatile boolean mIsCancelled = false;
 	private volatile boolean mCancelable = true;
+	private volatile long mDeadline = NO_DEADLINE;
+	private volatile long mPriorityValue = 0;
+	private volatile Object mGroup;
 
 	public abstract Identifier<?> getIdentifier();
 
 	public abstract void execute();
 
+	/*
+	 * Deadlines are absolute System.nanoTime() values.
+	 */
+	public long getDeadline() {
+		return mDeadline;
+	}
+
+	public void setDeadline(final long deadline) {
+		mDeadline = deadline;
+	}
+
+	public void setDeadline(final long delay, final TimeUnit unit) {
+		final long nanos = Math.max(Math.min(unit.toNanos(delay), MAX_DELAY_NANOS), -MAX_DELAY_NANOS);
+		final long deadline = System.nanoTime() + nanos;
+		mDeadline = deadline != NO_DEADLINE ? deadline : deadline - 1;
+	}
+
+	/*
+	 * Lower values run first when used with a NumericPriorityAccessor.
+	 */
+	public long getPriorityValue() {
+		return mPriorityValue;
+	}
+
+	public void setPriorityValue(final long priorityValue) {
+		mPriorityValue = priorityValue;
+	}
+
+	/*
+	 * Requests sharing a group are served round-robin against other groups
+	 * when used with a FairQueuePriorityAccessor.
+	 */
+	public Object getGroup() {
+		return mGroup;
+	}
+
+	public void setGroup(final Object group) {
+		mGroup = group;
+	}
+
 	final synchronized boolean isCancelled() {
 		return mIsCancelled;
 	}
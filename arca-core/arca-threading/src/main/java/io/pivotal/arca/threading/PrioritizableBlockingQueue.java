@@ -0,0 +1,22 @@
+package io.pivotal.arca.threading;
+
+import java.util.concurrent.BlockingQueue;
+
+public interface PrioritizableBlockingQueue extends BlockingQueue<Runnable> {
+
+	public void setOnEvictedListener(OnEvictedListener listener);
+
+	public void setOnDiscardedListener(OnDiscardedListener listener);
+
+	public interface OnEvictedListener {
+		public void onEvicted(PrioritizableRequest request);
+	}
+
+	/*
+	 * Called when a cancelled request leaves the queue without being handed
+	 * to a worker, either because it was removed or because it was skipped.
+	 */
+	public interface OnDiscardedListener {
+		public void onDiscarded(PrioritizableRequest request);
+	}
+}
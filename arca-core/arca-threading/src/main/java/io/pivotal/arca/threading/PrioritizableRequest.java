@@ -2,7 +2,13 @@ package io.pivotal.arca.threading;
 
 public class PrioritizableRequest implements Runnable {
 
-	private final int mAccessorIndex;
+	/* Queued time of a request that was handed straight to a worker. */
+	public static final long NOT_QUEUED = Long.MIN_VALUE;
+
+	private volatile int mAccessorIndex;
+	private volatile long mQueuedTime = NOT_QUEUED;
+	private volatile long mStartedTime;
+	private volatile long mFinishedTime;
 	private final Prioritizable mPrioritizable;
 
 	public PrioritizableRequest(final Prioritizable prioritizable, final int accessorIndex) {
@@ -17,6 +23,36 @@ public class PrioritizableRequest implements Runnable {
 		return mAccessorIndex;
 	}
 
+	void setAccessorIndex(final int accessorIndex) {
+		mAccessorIndex = accessorIndex;
+	}
+
+	public long getQueuedTime() {
+		return mQueuedTime;
+	}
+
+	void markQueued() {
+		if (mQueuedTime == NOT_QUEUED) {
+			mQueuedTime = System.nanoTime();
+		}
+	}
+
+	public long getStartedTime() {
+		return mStartedTime;
+	}
+
+	void markStarted() {
+		mStartedTime = System.nanoTime();
+	}
+
+	public long getFinishedTime() {
+		return mFinishedTime;
+	}
+
+	void markFinished() {
+		mFinishedTime = System.nanoTime();
+	}
+
 	public Prioritizable getPrioritizable() {
 		return mPrioritizable;
 	}
@@ -33,6 +69,18 @@ public class PrioritizableRequest implements Runnable {
 		return mPrioritizable.isCancelled();
 	}
 
+	public long getDeadline() {
+		return mPrioritizable.getDeadline();
+	}
+
+	public long getPriorityValue() {
+		return mPrioritizable.getPriorityValue();
+	}
+
+	public Object getGroup() {
+		return mPrioritizable.getGroup();
+	}
+
 	public Identifier<?> getIdentifier() {
 		return mPrioritizable.getIdentifier();
 	}
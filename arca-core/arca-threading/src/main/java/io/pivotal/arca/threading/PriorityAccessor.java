@@ -10,8 +10,7 @@ public interface PriorityAccessor {
 
 	public int size();
 
-	public void clear();
+	public boolean remove(PrioritizableRequest request);
 
-	// TODO: Need to create a public void remove(PrioritizableRequest request)
-	// method or else AuxiliaryExecutor's remove method will not work.
+	public void clear();
 }
@@ -0,0 +1,6 @@
+package io.pivotal.arca.threading;
+
+public interface PriorityAccessorFactory {
+
+	public PriorityAccessor[] newAccessorArray();
+}
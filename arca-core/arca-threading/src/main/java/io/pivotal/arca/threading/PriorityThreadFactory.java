@@ -0,0 +1,29 @@
+package io.pivotal.arca.threading;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/*
+ * Starts each worker at the policy's pool priority. The priority has to be
+ * applied from the worker itself, so the worker's runnable is wrapped.
+ */
+class PriorityThreadFactory implements ThreadFactory {
+
+	private final ThreadFactory mFactory = Executors.defaultThreadFactory();
+	private final ThreadPriorityPolicy mPolicy;
+
+	public PriorityThreadFactory(final ThreadPriorityPolicy policy) {
+		mPolicy = policy;
+	}
+
+	@Override
+	public Thread newThread(final Runnable runnable) {
+		return mFactory.newThread(new Runnable() {
+			@Override
+			public void run() {
+				mPolicy.setThreadPriority(mPolicy.getPoolPriority());
+				runnable.run();
+			}
+		});
+	}
+}
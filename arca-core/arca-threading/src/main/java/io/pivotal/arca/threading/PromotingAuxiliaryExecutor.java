@@ -0,0 +1,11 @@
+package io.pivotal.arca.threading;
+
+public interface PromotingAuxiliaryExecutor extends AuxiliaryExecutor {
+
+	/*
+	 * Moves the request waiting with the identifier up to the given lane
+	 * without executing another one. A request scheduled for later keeps
+	 * its delay and is released into the new lane once it is due.
+	 */
+	public void promote(Identifier<?> identifier, int accessorIndex);
+}
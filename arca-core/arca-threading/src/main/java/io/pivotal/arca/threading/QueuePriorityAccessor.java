@@ -1,6 +1,8 @@
 package io.pivotal.arca.threading;
 
-public class QueuePriorityAccessor implements PriorityAccessor {
+import java.util.Collection;
+
+public class QueuePriorityAccessor implements IterablePriorityAccessor {
 	private final HashedQueue<PrioritizableRequest> mQueue = new HashedQueue<PrioritizableRequest>();
 
 	@Override
@@ -23,8 +25,22 @@ public class QueuePriorityAccessor implements PriorityAccessor {
 		return mQueue.peek();
 	}
 
+	@Override
+	public boolean remove(final PrioritizableRequest request) {
+		return mQueue.remove(request);
+	}
+
 	@Override
 	public void clear() {
 		mQueue.clear();
 	}
+
+	@Override
+	public void copyTo(final Collection<? super PrioritizableRequest> collection) {
+		synchronized (mQueue) {
+			for (final PrioritizableRequest request : mQueue) {
+				collection.add(request);
+			}
+		}
+	}
 }
@@ -1,77 +1,194 @@
 package io.pivotal.arca.threading;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class QueuingMaps {
 
-	private final Set<Identifier<?>> mRunningRequests = Collections.newSetFromMap(new ConcurrentHashMap<Identifier<?>, Boolean>());
-	private final Map<Identifier<?>, List<PrioritizableRequest>> mRequestListeners = new ConcurrentHashMap<Identifier<?>, List<PrioritizableRequest>>();
+	/*
+	 * All bookkeeping for one identifier lives in a single entry and is
+	 * guarded by that entry's monitor, so requests for different identifiers
+	 * never contend. An entry is retired once it is neither running nor
+	 * holding requests; a thread that finds a retired entry looks it up again.
+	 */
+	private static final class Entry {
+		private final List<PrioritizableRequest> requests = new ArrayList<PrioritizableRequest>(2);
+		private boolean running;
+		private boolean retired;
+	}
+
+	private final ConcurrentMap<Identifier<?>, Entry> mEntries = new ConcurrentHashMap<Identifier<?>, Entry>();
 
-	public synchronized void put(final PrioritizableRequest request) {
+	/*
+	 * The first request in each list is the one sitting in the queue. Every
+	 * other request with the same identifier waits on it instead of being
+	 * queued again.
+	 */
+	public PrioritizableRequest put(final PrioritizableRequest request) {
 		final Identifier<?> identifier = request.getIdentifier();
 
-		if (mRunningRequests.contains(identifier)) {
-			request.cancel();
-			return;
+		while (true) {
+			final Entry entry = obtainEntry(identifier);
+			synchronized (entry) {
+				if (entry.retired) {
+					continue;
+				}
+
+				if (entry.running) {
+					request.cancel();
+					return null;
+				}
+
+				final List<PrioritizableRequest> list = entry.requests;
+				if (list.isEmpty() || list.get(0).isCancelled()) {
+					list.add(0, request);
+					return null;
+				} else {
+					list.add(request);
+					return list.get(0);
+				}
+			}
 		}
+	}
+
+	/* The request sitting in the queue for the identifier, if there is one. */
+	public PrioritizableRequest getQueued(final Identifier<?> identifier) {
+		while (true) {
+			final Entry entry = mEntries.get(identifier);
+			if (entry == null) {
+				return null;
+			}
+			synchronized (entry) {
+				if (entry.retired) {
+					continue;
+				}
 
-		List<PrioritizableRequest> list = mRequestListeners.get(identifier);
-		if (list == null) {
-			list = new ArrayList<PrioritizableRequest>();
-			mRequestListeners.put(identifier, list);
+				if (entry.running || entry.requests.isEmpty() || entry.requests.get(0).isCancelled()) {
+					return null;
+				}
+				return entry.requests.get(0);
+			}
 		}
-		list.add(request);
 	}
 
-	public synchronized void onComplete(final Identifier<?> request) {
-		mRunningRequests.remove(request);
+	public void onComplete(final Identifier<?> request) {
+		while (true) {
+			final Entry entry = mEntries.get(request);
+			if (entry == null) {
+				return;
+			}
+			synchronized (entry) {
+				if (entry.retired) {
+					continue;
+				}
+
+				entry.running = false;
+				retireIfUnused(request, entry);
+				return;
+			}
+		}
 	}
 
-	public synchronized void notifyExecuting(final PrioritizableRequest request) {
+	public void notifyExecuting(final PrioritizableRequest request) {
 		final Identifier<?> identifier = request.getIdentifier();
 
-		if (mRunningRequests.contains(identifier)) {
-			request.cancel();
-		} else {
-			mRunningRequests.add(identifier);
-			final List<PrioritizableRequest> prioritizables = mRequestListeners.remove(identifier);
-			if (prioritizables != null) {
-				for (final PrioritizableRequest r : prioritizables) {
-					if (r != request)
-						r.cancel();
+		while (true) {
+			final Entry entry = obtainEntry(identifier);
+			synchronized (entry) {
+				if (entry.retired) {
+					continue;
 				}
+
+				// cancelled as a duplicate since the executor checked
+				if (request.isCancelled()) {
+					retireIfUnused(identifier, entry);
+					return;
+				}
+
+				if (entry.running) {
+					request.cancel();
+				} else {
+					entry.running = true;
+					for (final PrioritizableRequest r : entry.requests) {
+						if (r != request)
+							r.cancel();
+					}
+					entry.requests.clear();
+				}
+				return;
 			}
 		}
 	}
 
-	public synchronized boolean cancel(final PrioritizableRequest request) {
+	public PrioritizableRequest cancel(final PrioritizableRequest request) {
 		final Identifier<?> identifier = request.getIdentifier();
-		final List<PrioritizableRequest> list = mRequestListeners.get(identifier);
-		if (list != null) {
-			list.remove(request);
-			if (list.size() == 0)
-				mRequestListeners.remove(identifier);
+
+		while (true) {
+			final Entry entry = mEntries.get(identifier);
+			if (entry == null) {
+				request.cancel();
+				return null;
+			}
+			synchronized (entry) {
+				if (entry.retired) {
+					continue;
+				}
+
+				final List<PrioritizableRequest> list = entry.requests;
+				PrioritizableRequest replacement = null;
+				final boolean isQueued = !list.isEmpty() && list.get(0) == request;
+				list.remove(request);
+				if (isQueued && !list.isEmpty()) {
+					replacement = removeHighestPriorityRequest(list);
+					list.add(0, replacement);
+				}
+				retireIfUnused(identifier, entry);
+				request.cancel();
+				return replacement;
+			}
 		}
-		request.cancel();
-		return mRunningRequests.contains(identifier);
 	}
 
-	public synchronized void cancelAll() {
+	public List<PrioritizableRequest> cancelAll() {
 		final List<PrioritizableRequest> requestList = new ArrayList<PrioritizableRequest>();
-		for (final Entry<Identifier<?>, List<PrioritizableRequest>> entry : mRequestListeners.entrySet()) {
-			for (final PrioritizableRequest request : entry.getValue()) {
-				requestList.add(request);
+		for (final Entry entry : mEntries.values()) {
+			synchronized (entry) {
+				requestList.addAll(entry.requests);
 			}
 		}
 
 		for (final PrioritizableRequest request : requestList) {
 			cancel(request);
 		}
+		return requestList;
+	}
+
+	private Entry obtainEntry(final Identifier<?> identifier) {
+		final Entry entry = mEntries.get(identifier);
+		if (entry != null) {
+			return entry;
+		}
+		final Entry created = new Entry();
+		final Entry existing = mEntries.putIfAbsent(identifier, created);
+		return existing != null ? existing : created;
+	}
+
+	private void retireIfUnused(final Identifier<?> identifier, final Entry entry) {
+		if (!entry.running && entry.requests.isEmpty()) {
+			entry.retired = true;
+			mEntries.remove(identifier, entry);
+		}
+	}
+
+	private static PrioritizableRequest removeHighestPriorityRequest(final List<PrioritizableRequest> list) {
+		int index = 0;
+		for (int i = 1; i < list.size(); i++) {
+			if (list.get(i).getAccessorIndex() < list.get(index).getAccessorIndex()) {
+				index = i;
+			}
+		}
+		return list.remove(index);
 	}
 }
@@ -0,0 +1,226 @@
+package io.pivotal.arca.threading;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Delay heap behind ScheduledAuxiliaryExecutor. There is one entry per
+ * identifier, so a request scheduled again before it is due joins the entry
+ * already waiting instead of adding another timer. A single thread sleeps
+ * until the earliest entry is due and hands its requests to the listener. It
+ * is started on demand and exits once the heap is empty.
+ */
+class RequestScheduler implements Runnable {
+
+	private final PriorityQueue<Entry> mHeap = new PriorityQueue<Entry>();
+	private final Map<Identifier<?>, Entry> mEntries = new HashMap<Identifier<?>, Entry>();
+	private final ReentrantLock mLock = new ReentrantLock();
+	private final Condition mChanged = mLock.newCondition();
+	private final OnRequestDueListener mListener;
+
+	private Thread mThread;
+	private long mSequence;
+	private boolean mShutdown;
+
+	public RequestScheduler(final OnRequestDueListener listener) {
+		mListener = listener;
+	}
+
+	public void schedule(final PrioritizableRequest request, final long delayNanos) {
+		final long dueTime = System.nanoTime() + delayNanos;
+		final Identifier<?> identifier = request.getIdentifier();
+
+		mLock.lock();
+		try {
+			if (mShutdown) {
+				return;
+			}
+
+			Entry entry = mEntries.get(identifier);
+			if (entry == null) {
+				entry = new Entry(identifier, dueTime, mSequence++);
+				mEntries.put(identifier, entry);
+				mHeap.add(entry);
+			} else if (dueTime - entry.mDueTime < 0) {
+				mHeap.remove(entry);
+				entry.mDueTime = dueTime;
+				mHeap.add(entry);
+			}
+			entry.mRequests.add(request);
+
+			if (mHeap.peek() == entry) {
+				mChanged.signal();
+			}
+			if (mThread == null) {
+				mThread = new Thread(this, "RequestScheduler");
+				mThread.setDaemon(true);
+				mThread.start();
+			}
+		} finally {
+			mLock.unlock();
+		}
+	}
+
+	/*
+	 * Takes the requests waiting on an identifier out of the heap, so they
+	 * can be executed alongside a request for the same data.
+	 */
+	public List<PrioritizableRequest> release(final Identifier<?> identifier) {
+		mLock.lock();
+		try {
+			if (mEntries.isEmpty()) {
+				return null;
+			}
+			final Entry entry = mEntries.remove(identifier);
+			if (entry == null) {
+				return null;
+			}
+			mHeap.remove(entry);
+			return entry.mRequests;
+		} finally {
+			mLock.unlock();
+		}
+	}
+
+	/*
+	 * Moves the requests waiting on an identifier up to a lane. They stay
+	 * in the heap until they are due.
+	 */
+	public void promote(final Identifier<?> identifier, final int accessorIndex) {
+		mLock.lock();
+		try {
+			final Entry entry = mEntries.get(identifier);
+			if (entry == null) {
+				return;
+			}
+			for (final PrioritizableRequest request : entry.mRequests) {
+				if (accessorIndex < request.getAccessorIndex()) {
+					request.setAccessorIndex(accessorIndex);
+				}
+			}
+		} finally {
+			mLock.unlock();
+		}
+	}
+
+	public boolean remove(final PrioritizableRequest request) {
+		mLock.lock();
+		try {
+			final Entry entry = mEntries.get(request.getIdentifier());
+			if (entry == null || !entry.mRequests.remove(request)) {
+				return false;
+			}
+			if (entry.mRequests.isEmpty()) {
+				mEntries.remove(entry.mIdentifier);
+				mHeap.remove(entry);
+			}
+			return true;
+		} finally {
+			mLock.unlock();
+		}
+	}
+
+	public List<PrioritizableRequest> removeAll() {
+		mLock.lock();
+		try {
+			final List<PrioritizableRequest> requests = new ArrayList<PrioritizableRequest>();
+			for (final Entry entry : mHeap) {
+				requests.addAll(entry.mRequests);
+			}
+			mHeap.clear();
+			mEntries.clear();
+			return requests;
+		} finally {
+			mLock.unlock();
+		}
+	}
+
+	public List<PrioritizableRequest> shutdown() {
+		mLock.lock();
+		try {
+			mShutdown = true;
+			mChanged.signal();
+			return removeAll();
+		} finally {
+			mLock.unlock();
+		}
+	}
+
+	public int size() {
+		mLock.lock();
+		try {
+			int size = 0;
+			for (final Entry entry : mHeap) {
+				size += entry.mRequests.size();
+			}
+			return size;
+		} finally {
+			mLock.unlock();
+		}
+	}
+
+	@Override
+	public void run() {
+		for (;;) {
+			final List<PrioritizableRequest> due;
+
+			mLock.lock();
+			try {
+				final Entry entry = mHeap.peek();
+				if (entry == null || mShutdown) {
+					mThread = null;
+					return;
+				}
+
+				final long delay = entry.mDueTime - System.nanoTime();
+				if (delay > 0) {
+					mChanged.awaitNanos(delay);
+					continue;
+				}
+
+				mHeap.poll();
+				mEntries.remove(entry.mIdentifier);
+				due = entry.mRequests;
+			} catch (final InterruptedException e) {
+				mThread = null;
+				return;
+			} finally {
+				mLock.unlock();
+			}
+
+			mListener.onRequestsDue(due);
+		}
+	}
+
+	/* Requests that come due together share an identifier. */
+	public interface OnRequestDueListener {
+		public void onRequestsDue(List<PrioritizableRequest> requests);
+	}
+
+	private static final class Entry implements Comparable<Entry> {
+		private final List<PrioritizableRequest> mRequests = new ArrayList<PrioritizableRequest>(1);
+		private final Identifier<?> mIdentifier;
+		private final long mSequence;
+		private long mDueTime;
+
+		Entry(final Identifier<?> identifier, final long dueTime, final long sequence) {
+			mIdentifier = identifier;
+			mDueTime = dueTime;
+			mSequence = sequence;
+		}
+
+		@Override
+		public int compareTo(final Entry other) {
+			final long difference = mDueTime - other.mDueTime;
+			if (difference != 0) {
+				return difference < 0 ? -1 : 1;
+			}
+			return mSequence < other.mSequence ? -1 : (mSequence == other.mSequence ? 0 : 1);
+		}
+	}
+}
@@ -0,0 +1,19 @@
+package io.pivotal.arca.threading;
+
+import java.util.concurrent.TimeUnit;
+
+public interface ScheduledAuxiliaryExecutor extends AuxiliaryExecutor {
+
+	/*
+	 * Holds the request back until the delay has passed, then executes it in
+	 * its priority lane. Requests scheduled with the identifier of one that is
+	 * still waiting are released together with it, at the earlier time.
+	 */
+	public void schedule(Runnable command, long delay, TimeUnit unit);
+
+	/*
+	 * Takes the request out of the scheduler if it is still waiting out its
+	 * delay. Returns false once it has been released.
+	 */
+	public boolean removeScheduled(Runnable command);
+}
@@ -0,0 +1,17 @@
+package io.pivotal.arca.threading;
+
+public interface SchedulingPolicy {
+
+	/*
+	 * Returns the request that has waited past its lane's limit, or null if
+	 * none has. The queue detaches this exact request, since a lane's own
+	 * order may not reach it.
+	 */
+	public PrioritizableRequest getStarvedRequest(PriorityAccessor[] accessors);
+
+	public void onAttached(int accessorIndex, PrioritizableRequest request);
+
+	public void onDetached(int accessorIndex, PrioritizableRequest request);
+
+	public void onRemoved(int accessorIndex, PrioritizableRequest request);
+}
@@ -0,0 +1,19 @@
+package io.pivotal.arca.threading;
+
+public interface SerialKeySelector extends KeySelector {
+
+	public static final SerialKeySelector GROUP = new SerialKeySelector() {
+		@Override
+		public Object getKey(final PrioritizableRequest request) {
+			return request.getGroup();
+		}
+	};
+
+	/*
+	 * Requests with the same key run one at a time in the order they were
+	 * executed. A null key leaves the request unordered. The key must not
+	 * change while the request is in the executor.
+	 */
+	@Override
+	public Object getKey(PrioritizableRequest request);
+}
@@ -0,0 +1,10 @@
+package io.pivotal.arca.threading;
+
+public enum SheddingPolicy {
+
+	/* Refuse new requests while the lane is full. */
+	REJECT_NEWEST,
+
+	/* Accept new requests and cancel whichever request arrived first. */
+	DROP_OLDEST
+}
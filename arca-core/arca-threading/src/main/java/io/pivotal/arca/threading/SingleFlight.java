@@ -0,0 +1,280 @@
+package io.pivotal.arca.threading;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Runs one piece of work per key and hands its result to every caller that
+ * asked for the same key while it was in flight. Keys are spread over a
+ * number of independently locked stripes, callbacks are always made once
+ * the stripe lock has been released. A completed result can optionally be
+ * kept for a while and handed straight to late callers.
+ */
+public class SingleFlight<K, R> {
+	private static final int DEFAULT_NUM_STRIPES = 16;
+
+	public enum JoinResult {
+		STARTED, JOINED, ANSWERED
+	}
+
+	public interface Callback<R> {
+		public void onComplete(R result);
+
+		public void onCancelled();
+
+		/* A cancelled callback no longer keeps its flight alive. */
+		public boolean isCancelled();
+	}
+
+	public interface OnFlightCancelledListener<K> {
+		public void onFlightCancelled(K key);
+	}
+
+	private final Stripe<K, R>[] mStripes;
+
+	private volatile long mRetentionNanos;
+	private volatile OnFlightCancelledListener<K> mListener;
+
+	public SingleFlight() {
+		this(DEFAULT_NUM_STRIPES);
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public SingleFlight(final int numStripes) {
+		if (numStripes <= 0)
+			throw new IllegalArgumentException("Number of stripes must be greater than zero.");
+
+		mStripes = new Stripe[numStripes];
+		for (int i = 0; i < numStripes; i++) {
+			mStripes[i] = new Stripe<K, R>();
+		}
+	}
+
+	public void setRetention(final long retention, final TimeUnit unit) {
+		mRetentionNanos = unit.toNanos(retention);
+	}
+
+	public void setOnFlightCancelledListener(final OnFlightCancelledListener<K> listener) {
+		mListener = listener;
+	}
+
+	public JoinResult join(final K key, final Callback<R> callback) {
+		final Stripe<K, R> stripe = getStripe(key);
+		final R retained;
+
+		synchronized (stripe) {
+			Flight<R> flight = stripe.mFlights.get(key);
+			if (flight != null && flight.mCompleted) {
+				if (flight.mExpiry - System.nanoTime() > 0) {
+					retained = flight.mResult;
+				} else {
+					stripe.mFlights.remove(key);
+					flight = null;
+					retained = null;
+				}
+			} else {
+				retained = null;
+			}
+
+			if (flight == null) {
+				flight = new Flight<R>();
+				flight.mCallbacks.add(callback);
+				flight.mRunner = callback;
+				stripe.mFlights.put(key, flight);
+				return JoinResult.STARTED;
+			} else if (!flight.mCompleted) {
+				flight.mCallbacks.add(callback);
+				return JoinResult.JOINED;
+			}
+		}
+
+		callback.onComplete(retained);
+		return JoinResult.ANSWERED;
+	}
+
+	/*
+	 * Joins the flight for the key only if one is running. Returns false,
+	 * without starting a flight, otherwise.
+	 */
+	public boolean attach(final K key, final Callback<R> callback) {
+		final Stripe<K, R> stripe = getStripe(key);
+		synchronized (stripe) {
+			final Flight<R> flight = stripe.mFlights.get(key);
+			if (flight == null || flight.mCompleted) {
+				return false;
+			}
+			flight.mCallbacks.add(callback);
+			return true;
+		}
+	}
+
+	/*
+	 * The flight is cancelled once every remaining callback has left or been
+	 * cancelled. Returns true in that case.
+	 */
+	public boolean leave(final K key, final Callback<R> callback) {
+		final Stripe<K, R> stripe = getStripe(key);
+		final List<Callback<R>> cancelled;
+
+		synchronized (stripe) {
+			final Flight<R> flight = stripe.mFlights.get(key);
+			if (flight == null || flight.mCompleted || !flight.mCallbacks.remove(callback)) {
+				return false;
+			}
+			cancelled = removeIfAbandoned(stripe, key, flight);
+		}
+
+		return notifyCancelled(key, cancelled);
+	}
+
+	/*
+	 * Called when the callback that was running a flight is cancelled. The
+	 * first callback still waiting on the flight takes over and is returned,
+	 * so it can be run in its place. When none is left the flight is
+	 * cancelled. Returns null if the callback was not running the flight.
+	 */
+	public Callback<R> handOver(final K key, final Callback<R> runner) {
+		final Stripe<K, R> stripe = getStripe(key);
+		final List<Callback<R>> cancelled;
+
+		synchronized (stripe) {
+			final Flight<R> flight = stripe.mFlights.get(key);
+			if (flight == null || flight.mCompleted || flight.mRunner != runner) {
+				return null;
+			}
+			for (final Callback<R> callback : flight.mCallbacks) {
+				if (!callback.isCancelled()) {
+					flight.mRunner = callback;
+					return callback;
+				}
+			}
+			stripe.mFlights.remove(key);
+			cancelled = flight.mCallbacks;
+		}
+
+		notifyCancelled(key, cancelled);
+		return null;
+	}
+
+	public boolean complete(final K key, final R result) {
+		final Stripe<K, R> stripe = getStripe(key);
+		final List<Callback<R>> callbacks;
+
+		synchronized (stripe) {
+			final Flight<R> flight = stripe.mFlights.get(key);
+			if (flight == null || flight.mCompleted) {
+				return false;
+			}
+
+			callbacks = flight.mCallbacks;
+			moveToFront(callbacks, flight.mRunner);
+			final long retention = mRetentionNanos;
+			if (retention > 0) {
+				final long now = System.nanoTime();
+				removeExpired(stripe, now);
+				flight.mCallbacks = null;
+				flight.mRunner = null;
+				flight.mCompleted = true;
+				flight.mResult = result;
+				flight.mExpiry = now + retention;
+			} else {
+				stripe.mFlights.remove(key);
+			}
+		}
+
+		for (final Callback<R> callback : callbacks) {
+			callback.onComplete(result);
+		}
+		return true;
+	}
+
+	public boolean isInFlight(final K key) {
+		final Stripe<K, R> stripe = getStripe(key);
+		synchronized (stripe) {
+			final Flight<R> flight = stripe.mFlights.get(key);
+			return flight != null && !flight.mCompleted;
+		}
+	}
+
+	public int size() {
+		int size = 0;
+		for (final Stripe<K, R> stripe : mStripes) {
+			synchronized (stripe) {
+				for (final Flight<R> flight : stripe.mFlights.values()) {
+					if (!flight.mCompleted) {
+						size++;
+					}
+				}
+			}
+		}
+		return size;
+	}
+
+	private Stripe<K, R> getStripe(final K key) {
+		final int hash = key != null ? key.hashCode() : 0;
+		final int spread = hash ^ (hash >>> 16);
+		return mStripes[(spread & 0x7fffffff) % mStripes.length];
+	}
+
+	private boolean notifyCancelled(final K key, final List<Callback<R>> cancelled) {
+		if (cancelled == null) {
+			return false;
+		}
+
+		for (final Callback<R> callback : cancelled) {
+			callback.onCancelled();
+		}
+
+		final OnFlightCancelledListener<K> listener = mListener;
+		if (listener != null) {
+			listener.onFlightCancelled(key);
+		}
+		return true;
+	}
+
+	/*
+	 * The runner hears first, so a follow-up flight it starts, such as a
+	 * retry, is already there for the others to attach to.
+	 */
+	private static <R> void moveToFront(final List<Callback<R>> callbacks, final Callback<R> runner) {
+		if (runner != null && callbacks.remove(runner)) {
+			callbacks.add(0, runner);
+		}
+	}
+
+	private static <K, R> List<Callback<R>> removeIfAbandoned(final Stripe<K, R> stripe, final K key, final Flight<R> flight) {
+		for (final Callback<R> callback : flight.mCallbacks) {
+			if (!callback.isCancelled()) {
+				return null;
+			}
+		}
+		stripe.mFlights.remove(key);
+		return flight.mCallbacks;
+	}
+
+	private static <K, R> void removeExpired(final Stripe<K, R> stripe, final long now) {
+		final Iterator<Flight<R>> iterator = stripe.mFlights.values().iterator();
+		while (iterator.hasNext()) {
+			final Flight<R> flight = iterator.next();
+			if (flight.mCompleted && flight.mExpiry - now <= 0) {
+				iterator.remove();
+			}
+		}
+	}
+
+	private static final class Stripe<K, R> {
+		private final Map<K, Flight<R>> mFlights = new HashMap<K, Flight<R>>();
+	}
+
+	private static final class Flight<R> {
+		private List<Callback<R>> mCallbacks = new ArrayList<Callback<R>>(1);
+		private Callback<R> mRunner;
+		private boolean mCompleted;
+		private R mResult;
+		private long mExpiry;
+	}
+}
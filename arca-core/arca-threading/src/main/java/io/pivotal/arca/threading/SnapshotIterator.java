@@ -0,0 +1,45 @@
+package io.pivotal.arca.threading;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+
+/*
+ * Iterates over a copy of a queue's requests. Removing through the iterator
+ * removes the request from the queue it was copied from.
+ */
+class SnapshotIterator implements Iterator<Runnable> {
+	private final Queue<Runnable> mQueue;
+	private final List<Runnable> mSnapshot;
+	private int mIndex;
+	private Runnable mLast;
+
+	SnapshotIterator(final Queue<Runnable> queue, final List<Runnable> snapshot) {
+		mQueue = queue;
+		mSnapshot = snapshot;
+	}
+
+	@Override
+	public boolean hasNext() {
+		return mIndex < mSnapshot.size();
+	}
+
+	@Override
+	public Runnable next() {
+		if (mIndex >= mSnapshot.size()) {
+			throw new NoSuchElementException();
+		}
+		mLast = mSnapshot.get(mIndex++);
+		return mLast;
+	}
+
+	@Override
+	public void remove() {
+		if (mLast == null) {
+			throw new IllegalStateException();
+		}
+		mQueue.remove(mLast);
+		mLast = null;
+	}
+}
@@ -1,7 +1,27 @@
 package io.pivotal.arca.threading;
 
-public class StackPriorityAccessor implements PriorityAccessor {
+import java.util.Collection;
+
+public class StackPriorityAccessor implements EvictingPriorityAccessor, IterablePriorityAccessor {
+	public static final int UNBOUNDED = Integer.MAX_VALUE;
+
 	private final HashedStack<PrioritizableRequest> mStack = new HashedStack<PrioritizableRequest>();
+	private final int mCapacity;
+
+	public StackPriorityAccessor() {
+		this(UNBOUNDED);
+	}
+
+	public StackPriorityAccessor(final int capacity) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("Capacity must be greater than zero.");
+
+		mCapacity = capacity;
+	}
+
+	public int getCapacity() {
+		return mCapacity;
+	}
 
 	@Override
 	public synchronized PrioritizableRequest detachHighestPriorityItem() {
@@ -13,18 +33,39 @@ public class StackPriorityAccessor implements PriorityAccessor {
 		mStack.push(request);
 	}
 
+	/* The bottom of the stack holds the oldest, least relevant requests. */
+	@Override
+	public synchronized PrioritizableRequest detachEvictedItem() {
+		if (mStack.size() > mCapacity) {
+			return mStack.removeFirst();
+		}
+		return null;
+	}
+
 	@Override
 	public synchronized int size() {
 		return mStack.size();
 	}
 
 	@Override
-	public PrioritizableRequest peek() {
+	public synchronized PrioritizableRequest peek() {
 		return mStack.peek();
 	}
 
 	@Override
-	public void clear() {
+	public synchronized boolean remove(final PrioritizableRequest request) {
+		return mStack.remove(request);
+	}
+
+	@Override
+	public synchronized void clear() {
 		mStack.clear();
 	}
+
+	@Override
+	public synchronized void copyTo(final Collection<? super PrioritizableRequest> collection) {
+		for (final PrioritizableRequest request : mStack) {
+			collection.add(request);
+		}
+	}
 }
@@ -0,0 +1,446 @@
+package io.pivotal.arca.threading;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class StripedAuxiliaryBlockingQueue extends AbstractQueue<Runnable> implements PrioritizableBlockingQueue {
+
+	private final PriorityAccessor[] mPriorityAccessors;
+	private final AuxiliaryExecutorObserver mObserver;
+	private final SchedulingPolicy mPolicy;
+	private final int mNumAccessors;
+
+	private final AtomicIntegerArray mLaneCounts;
+	private final AtomicInteger mCount = new AtomicInteger();
+
+	private final ReentrantLock mWaitLock = new ReentrantLock();
+	private final Condition mNotEmpty = mWaitLock.newCondition();
+	private final Condition mNotFull = mWaitLock.newCondition();
+	private volatile int mNumWaiting = 0;
+	private volatile int mNumWaitingForSpace = 0;
+
+	private volatile OnEvictedListener mOnEvictedListener;
+	private volatile OnDiscardedListener mOnDiscardedListener;
+
+	public StripedAuxiliaryBlockingQueue(final PriorityAccessor[] accessors, final AuxiliaryExecutorObserver observer) {
+		this(accessors, observer, null);
+	}
+
+	public StripedAuxiliaryBlockingQueue(final PriorityAccessor[] accessors, final AuxiliaryExecutorObserver observer, final SchedulingPolicy policy) {
+		mNumAccessors = accessors.length;
+		mPriorityAccessors = new PriorityAccessor[mNumAccessors];
+		mLaneCounts = new AtomicIntegerArray(mNumAccessors);
+		mObserver = observer;
+		mPolicy = policy;
+
+		for (int i = 0; i < mNumAccessors; i++) {
+			if (accessors[i] == null) {
+				throw new IllegalArgumentException("The accessor provided at index " + i + " is null!");
+			}
+			mPriorityAccessors[i] = accessors[i];
+		}
+	}
+
+	@Override
+	public void setOnEvictedListener(final OnEvictedListener listener) {
+		mOnEvictedListener = listener;
+	}
+
+	@Override
+	public void setOnDiscardedListener(final OnDiscardedListener listener) {
+		mOnDiscardedListener = listener;
+	}
+
+	@Override
+	public boolean offer(final Runnable e) {
+		checkNotNull(e);
+		return insert(e);
+	}
+
+	@Override
+	public Runnable peek() {
+		PrioritizableRequest request;
+		for (int i = 0; i < mNumAccessors; i++) {
+			if ((request = peek(i)) != null) {
+				return request;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public Runnable poll() {
+		return extract();
+	}
+
+	@Override
+	public void clear() {
+		while (extract() != null)
+			;
+	}
+
+	/*
+	 * Weakly consistent: lanes are copied one at a time, so requests added or
+	 * taken while the copy is made may or may not be seen. Lanes whose
+	 * accessor is not an IterablePriorityAccessor are left out.
+	 */
+	@Override
+	public Iterator<Runnable> iterator() {
+		final List<Runnable> snapshot = new ArrayList<Runnable>(mCount.get());
+		copyTo(snapshot);
+		return new SnapshotIterator(this, snapshot);
+	}
+
+	void copyTo(final Collection<? super PrioritizableRequest> collection) {
+		for (int i = 0; i < mNumAccessors; i++) {
+			final PriorityAccessor accessor = mPriorityAccessors[i];
+			if (accessor instanceof IterablePriorityAccessor && mLaneCounts.get(i) > 0) {
+				synchronized (accessor) {
+					((IterablePriorityAccessor) accessor).copyTo(collection);
+				}
+			}
+		}
+	}
+
+	@Override
+	public int size() {
+		return mCount.get();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return mCount.get() == 0;
+	}
+
+	@Override
+	public int drainTo(final Collection<? super Runnable> collection) {
+		return drainTo(collection, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public int drainTo(final Collection<? super Runnable> collection, final int maxNumberToDrain) {
+		checkNotNull(collection);
+		int numDrained = 0;
+		while (numDrained < maxNumberToDrain) {
+			final Runnable runnable = extract();
+			if (runnable == null) {
+				break;
+			}
+			collection.add(runnable);
+			numDrained++;
+		}
+		return numDrained;
+	}
+
+	@Override
+	public boolean remove(final Object object) {
+		if (!(object instanceof PrioritizableRequest)) {
+			return false;
+		}
+
+		final PrioritizableRequest request = (PrioritizableRequest) object;
+		final int index = request.getAccessorIndex();
+		if (index >= mNumAccessors) {
+			return false;
+		}
+
+		final PriorityAccessor accessor = mPriorityAccessors[index];
+		synchronized (accessor) {
+			if (!accessor.remove(request)) {
+				return false;
+			}
+			if (mPolicy != null) {
+				mPolicy.onRemoved(index, request);
+			}
+			mLaneCounts.decrementAndGet(index);
+			mCount.decrementAndGet();
+		}
+
+		if (mNumWaitingForSpace > 0) {
+			signalNotFull();
+		}
+
+		if (request.isCancelled()) {
+			AuxiliaryQueue.notifyDiscarded(request, mOnDiscardedListener, mObserver);
+		}
+		return true;
+	}
+
+	@Override
+	public boolean removeAll(final Collection<?> collection) {
+		checkNotNull(collection);
+		boolean modified = false;
+		for (final Object object : collection) {
+			modified |= remove(object);
+		}
+		return modified;
+	}
+
+	@Override
+	public boolean offer(final Runnable e, final long timeout, final TimeUnit unit) throws InterruptedException {
+		checkNotNull(e);
+		long nanos = unit.toNanos(timeout);
+		while (!insert(e)) {
+			mWaitLock.lockInterruptibly();
+			try {
+				mNumWaitingForSpace++;
+				try {
+					if (!admits((PrioritizableRequest) e)) {
+						if (nanos <= 0) {
+							return false;
+						}
+						nanos = mNotFull.awaitNanos(nanos);
+					}
+				} finally {
+					mNumWaitingForSpace--;
+				}
+			} finally {
+				mWaitLock.unlock();
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * Waits for room in a full REJECT_NEWEST lane. The waiter count is raised
+	 * before the lane is checked, so a request taken after the check always
+	 * sees it and signals.
+	 */
+	@Override
+	public void put(final Runnable e) throws InterruptedException {
+		checkNotNull(e);
+		while (!insert(e)) {
+			mWaitLock.lockInterruptibly();
+			try {
+				mNumWaitingForSpace++;
+				try {
+					if (!admits((PrioritizableRequest) e)) {
+						mNotFull.await();
+					}
+				} finally {
+					mNumWaitingForSpace--;
+				}
+			} finally {
+				mWaitLock.unlock();
+			}
+		}
+	}
+
+	@Override
+	public int remainingCapacity() {
+		return AuxiliaryQueue.remainingCapacity(mPriorityAccessors);
+	}
+
+	@Override
+	public Runnable poll(final long timeout, final TimeUnit unit) throws InterruptedException {
+		long nanos = unit.toNanos(timeout);
+		Runnable runnable;
+		while ((runnable = extract()) == null) {
+			mWaitLock.lockInterruptibly();
+			try {
+				mNumWaiting++;
+				try {
+					while (mCount.get() == 0) {
+						if (nanos <= 0) {
+							return null;
+						}
+						nanos = mNotEmpty.awaitNanos(nanos);
+					}
+				} finally {
+					mNumWaiting--;
+				}
+			} finally {
+				mWaitLock.unlock();
+			}
+		}
+		return runnable;
+	}
+
+	@Override
+	public Runnable take() throws InterruptedException {
+		Runnable runnable;
+		while ((runnable = extract()) == null) {
+			mWaitLock.lockInterruptibly();
+			try {
+				mNumWaiting++;
+				try {
+					while (mCount.get() == 0) {
+						mNotEmpty.await();
+					}
+				} finally {
+					mNumWaiting--;
+				}
+			} finally {
+				mWaitLock.unlock();
+			}
+		}
+		return runnable;
+	}
+
+	private boolean insert(final Runnable r) {
+		final PrioritizableRequest request = (PrioritizableRequest) r;
+		final int index = request.getAccessorIndex();
+		final PriorityAccessor accessor = mPriorityAccessors[index];
+
+		final int added;
+		final List<PrioritizableRequest> evicted;
+		synchronized (accessor) {
+			if (!AuxiliaryQueue.admits(accessor, request)) {
+				return false;
+			}
+			request.markQueued();
+			final int size = accessor.size();
+			accessor.attach(request);
+			evicted = AuxiliaryQueue.detachEvictedItems(accessor);
+			if (mPolicy != null) {
+				AuxiliaryQueue.notifyPolicy(mPolicy, index, request, evicted);
+			}
+			added = accessor.size() - size;
+			mLaneCounts.addAndGet(index, added);
+			mCount.addAndGet(added);
+		}
+
+		if (added > 0 && mNumWaiting > 0) {
+			signalNotEmpty();
+		}
+
+		AuxiliaryQueue.notifyEvicted(evicted, mOnEvictedListener, mObserver);
+		return true;
+	}
+
+	private PrioritizableRequest extract() {
+		PrioritizableRequest request;
+		if ((request = extractStarved()) != null) {
+			return request;
+		}
+		for (int i = 0; i < mNumAccessors; i++) {
+			if ((request = extract(i)) != null) {
+				return request;
+			}
+		}
+		return null;
+	}
+
+	int getNumAccessors() {
+		return mNumAccessors;
+	}
+
+	/*
+	 * Takes the overdue request the policy tracked out of its lane. Returns
+	 * null if there is none, or if another worker took it first.
+	 */
+	PrioritizableRequest extractStarved() {
+		final PrioritizableRequest request = mPolicy != null ? mPolicy.getStarvedRequest(mPriorityAccessors) : null;
+		if (request == null) {
+			return null;
+		}
+
+		final int index = request.getAccessorIndex();
+		final PriorityAccessor accessor = mPriorityAccessors[index];
+		synchronized (accessor) {
+			if (!accessor.remove(request)) {
+				return null;
+			}
+			mLaneCounts.decrementAndGet(index);
+			mCount.decrementAndGet();
+		}
+
+		if (mNumWaitingForSpace > 0) {
+			signalNotFull();
+		}
+
+		if (request.isCancelled()) {
+			AuxiliaryQueue.notifyDiscarded(request, mOnDiscardedListener, mObserver);
+			return null;
+		}
+		mPolicy.onDetached(index, request);
+		return request;
+	}
+
+	PrioritizableRequest peek(final int index) {
+		if (mLaneCounts.get(index) == 0) {
+			return null;
+		}
+
+		final PriorityAccessor accessor = mPriorityAccessors[index];
+		synchronized (accessor) {
+			return accessor.peek();
+		}
+	}
+
+	PrioritizableRequest extract(final int index) {
+		PrioritizableRequest request;
+		while ((request = detach(index)) != null) {
+			if (!request.isCancelled()) {
+				if (mPolicy != null) {
+					mPolicy.onDetached(index, request);
+				}
+				return request;
+			} else {
+				AuxiliaryQueue.notifyDiscarded(request, mOnDiscardedListener, mObserver);
+			}
+		}
+		return null;
+	}
+
+	private PrioritizableRequest detach(final int index) {
+		if (mLaneCounts.get(index) == 0) {
+			return null;
+		}
+
+		final PrioritizableRequest request;
+		final PriorityAccessor accessor = mPriorityAccessors[index];
+		synchronized (accessor) {
+			request = accessor.detachHighestPriorityItem();
+			if (request != null) {
+				mLaneCounts.decrementAndGet(index);
+				mCount.decrementAndGet();
+			}
+		}
+
+		if (request != null && mNumWaitingForSpace > 0) {
+			signalNotFull();
+		}
+		return request;
+	}
+
+	private boolean admits(final PrioritizableRequest request) {
+		final PriorityAccessor accessor = mPriorityAccessors[request.getAccessorIndex()];
+		synchronized (accessor) {
+			return AuxiliaryQueue.admits(accessor, request);
+		}
+	}
+
+	private void signalNotEmpty() {
+		mWaitLock.lock();
+		try {
+			mNotEmpty.signal();
+		} finally {
+			mWaitLock.unlock();
+		}
+	}
+
+	private void signalNotFull() {
+		mWaitLock.lock();
+		try {
+			mNotFull.signalAll();
+		} finally {
+			mWaitLock.unlock();
+		}
+	}
+
+	private static void checkNotNull(final Object o) {
+		if (o == null) {
+			throw new NullPointerException();
+		}
+	}
+
+}
@@ -0,0 +1,20 @@
+package io.pivotal.arca.threading;
+
+/*
+ * Decides which scheduling priority a worker thread runs at. Threads start
+ * at the pool priority, switch to the request's priority while running it
+ * and are set back to the priority they had before afterwards. Priorities
+ * are opaque to the executor, e.g. android.os.Process thread priorities.
+ */
+public interface ThreadPriorityPolicy {
+
+	public int getPoolPriority();
+
+	public int getPriority(PrioritizableRequest request);
+
+	/* The calling thread's current priority. */
+	public int getThreadPriority();
+
+	/* Applies the priority to the calling thread. */
+	public void setThreadPriority(int priority);
+}
@@ -0,0 +1,6 @@
+package io.pivotal.arca.threading;
+
+public interface TimingObserver extends AuxiliaryExecutorObserver {
+
+	public void onRequestTimed(PrioritizableRequest request, long waitNanos, long runNanos);
+}
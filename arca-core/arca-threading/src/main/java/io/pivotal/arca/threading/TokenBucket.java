@@ -0,0 +1,57 @@
+package io.pivotal.arca.threading;
+
+import java.util.concurrent.TimeUnit;
+
+/* Not thread safe, callers hold their own lock. */
+class TokenBucket {
+	private final double mTokensPerNano;
+	private final int mBurst;
+
+	private double mTokens;
+	private long mLastRefill;
+
+	public TokenBucket(final double permitsPerSecond, final int burst, final long now) {
+		mTokensPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+		mBurst = burst;
+		mTokens = burst;
+		mLastRefill = now;
+	}
+
+	public boolean tryAcquire(final long now) {
+		refill(now);
+		if (mTokens >= 1) {
+			mTokens -= 1;
+			return true;
+		}
+		return false;
+	}
+
+	public boolean isFull(final long now) {
+		refill(now);
+		return mTokens >= mBurst;
+	}
+
+	public long getNanosUntilAvailable(final long now) {
+		refill(now);
+		if (mTokens >= 1) {
+			return 0;
+		}
+		return (long) Math.ceil((1 - mTokens) / mTokensPerNano);
+	}
+
+	public long getNanosUntilFull(final long now) {
+		refill(now);
+		if (mTokens >= mBurst) {
+			return 0;
+		}
+		return (long) Math.ceil((mBurst - mTokens) / mTokensPerNano);
+	}
+
+	private void refill(final long now) {
+		final long elapsed = now - mLastRefill;
+		if (elapsed > 0) {
+			mTokens = Math.min(mBurst, mTokens + elapsed * mTokensPerNano);
+			mLastRefill = now;
+		}
+	}
+}
@@ -0,0 +1,35 @@
+package io.pivotal.arca.threading;
+
+import java.util.concurrent.TimeUnit;
+
+public class WaitTimeStatistics {
+	private long mCount;
+	private long mTotalNanos;
+	private long mMaxNanos;
+
+	public synchronized void record(final long waitNanos) {
+		mCount++;
+		mTotalNanos += waitNanos;
+		if (waitNanos > mMaxNanos) {
+			mMaxNanos = waitNanos;
+		}
+	}
+
+	public synchronized long getCount() {
+		return mCount;
+	}
+
+	public synchronized long getAverageWaitTime(final TimeUnit unit) {
+		return mCount == 0 ? 0 : unit.convert(mTotalNanos / mCount, TimeUnit.NANOSECONDS);
+	}
+
+	public synchronized long getMaxWaitTime(final TimeUnit unit) {
+		return unit.convert(mMaxNanos, TimeUnit.NANOSECONDS);
+	}
+
+	public synchronized void reset() {
+		mCount = 0;
+		mTotalNanos = 0;
+		mMaxNanos = 0;
+	}
+}
@@ -0,0 +1,321 @@
+package io.pivotal.arca.threading;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Splits the queue into one set of priority lanes per worker. A worker adds
+ * and takes from its own lanes first and steals from the others when they
+ * are empty. Lanes are still served in accessor order: a worker steals a
+ * higher lane from another worker before it takes a lower lane of its own.
+ *
+ * Each stripe gets its own accessor array, so a bounded lane holds up to its
+ * capacity per stripe and remainingCapacity() is the sum over all stripes.
+ * An offer only waits for room on the stripe it was routed to.
+ */
+public class WorkStealingBlockingQueue extends AbstractQueue<Runnable> implements PrioritizableBlockingQueue {
+
+	private final StripedAuxiliaryBlockingQueue[] mStripes;
+	private final int mNumStripes;
+	private final int mNumAccessors;
+	private final boolean mHasPolicy;
+
+	private final ThreadLocal<Integer> mHomeStripe = new ThreadLocal<Integer>();
+	private final AtomicInteger mNextStripe = new AtomicInteger();
+
+	private final ReentrantLock mWaitLock = new ReentrantLock();
+	private final Condition mNotEmpty = mWaitLock.newCondition();
+	private volatile int mNumWaiting = 0;
+
+	public WorkStealingBlockingQueue(final PriorityAccessor[] accessors, final PriorityAccessorFactory factory, final int numStripes, final AuxiliaryExecutorObserver observer) {
+		this(accessors, factory, numStripes, observer, null);
+	}
+
+	public WorkStealingBlockingQueue(final PriorityAccessor[] accessors, final PriorityAccessorFactory factory, final int numStripes, final AuxiliaryExecutorObserver observer,
+			final SchedulingPolicy policy) {
+		if (factory == null)
+			throw new IllegalArgumentException("Accessor factory cannot be null.");
+
+		if (numStripes <= 0)
+			throw new IllegalArgumentException("Number of stripes must be greater than zero.");
+
+		mNumStripes = numStripes;
+		mNumAccessors = accessors.length;
+		mHasPolicy = policy != null;
+		mStripes = new StripedAuxiliaryBlockingQueue[numStripes];
+		mStripes[0] = new StripedAuxiliaryBlockingQueue(accessors, observer, policy);
+
+		for (int i = 1; i < numStripes; i++) {
+			final PriorityAccessor[] array = factory.newAccessorArray();
+			if (array == null || array.length != mNumAccessors) {
+				throw new IllegalArgumentException("The accessor factory must create arrays of length " + mNumAccessors + ".");
+			}
+			mStripes[i] = new StripedAuxiliaryBlockingQueue(array, observer, policy);
+		}
+	}
+
+	@Override
+	public void setOnEvictedListener(final OnEvictedListener listener) {
+		for (int i = 0; i < mNumStripes; i++) {
+			mStripes[i].setOnEvictedListener(listener);
+		}
+	}
+
+	@Override
+	public void setOnDiscardedListener(final OnDiscardedListener listener) {
+		for (int i = 0; i < mNumStripes; i++) {
+			mStripes[i].setOnDiscardedListener(listener);
+		}
+	}
+
+	@Override
+	public boolean offer(final Runnable e) {
+		checkNotNull(e);
+		final Integer home = mHomeStripe.get();
+		final int stripe = home != null ? home : nextStripe();
+		if (!mStripes[stripe].offer(e)) {
+			return false;
+		}
+
+		if (mNumWaiting > 0) {
+			signalNotEmpty();
+		}
+		return true;
+	}
+
+	@Override
+	public boolean offer(final Runnable e, final long timeout, final TimeUnit unit) throws InterruptedException {
+		checkNotNull(e);
+		final Integer home = mHomeStripe.get();
+		final int stripe = home != null ? home : nextStripe();
+		if (!mStripes[stripe].offer(e, timeout, unit)) {
+			return false;
+		}
+
+		if (mNumWaiting > 0) {
+			signalNotEmpty();
+		}
+		return true;
+	}
+
+	@Override
+	public void put(final Runnable e) throws InterruptedException {
+		checkNotNull(e);
+		final Integer home = mHomeStripe.get();
+		final int stripe = home != null ? home : nextStripe();
+		mStripes[stripe].put(e);
+
+		if (mNumWaiting > 0) {
+			signalNotEmpty();
+		}
+	}
+
+	@Override
+	public Runnable peek() {
+		PrioritizableRequest request;
+		for (int i = 0; i < mNumAccessors; i++) {
+			for (int s = 0; s < mNumStripes; s++) {
+				if ((request = mStripes[s].peek(i)) != null) {
+					return request;
+				}
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public Runnable poll() {
+		return extract();
+	}
+
+	@Override
+	public Runnable poll(final long timeout, final TimeUnit unit) throws InterruptedException {
+		long nanos = unit.toNanos(timeout);
+		Runnable runnable;
+		while ((runnable = extract()) == null) {
+			mWaitLock.lockInterruptibly();
+			try {
+				mNumWaiting++;
+				try {
+					while (isEmpty()) {
+						if (nanos <= 0) {
+							return null;
+						}
+						nanos = mNotEmpty.awaitNanos(nanos);
+					}
+				} finally {
+					mNumWaiting--;
+				}
+			} finally {
+				mWaitLock.unlock();
+			}
+		}
+		return runnable;
+	}
+
+	@Override
+	public Runnable take() throws InterruptedException {
+		Runnable runnable;
+		while ((runnable = extract()) == null) {
+			mWaitLock.lockInterruptibly();
+			try {
+				mNumWaiting++;
+				try {
+					while (isEmpty()) {
+						mNotEmpty.await();
+					}
+				} finally {
+					mNumWaiting--;
+				}
+			} finally {
+				mWaitLock.unlock();
+			}
+		}
+		return runnable;
+	}
+
+	@Override
+	public boolean remove(final Object object) {
+		for (int s = 0; s < mNumStripes; s++) {
+			if (mStripes[s].remove(object)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public boolean removeAll(final Collection<?> collection) {
+		checkNotNull(collection);
+		boolean modified = false;
+		for (final Object object : collection) {
+			modified |= remove(object);
+		}
+		return modified;
+	}
+
+	@Override
+	public void clear() {
+		while (extract() != null)
+			;
+	}
+
+	/*
+	 * Weakly consistent, stripe by stripe, in the same way as
+	 * StripedAuxiliaryBlockingQueue.iterator().
+	 */
+	@Override
+	public Iterator<Runnable> iterator() {
+		final List<Runnable> snapshot = new ArrayList<Runnable>(size());
+		for (int s = 0; s < mNumStripes; s++) {
+			mStripes[s].copyTo(snapshot);
+		}
+		return new SnapshotIterator(this, snapshot);
+	}
+
+	@Override
+	public int size() {
+		int size = 0;
+		for (int s = 0; s < mNumStripes; s++) {
+			size += mStripes[s].size();
+		}
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		for (int s = 0; s < mNumStripes; s++) {
+			if (!mStripes[s].isEmpty()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int drainTo(final Collection<? super Runnable> collection) {
+		return drainTo(collection, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public int drainTo(final Collection<? super Runnable> collection, final int maxNumberToDrain) {
+		checkNotNull(collection);
+		int numDrained = 0;
+		while (numDrained < maxNumberToDrain) {
+			final Runnable runnable = extract();
+			if (runnable == null) {
+				break;
+			}
+			collection.add(runnable);
+			numDrained++;
+		}
+		return numDrained;
+	}
+
+	@Override
+	public int remainingCapacity() {
+		long remaining = 0;
+		for (int s = 0; s < mNumStripes; s++) {
+			remaining += mStripes[s].remainingCapacity();
+		}
+		return (int) Math.min(remaining, Integer.MAX_VALUE);
+	}
+
+	private PrioritizableRequest extract() {
+		final int home = getHomeStripe();
+		PrioritizableRequest request;
+
+		if (mHasPolicy) {
+			for (int s = 0; s < mNumStripes; s++) {
+				if ((request = mStripes[(home + s) % mNumStripes].extractStarved()) != null) {
+					return request;
+				}
+			}
+		}
+
+		for (int i = 0; i < mNumAccessors; i++) {
+			for (int s = 0; s < mNumStripes; s++) {
+				if ((request = mStripes[(home + s) % mNumStripes].extract(i)) != null) {
+					return request;
+				}
+			}
+		}
+		return null;
+	}
+
+	private int getHomeStripe() {
+		Integer home = mHomeStripe.get();
+		if (home == null) {
+			home = nextStripe();
+			mHomeStripe.set(home);
+		}
+		return home;
+	}
+
+	private int nextStripe() {
+		return (mNextStripe.getAndIncrement() & Integer.MAX_VALUE) % mNumStripes;
+	}
+
+	private void signalNotEmpty() {
+		mWaitLock.lock();
+		try {
+			mNotEmpty.signal();
+		} finally {
+			mWaitLock.unlock();
+		}
+	}
+
+	private static void checkNotNull(final Object o) {
+		if (o == null) {
+			throw new NullPointerException();
+		}
+	}
+
+}
@@ -0,0 +1,131 @@
+package io.pivotal.arca.threading;
+
+import android.test.AndroidTestCase;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+public class AdaptivePoolSizerTests extends AndroidTestCase {
+	private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private ThreadPoolExecutor mExecutor;
+	private long mNow;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		mExecutor = new ThreadPoolExecutor(2, 2, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+		mNow = 0;
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		mExecutor.shutdownNow();
+
+		super.tearDown();
+	}
+
+	public void testInvalidBoundsThrow() {
+		try {
+			new AdaptivePoolSizer(0, 4);
+			fail();
+		} catch (final IllegalArgumentException e) {
+			assertNotNull(e);
+		}
+		try {
+			new AdaptivePoolSizer(3, 2);
+			fail();
+		} catch (final IllegalArgumentException e) {
+			assertNotNull(e);
+		}
+	}
+
+	public void testPoolGrowsWhileRequestsWait() {
+		final AdaptivePoolSizer sizer = newSizer(1, 8);
+
+		completeWindow(sizer, 10 * MILLIS, 10 * MILLIS, 10 * MILLIS);
+		assertEquals(3, mExecutor.getCorePoolSize());
+
+		completeWindow(sizer, 10 * MILLIS, 10 * MILLIS, 5 * MILLIS);
+		assertEquals(4, mExecutor.getCorePoolSize());
+		assertTrue(mExecutor.getMaximumPoolSize() >= 4);
+	}
+
+	public void testPoolDoesNotGrowWithoutQueueWait() {
+		final AdaptivePoolSizer sizer = newSizer(1, 8);
+
+		completeWindow(sizer, 0, 10 * MILLIS, 10 * MILLIS);
+		completeWindow(sizer, 0, 10 * MILLIS, 10 * MILLIS);
+
+		assertEquals(2, mExecutor.getCorePoolSize());
+	}
+
+	public void testPoolBacksOffWhenLatencyInflates() {
+		mExecutor.setMaximumPoolSize(8);
+		mExecutor.setCorePoolSize(8);
+		final AdaptivePoolSizer sizer = newSizer(1, 8);
+
+		completeWindow(sizer, 0, 10 * MILLIS, 10 * MILLIS);
+		completeWindow(sizer, 10 * MILLIS, 50 * MILLIS, 10 * MILLIS);
+
+		assertEquals(6, mExecutor.getCorePoolSize());
+	}
+
+	public void testThreadIsGivenBackWhenThroughputDoesNotImprove() {
+		final AdaptivePoolSizer sizer = newSizer(1, 8);
+
+		completeWindow(sizer, 10 * MILLIS, 10 * MILLIS, 10 * MILLIS);
+		assertEquals(3, mExecutor.getCorePoolSize());
+
+		completeWindow(sizer, 10 * MILLIS, 10 * MILLIS, 10 * MILLIS);
+		assertEquals(2, mExecutor.getCorePoolSize());
+	}
+
+	public void testPoolSizeStaysWithinBounds() {
+		final AdaptivePoolSizer sizer = newSizer(2, 3);
+
+		completeWindow(sizer, 10 * MILLIS, 10 * MILLIS, 10 * MILLIS);
+		completeWindow(sizer, 10 * MILLIS, 10 * MILLIS, 5 * MILLIS);
+		assertEquals(3, mExecutor.getCorePoolSize());
+
+		completeWindow(sizer, 0, 100 * MILLIS, 5 * MILLIS);
+		assertEquals(2, mExecutor.getCorePoolSize());
+
+		assertEquals(2, sizer.clamp(0));
+		assertEquals(3, sizer.clamp(10));
+	}
+
+	public void testBuilderClampsCorePoolSize() {
+		final AuxiliaryExecutor.Builder builder = new AuxiliaryExecutor.Builder(new PriorityAccessor[] { new QueuePriorityAccessor() }, new AuxiliaryExecutorObserver() {
+			@Override
+			public void onComplete(final PrioritizableRequest request) {
+			}
+
+			@Override
+			public void onCancelled(final PrioritizableRequest request) {
+			}
+		});
+		builder.setCorePoolSize(10);
+		builder.setPoolSizer(new AdaptivePoolSizer(1, 4));
+
+		final DefaultAuxiliaryExecutor executor = (DefaultAuxiliaryExecutor) builder.create();
+		assertEquals(4, executor.getCorePoolSize());
+		assertEquals(4, executor.getMaximumPoolSize());
+		executor.shutdownNow();
+	}
+
+	private static AdaptivePoolSizer newSizer(final int min, final int max) {
+		final AdaptivePoolSizer sizer = new AdaptivePoolSizer(min, max);
+		sizer.setSampleWindow(0, TimeUnit.MILLISECONDS);
+		return sizer;
+	}
+
+	private void completeWindow(final AdaptivePoolSizer sizer, final long waitNanos, final long runNanos, final long intervalNanos) {
+		for (int i = 0; i < 4; i++) {
+			mNow += intervalNanos;
+			sizer.onRequestComplete(mExecutor, waitNanos, runNanos, mNow);
+		}
+	}
+}
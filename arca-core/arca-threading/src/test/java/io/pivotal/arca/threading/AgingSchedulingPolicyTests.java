@@ -0,0 +1,131 @@
+package io.pivotal.arca.threading;
+
+import android.test.AndroidTestCase;
+
+import java.util.concurrent.TimeUnit;
+
+public class AgingSchedulingPolicyTests extends AndroidTestCase {
+	private static final long NO_AGING = Long.MAX_VALUE;
+
+	private static final AuxiliaryExecutorObserver OBSERVER = new AuxiliaryExecutorObserver() {
+		@Override
+		public void onComplete(final PrioritizableRequest request) {
+		}
+
+		@Override
+		public void onCancelled(final PrioritizableRequest request) {
+		}
+	};
+
+	public void testStarvedLaneIsServedFirst() throws Exception {
+		final AgingSchedulingPolicy policy = new AgingSchedulingPolicy(new long[] { NO_AGING, NO_AGING, NO_AGING, 5 }, TimeUnit.MILLISECONDS);
+		final AuxiliaryBlockingQueue queue = new AuxiliaryBlockingQueue(newAccessorArray(), OBSERVER, policy);
+
+		final PrioritizableRequest low = generatePrioritizable("low", 3);
+		final PrioritizableRequest live = generatePrioritizable("live", 0);
+
+		queue.offer(low);
+		Thread.sleep(10);
+		queue.offer(live);
+
+		assertSame(low, queue.poll());
+		assertSame(live, queue.poll());
+	}
+
+	public void testLanesAreServedInOrderBeforeTheyStarve() {
+		final AgingSchedulingPolicy policy = new AgingSchedulingPolicy(new long[] { NO_AGING, NO_AGING, NO_AGING, 60 }, TimeUnit.SECONDS);
+		final StripedAuxiliaryBlockingQueue queue = new StripedAuxiliaryBlockingQueue(newAccessorArray(), OBSERVER, policy);
+
+		final PrioritizableRequest low = generatePrioritizable("low", 3);
+		final PrioritizableRequest live = generatePrioritizable("live", 0);
+
+		queue.offer(low);
+		queue.offer(live);
+
+		assertSame(live, queue.poll());
+		assertSame(low, queue.poll());
+	}
+
+	public void testOverdueRequestIsTakenFromStackLane() throws Exception {
+		final AgingSchedulingPolicy policy = new AgingSchedulingPolicy(new long[] { NO_AGING, 20 }, TimeUnit.MILLISECONDS);
+		assertOverdueRequestIsTakenFromStackLane(new AuxiliaryBlockingQueue(newStackAccessorArray(), OBSERVER, policy));
+	}
+
+	public void testOverdueRequestIsTakenFromStackLaneInStripedQueue() throws Exception {
+		final AgingSchedulingPolicy policy = new AgingSchedulingPolicy(new long[] { NO_AGING, 20 }, TimeUnit.MILLISECONDS);
+		assertOverdueRequestIsTakenFromStackLane(new StripedAuxiliaryBlockingQueue(newStackAccessorArray(), OBSERVER, policy));
+	}
+
+	private static void assertOverdueRequestIsTakenFromStackLane(final PrioritizableBlockingQueue queue) throws Exception {
+		final PrioritizableRequest old = generatePrioritizable("old", 1);
+		final PrioritizableRequest fresh = generatePrioritizable("fresh", 1);
+		final PrioritizableRequest live = generatePrioritizable("live", 0);
+
+		queue.offer(old);
+		Thread.sleep(30);
+		queue.offer(fresh);
+		queue.offer(live);
+
+		assertSame(old, queue.poll());
+		assertSame(live, queue.poll());
+		assertSame(fresh, queue.poll());
+	}
+
+	public void testRemovedRequestsNoLongerCountAsStarved() throws Exception {
+		final AgingSchedulingPolicy policy = new AgingSchedulingPolicy(new long[] { NO_AGING, 5 }, TimeUnit.MILLISECONDS);
+		final PriorityAccessor[] accessors = { new QueuePriorityAccessor(), new StackPriorityAccessor() };
+		final AuxiliaryBlockingQueue queue = new AuxiliaryBlockingQueue(accessors, OBSERVER, policy);
+
+		final PrioritizableRequest old = generatePrioritizable("old", 1);
+		final PrioritizableRequest fresh = generatePrioritizable("fresh", 1);
+		final PrioritizableRequest live = generatePrioritizable("live", 0);
+
+		queue.offer(old);
+		Thread.sleep(10);
+		assertTrue(queue.remove(old));
+		queue.offer(fresh);
+		queue.offer(live);
+
+		assertSame(live, queue.poll());
+		assertSame(fresh, queue.poll());
+	}
+
+	public void testWaitTimeStatisticsAreRecordedPerLane() throws Exception {
+		final AgingSchedulingPolicy policy = new AgingSchedulingPolicy(new long[] { NO_AGING, NO_AGING, NO_AGING, NO_AGING }, TimeUnit.MILLISECONDS);
+		final AuxiliaryBlockingQueue queue = new AuxiliaryBlockingQueue(newAccessorArray(), OBSERVER, policy);
+
+		queue.offer(generatePrioritizable("medium", 2));
+		Thread.sleep(10);
+		queue.poll();
+
+		assertEquals(0, policy.getWaitTimeStatistics(0).getCount());
+		assertEquals(1, policy.getWaitTimeStatistics(2).getCount());
+		assertTrue(policy.getWaitTimeStatistics(2).getMaxWaitTime(TimeUnit.MILLISECONDS) >= 10);
+	}
+
+	private static PriorityAccessor[] newAccessorArray() {
+		return new PriorityAccessor[] {
+				new StackPriorityAccessor(),
+				new QueuePriorityAccessor(),
+				new QueuePriorityAccessor(),
+				new QueuePriorityAccessor()
+		};
+	}
+
+	private static PriorityAccessor[] newStackAccessorArray() {
+		return new PriorityAccessor[] { new QueuePriorityAccessor(), new StackPriorityAccessor() };
+	}
+
+	private static PrioritizableRequest generatePrioritizable(final String request, final int accessorIndex) {
+		return new PrioritizableRequest(new Prioritizable() {
+			@Override
+			public void execute() {
+			}
+
+			@Override
+			public Identifier<?> getIdentifier() {
+				return new Identifier<String>(request);
+			}
+		}, accessorIndex);
+	}
+}
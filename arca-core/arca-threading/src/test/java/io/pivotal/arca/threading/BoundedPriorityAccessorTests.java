@@ -0,0 +1,199 @@
+package io.pivotal.arca.threading;
+
+import android.test.AndroidTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class BoundedPriorityAccessorTests extends AndroidTestCase {
+	private List<PrioritizableRequest> mCancelled;
+	private AuxiliaryExecutorObserver mObserver;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		mCancelled = new ArrayList<PrioritizableRequest>();
+		mObserver = new AuxiliaryExecutorObserver() {
+			@Override
+			public void onComplete(final PrioritizableRequest request) {
+			}
+
+			@Override
+			public void onCancelled(final PrioritizableRequest request) {
+				mCancelled.add(request);
+			}
+		};
+	}
+
+	public void testRejectNewestRefusesRequestsOnceFull() {
+		final BoundedPriorityAccessor accessor = new BoundedPriorityAccessor(new QueuePriorityAccessor(), 2, SheddingPolicy.REJECT_NEWEST);
+		final PrioritizableRequest first = generatePrioritizable("first", 0);
+		final PrioritizableRequest second = generatePrioritizable("second", 0);
+
+		assertTrue(accessor.admits(first));
+		accessor.attach(first);
+		accessor.attach(second);
+
+		assertFalse(accessor.admits(generatePrioritizable("third", 0)));
+		assertTrue(accessor.admits(second));
+		assertEquals(0, accessor.remainingCapacity());
+
+		assertSame(first, accessor.detachHighestPriorityItem());
+		assertTrue(accessor.admits(generatePrioritizable("third", 0)));
+	}
+
+	public void testDropOldestEvictsFirstArrival() {
+		final BoundedPriorityAccessor accessor = new BoundedPriorityAccessor(new StackPriorityAccessor(), 2, SheddingPolicy.DROP_OLDEST);
+		final PrioritizableRequest first = generatePrioritizable("first", 0);
+		final PrioritizableRequest second = generatePrioritizable("second", 0);
+		final PrioritizableRequest third = generatePrioritizable("third", 0);
+
+		accessor.attach(first);
+		accessor.attach(second);
+		assertTrue(accessor.admits(third));
+		accessor.attach(third);
+
+		assertSame(first, accessor.detachEvictedItem());
+		assertNull(accessor.detachEvictedItem());
+		assertEquals(2, accessor.size());
+		assertSame(third, accessor.detachHighestPriorityItem());
+		assertSame(second, accessor.detachHighestPriorityItem());
+	}
+
+	public void testBlockingQueueRefusesOfferForFullLane() {
+		final AuxiliaryBlockingQueue queue = new AuxiliaryBlockingQueue(newAccessorArray(SheddingPolicy.REJECT_NEWEST), mObserver);
+
+		assertTrue(queue.offer(generatePrioritizable("live", 0)));
+		assertTrue(queue.offer(generatePrioritizable("low1", 1)));
+		assertFalse(queue.offer(generatePrioritizable("low2", 1)));
+		assertEquals(2, queue.size());
+		assertEquals(Integer.MAX_VALUE, queue.remainingCapacity());
+	}
+
+	public void testStripedQueueDropsOldestRequestInFullLane() {
+		final StripedAuxiliaryBlockingQueue queue = new StripedAuxiliaryBlockingQueue(newAccessorArray(SheddingPolicy.DROP_OLDEST), mObserver);
+		final PrioritizableRequest low1 = generatePrioritizable("low1", 1);
+		final PrioritizableRequest low2 = generatePrioritizable("low2", 1);
+
+		assertTrue(queue.offer(low1));
+		assertTrue(queue.offer(low2));
+
+		assertEquals(1, queue.size());
+		assertEquals(1, mCancelled.size());
+		assertSame(low1, mCancelled.get(0));
+		assertTrue(low1.isCancelled());
+		assertSame(low2, queue.poll());
+	}
+
+	public void testBlockingQueuePutWaitsForRoomInFullLane() throws Exception {
+		assertPutWaitsForRoomInFullLane(new AuxiliaryBlockingQueue(newAccessorArray(SheddingPolicy.REJECT_NEWEST), mObserver));
+	}
+
+	public void testStripedQueuePutWaitsForRoomInFullLane() throws Exception {
+		assertPutWaitsForRoomInFullLane(new StripedAuxiliaryBlockingQueue(newAccessorArray(SheddingPolicy.REJECT_NEWEST), mObserver));
+	}
+
+	public void testTimedOfferGivesUpOnFullLane() throws Exception {
+		final StripedAuxiliaryBlockingQueue queue = new StripedAuxiliaryBlockingQueue(newAccessorArray(SheddingPolicy.REJECT_NEWEST), mObserver);
+
+		assertTrue(queue.offer(generatePrioritizable("low1", 1), 10, TimeUnit.MILLISECONDS));
+		assertFalse(queue.offer(generatePrioritizable("low2", 1), 10, TimeUnit.MILLISECONDS));
+		assertEquals(1, queue.size());
+	}
+
+	private static void assertPutWaitsForRoomInFullLane(final PrioritizableBlockingQueue queue) throws Exception {
+		final PrioritizableRequest low1 = generatePrioritizable("low1", 1);
+		final PrioritizableRequest low2 = generatePrioritizable("low2", 1);
+		final CountDownLatch put = new CountDownLatch(1);
+
+		queue.put(low1);
+		final Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					queue.put(low2);
+					put.countDown();
+				} catch (final InterruptedException e) {
+					return;
+				}
+			}
+		});
+		thread.start();
+
+		assertFalse(put.await(50, TimeUnit.MILLISECONDS));
+		assertEquals(1, queue.size());
+
+		assertSame(low1, queue.poll());
+		assertTrue(put.await(1, TimeUnit.SECONDS));
+		assertEquals(1, queue.size());
+		assertSame(low2, queue.poll());
+		thread.join();
+	}
+
+	public void testExecutorShedsRequestRefusedByFullLane() throws Exception {
+		final AuxiliaryExecutor.Builder builder = new AuxiliaryExecutor.Builder(newAccessorArray(SheddingPolicy.REJECT_NEWEST), mObserver);
+		builder.setCorePoolSize(1);
+		final DefaultAuxiliaryExecutor executor = (DefaultAuxiliaryExecutor) builder.create();
+
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final PrioritizableRequest blocker = generateBlockingPrioritizable("blocker", started, release);
+		final PrioritizableRequest queued = generatePrioritizable("queued", 1);
+		final PrioritizableRequest refused = generatePrioritizable("refused", 1);
+
+		executor.execute(blocker);
+		assertTrue(started.await(1, TimeUnit.SECONDS));
+		executor.execute(queued);
+		executor.execute(refused);
+
+		assertTrue(refused.isCancelled());
+		assertEquals(1, mCancelled.size());
+		assertSame(refused, mCancelled.get(0));
+		assertFalse(queued.isCancelled());
+
+		release.countDown();
+		executor.shutdownNow();
+	}
+
+	private static PriorityAccessor[] newAccessorArray(final SheddingPolicy policy) {
+		return new PriorityAccessor[] {
+				new StackPriorityAccessor(),
+				new BoundedPriorityAccessor(new QueuePriorityAccessor(), 1, policy)
+		};
+	}
+
+	private static PrioritizableRequest generateBlockingPrioritizable(final String request, final CountDownLatch started, final CountDownLatch release) {
+		return new PrioritizableRequest(new Prioritizable() {
+			@Override
+			public void execute() {
+				started.countDown();
+				try {
+					release.await();
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+
+			@Override
+			public Identifier<?> getIdentifier() {
+				return new Identifier<String>(request);
+			}
+		}, 0);
+	}
+
+	private static PrioritizableRequest generatePrioritizable(final String request, final int accessorIndex) {
+		return new PrioritizableRequest(new Prioritizable() {
+			@Override
+			public void execute() {
+			}
+
+			@Override
+			public Identifier<?> getIdentifier() {
+				return new Identifier<String>(request);
+			}
+		}, accessorIndex);
+	}
+}
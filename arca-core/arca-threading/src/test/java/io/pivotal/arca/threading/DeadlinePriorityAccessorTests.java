@@ -0,0 +1,128 @@
+package io.pivotal.arca.threading;
+
+import android.test.AndroidTestCase;
+
+import java.util.concurrent.TimeUnit;
+
+public class DeadlinePriorityAccessorTests extends AndroidTestCase {
+	private DeadlinePriorityAccessor mAccessor;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		mAccessor = new DeadlinePriorityAccessor();
+	}
+
+	public void testDetachReturnsEarliestDeadlineFirst() {
+		final PrioritizableRequest late = generatePrioritizable("late", 300);
+		final PrioritizableRequest none = generatePrioritizable("none", Prioritizable.NO_DEADLINE);
+		final PrioritizableRequest early = generatePrioritizable("early", 100);
+		final PrioritizableRequest middle = generatePrioritizable("middle", 200);
+
+		mAccessor.attach(late);
+		mAccessor.attach(none);
+		mAccessor.attach(early);
+		mAccessor.attach(middle);
+
+		assertEquals(4, mAccessor.size());
+		assertSame(early, mAccessor.peek());
+		assertSame(early, mAccessor.detachHighestPriorityItem());
+		assertSame(middle, mAccessor.detachHighestPriorityItem());
+		assertSame(late, mAccessor.detachHighestPriorityItem());
+		assertSame(none, mAccessor.detachHighestPriorityItem());
+		assertNull(mAccessor.detachHighestPriorityItem());
+	}
+
+	public void testEqualDeadlinesAreDetachedInArrivalOrder() {
+		final PrioritizableRequest first = generatePrioritizable("first", 100);
+		final PrioritizableRequest second = generatePrioritizable("second", 100);
+		final PrioritizableRequest third = generatePrioritizable("third", 100);
+
+		mAccessor.attach(first);
+		mAccessor.attach(second);
+		mAccessor.attach(third);
+
+		assertSame(first, mAccessor.detachHighestPriorityItem());
+		assertSame(second, mAccessor.detachHighestPriorityItem());
+		assertSame(third, mAccessor.detachHighestPriorityItem());
+	}
+
+	public void testReattachingRequestUpdatesItsDeadline() {
+		final PrioritizableRequest first = generatePrioritizable("first", 100);
+		final PrioritizableRequest second = generatePrioritizable("second", 200);
+
+		mAccessor.attach(first);
+		mAccessor.attach(second);
+
+		second.getPrioritizable().setDeadline(50);
+		mAccessor.attach(second);
+
+		assertEquals(2, mAccessor.size());
+		assertSame(second, mAccessor.detachHighestPriorityItem());
+		assertSame(first, mAccessor.detachHighestPriorityItem());
+	}
+
+	public void testRemoveKeepsHeapOrdering() {
+		for (int i = 0; i < 20; i++) {
+			mAccessor.attach(generatePrioritizable("request" + i, 20 - i));
+		}
+		final PrioritizableRequest removed = generatePrioritizable("removed", 5);
+		mAccessor.attach(removed);
+
+		assertTrue(mAccessor.remove(removed));
+		assertFalse(mAccessor.remove(removed));
+
+		long previous = Long.MIN_VALUE;
+		PrioritizableRequest request;
+		while ((request = mAccessor.detachHighestPriorityItem()) != null) {
+			assertTrue(request.getDeadline() >= previous);
+			assertNotSame(removed, request);
+			previous = request.getDeadline();
+		}
+	}
+
+	public void testDeadlinesAreOrderedAcrossNanoTimeWrap() {
+		final PrioritizableRequest wrapped = generatePrioritizable("wrapped", Long.MIN_VALUE + 100);
+		final PrioritizableRequest none = generatePrioritizable("none", Prioritizable.NO_DEADLINE);
+		final PrioritizableRequest beforeWrap = generatePrioritizable("beforeWrap", Long.MAX_VALUE - 100);
+
+		mAccessor.attach(wrapped);
+		mAccessor.attach(none);
+		mAccessor.attach(beforeWrap);
+
+		assertSame(beforeWrap, mAccessor.detachHighestPriorityItem());
+		assertSame(wrapped, mAccessor.detachHighestPriorityItem());
+		assertSame(none, mAccessor.detachHighestPriorityItem());
+	}
+
+	public void testHugeDelaysDoNotOverflow() {
+		final PrioritizableRequest forever = generatePrioritizable("forever", 0);
+		forever.getPrioritizable().setDeadline(Long.MAX_VALUE, TimeUnit.DAYS);
+		final PrioritizableRequest soon = generatePrioritizable("soon", 0);
+		soon.getPrioritizable().setDeadline(1, TimeUnit.SECONDS);
+
+		assertTrue(forever.getDeadline() != Prioritizable.NO_DEADLINE);
+
+		mAccessor.attach(forever);
+		mAccessor.attach(soon);
+
+		assertSame(soon, mAccessor.detachHighestPriorityItem());
+		assertSame(forever, mAccessor.detachHighestPriorityItem());
+	}
+
+	private static PrioritizableRequest generatePrioritizable(final String request, final long deadline) {
+		final Prioritizable prioritizable = new Prioritizable() {
+			@Override
+			public void execute() {
+			}
+
+			@Override
+			public Identifier<?> getIdentifier() {
+				return new Identifier<String>(request);
+			}
+		};
+		prioritizable.setDeadline(deadline);
+		return new PrioritizableRequest(prioritizable, 0);
+	}
+}
@@ -0,0 +1,272 @@
+package io.pivotal.arca.threading;
+
+import android.test.AndroidTestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+public class DefaultAuxiliaryExecutorTests extends AndroidTestCase {
+	private AuxiliaryExecutor mExecutor;
+	private CountDownLatch mBlocker;
+	private List<String> mExecuted;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		mBlocker = new CountDownLatch(1);
+		mExecuted = Collections.synchronizedList(new ArrayList<String>());
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		mBlocker.countDown();
+		if (mExecutor != null) {
+			((ExecutorService) mExecutor).shutdownNow();
+		}
+		super.tearDown();
+	}
+
+	public void testRemoveTakesQueuedRequestOutOfQueue() throws Exception {
+		createBlockedExecutor(false);
+
+		final PrioritizableRequest request = generatePrioritizable("removed", 1);
+		mExecutor.execute(request);
+		assertEquals(1, mExecutor.getQueue().size());
+
+		assertTrue(mExecutor.remove(request));
+		assertEquals(0, mExecutor.getQueue().size());
+		assertTrue(request.isCancelled());
+
+		unblockAndDrain();
+		assertFalse(mExecuted.contains("removed"));
+	}
+
+	public void testRemovePromotesQueuedDuplicate() throws Exception {
+		createBlockedExecutor(false);
+
+		final PrioritizableRequest queued = generatePrioritizable("duplicate", 2);
+		final PrioritizableRequest waiting = generatePrioritizable("duplicate", 1);
+		mExecutor.execute(queued);
+		mExecutor.execute(waiting);
+		assertEquals(1, mExecutor.getQueue().size());
+
+		assertTrue(mExecutor.remove(queued));
+		assertEquals(1, mExecutor.getQueue().size());
+		assertSame(waiting, mExecutor.getQueue().peek());
+
+		unblockAndDrain();
+		assertTrue(mExecuted.contains("duplicate"));
+	}
+
+	public void testCancelAllRemovesQueuedRequests() throws Exception {
+		createBlockedExecutor(false);
+
+		final PrioritizableRequest first = generatePrioritizable("first", 1);
+		final PrioritizableRequest second = generatePrioritizable("second", 2);
+		mExecutor.execute(first);
+		mExecutor.execute(second);
+		assertEquals(2, mExecutor.getQueue().size());
+
+		mExecutor.cancelAll();
+
+		assertEquals(0, mExecutor.getQueue().size());
+		assertTrue(first.isCancelled());
+		assertTrue(second.isCancelled());
+
+		unblockAndDrain();
+		assertFalse(mExecuted.contains("first"));
+		assertFalse(mExecuted.contains("second"));
+	}
+
+	public void testQueueCanBeIteratedAndPurged() throws Exception {
+		createBlockedExecutor(false);
+
+		final PrioritizableRequest first = generatePrioritizable("first", 1);
+		final PrioritizableRequest second = generatePrioritizable("second", 2);
+		mExecutor.execute(first);
+		mExecutor.execute(second);
+
+		assertEquals(2, mExecutor.getQueue().toArray().length);
+		((ThreadPoolExecutor) mExecutor).purge();
+
+		final Iterator<Runnable> iterator = mExecutor.getQueue().iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next() == first) {
+				iterator.remove();
+			}
+		}
+		assertEquals(1, mExecutor.getQueue().size());
+		assertSame(second, mExecutor.getQueue().peek());
+	}
+
+	public void testDuplicateWithHigherPriorityPromotesQueuedRequest() throws Exception {
+		assertDuplicatePromotesQueuedRequest(false);
+	}
+
+	public void testDuplicateWithHigherPriorityPromotesQueuedRequestInStripedQueue() throws Exception {
+		assertDuplicatePromotesQueuedRequest(true);
+	}
+
+	private void assertDuplicatePromotesQueuedRequest(final boolean striped) throws Exception {
+		createBlockedExecutor(striped);
+
+		final PrioritizableRequest queued = generatePrioritizable("duplicate", 2);
+		final PrioritizableRequest other = generatePrioritizable("other", 1);
+		final PrioritizableRequest joining = generatePrioritizable("duplicate", 0);
+		mExecutor.execute(queued);
+		mExecutor.execute(other);
+		mExecutor.execute(joining);
+
+		assertEquals(0, queued.getAccessorIndex());
+		assertEquals(2, mExecutor.getQueue().size());
+		assertSame(queued, mExecutor.getQueue().peek());
+
+		unblockAndDrain();
+		assertEquals(mExecuted.indexOf("duplicate") + 1, mExecuted.indexOf("other"));
+		assertEquals(1, Collections.frequency(mExecuted, "duplicate"));
+	}
+
+	public void testPromoteMovesQueuedRequestWithoutAddingAnother() throws Exception {
+		createBlockedExecutor(false);
+
+		final PrioritizableRequest queued = generatePrioritizable("promoted", 2);
+		final PrioritizableRequest other = generatePrioritizable("other", 1);
+		mExecutor.execute(queued);
+		mExecutor.execute(other);
+
+		((PromotingAuxiliaryExecutor) mExecutor).promote(new Identifier<String>("promoted"), 0);
+
+		assertEquals(0, queued.getAccessorIndex());
+		assertEquals(2, mExecutor.getQueue().size());
+		assertSame(queued, mExecutor.getQueue().peek());
+
+		unblockAndDrain();
+		assertEquals(mExecuted.indexOf("promoted") + 1, mExecuted.indexOf("other"));
+		assertEquals(1, Collections.frequency(mExecuted, "promoted"));
+	}
+
+	public void testPromoteKeepsScheduledRequestWaiting() throws Exception {
+		createBlockedExecutor(false);
+
+		final PrioritizableRequest scheduled = generatePrioritizable("scheduled", 2);
+		((ScheduledAuxiliaryExecutor) mExecutor).schedule(scheduled, 50, TimeUnit.MILLISECONDS);
+
+		((PromotingAuxiliaryExecutor) mExecutor).promote(new Identifier<String>("scheduled"), 1);
+
+		assertEquals(1, scheduled.getAccessorIndex());
+		assertEquals(0, mExecutor.getQueue().size());
+		assertEquals(1, ((DefaultAuxiliaryExecutor) mExecutor).getScheduledCount());
+
+		Thread.sleep(100);
+		assertEquals(1, mExecutor.getQueue().size());
+
+		unblockAndDrain();
+		assertTrue(mExecuted.contains("scheduled"));
+	}
+
+	public void testRemoveScheduledWithdrawsWaitingRequest() throws Exception {
+		createBlockedExecutor(false);
+
+		final PrioritizableRequest scheduled = generatePrioritizable("scheduled", 1);
+		((ScheduledAuxiliaryExecutor) mExecutor).schedule(scheduled, 1, TimeUnit.HOURS);
+
+		assertTrue(((ScheduledAuxiliaryExecutor) mExecutor).removeScheduled(scheduled));
+		assertFalse(((ScheduledAuxiliaryExecutor) mExecutor).removeScheduled(scheduled));
+
+		((PromotingAuxiliaryExecutor) mExecutor).promote(new Identifier<String>("scheduled"), 0);
+		unblockAndDrain();
+		assertFalse(mExecuted.contains("scheduled"));
+	}
+
+	public void testPromoteWithoutQueuedRequestDoesNothing() throws Exception {
+		createBlockedExecutor(false);
+
+		((PromotingAuxiliaryExecutor) mExecutor).promote(new Identifier<String>("missing"), 0);
+
+		assertEquals(0, mExecutor.getQueue().size());
+	}
+
+	// =============================================
+
+	private void createBlockedExecutor(final boolean striped) throws Exception {
+		final AuxiliaryExecutor.Builder builder = new AuxiliaryExecutor.Builder(newAccessorArray(), new AuxiliaryExecutorObserver() {
+			@Override
+			public void onComplete(final PrioritizableRequest request) {
+			}
+
+			@Override
+			public void onCancelled(final PrioritizableRequest request) {
+			}
+		});
+		if (striped) {
+			builder.useStripedQueue();
+		}
+		mExecutor = builder.setCorePoolSize(1).create();
+
+		final CountDownLatch started = new CountDownLatch(1);
+		mExecutor.execute(new PrioritizableRequest(new Prioritizable() {
+			@Override
+			public void execute() {
+				started.countDown();
+				try {
+					mBlocker.await(5, TimeUnit.SECONDS);
+				} catch (final InterruptedException e) {
+					return;
+				}
+			}
+
+			@Override
+			public Identifier<?> getIdentifier() {
+				return new Identifier<String>("blocker");
+			}
+		}, 0));
+		assertTrue(started.await(1, TimeUnit.SECONDS));
+	}
+
+	private void unblockAndDrain() throws Exception {
+		final CountDownLatch drained = new CountDownLatch(1);
+		mExecutor.execute(new PrioritizableRequest(new Prioritizable() {
+			@Override
+			public void execute() {
+				drained.countDown();
+			}
+
+			@Override
+			public Identifier<?> getIdentifier() {
+				return new Identifier<String>("drain");
+			}
+		}, 3));
+		mBlocker.countDown();
+		assertTrue(drained.await(1, TimeUnit.SECONDS));
+	}
+
+	private static PriorityAccessor[] newAccessorArray() {
+		return new PriorityAccessor[] {
+				new QueuePriorityAccessor(),
+				new QueuePriorityAccessor(),
+				new QueuePriorityAccessor(),
+				new QueuePriorityAccessor()
+		};
+	}
+
+	private PrioritizableRequest generatePrioritizable(final String name, final int accessorIndex) {
+		return new PrioritizableRequest(new Prioritizable() {
+			@Override
+			public void execute() {
+				mExecuted.add(name);
+			}
+
+			@Override
+			public Identifier<?> getIdentifier() {
+				return new Identifier<String>(name);
+			}
+		}, accessorIndex);
+	}
+}
@@ -0,0 +1,111 @@
+package io.pivotal.arca.threading;
+
+import android.test.AndroidTestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class ExecutorStatisticsTests extends AndroidTestCase {
+
+	public void testEmptyHistogramReportsZero() {
+		final LatencyHistogram histogram = new LatencyHistogram();
+
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMean(TimeUnit.NANOSECONDS));
+		assertEquals(0, histogram.getMax(TimeUnit.NANOSECONDS));
+		assertEquals(0, histogram.getPercentile(0.5, TimeUnit.NANOSECONDS));
+	}
+
+	public void testHistogramPercentilesAreWithinAFactorOfTwo() {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 100; i++) {
+			histogram.record(i * 1000L);
+		}
+
+		assertEquals(100, histogram.getCount());
+		assertEquals(50500, histogram.getMean(TimeUnit.NANOSECONDS));
+		assertEquals(100000, histogram.getMax(TimeUnit.NANOSECONDS));
+
+		final long median = histogram.getPercentile(0.5, TimeUnit.NANOSECONDS);
+		assertTrue(median >= 50000 && median < 100000);
+		assertEquals(100000, histogram.getPercentile(1, TimeUnit.NANOSECONDS));
+	}
+
+	public void testHistogramReset() {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(10);
+		histogram.reset();
+
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMax(TimeUnit.NANOSECONDS));
+	}
+
+	public void testInvalidPercentileThrows() {
+		try {
+			new LatencyHistogram().getPercentile(1.5, TimeUnit.NANOSECONDS);
+			fail();
+		} catch (final IllegalArgumentException e) {
+			assertNotNull(e);
+		}
+	}
+
+	public void testExecutorRecordsWaitAndRunTimesPerLane() throws Exception {
+		final ExecutorStatistics statistics = new ExecutorStatistics(2);
+		final List<Long> waitTimes = Collections.synchronizedList(new ArrayList<Long>());
+		final CountDownLatch timed = new CountDownLatch(2);
+
+		final AuxiliaryExecutor.Builder builder = new AuxiliaryExecutor.Builder(new PriorityAccessor[] { new QueuePriorityAccessor(), new QueuePriorityAccessor() }, new TimingObserver() {
+			@Override
+			public void onComplete(final PrioritizableRequest request) {
+			}
+
+			@Override
+			public void onCancelled(final PrioritizableRequest request) {
+			}
+
+			@Override
+			public void onRequestTimed(final PrioritizableRequest request, final long waitNanos, final long runNanos) {
+				waitTimes.add(waitNanos);
+				timed.countDown();
+			}
+		});
+		builder.setCorePoolSize(1);
+		builder.setStatistics(statistics);
+
+		final DefaultAuxiliaryExecutor executor = (DefaultAuxiliaryExecutor) builder.create();
+		assertSame(statistics, executor.getStatistics());
+
+		executor.execute(generatePrioritizable("first", 0, 20));
+		executor.execute(generatePrioritizable("second", 1, 0));
+
+		assertTrue(timed.await(1, TimeUnit.SECONDS));
+		executor.shutdownNow();
+
+		assertEquals(1, statistics.getRunTimes(0).getCount());
+		assertTrue(statistics.getRunTimes(0).getMax(TimeUnit.MILLISECONDS) >= 20);
+		assertEquals(1, statistics.getWaitTimes(1).getCount());
+		assertTrue(statistics.getWaitTimes(1).getMax(TimeUnit.MILLISECONDS) >= 15);
+		assertTrue(waitTimes.get(1) >= TimeUnit.MILLISECONDS.toNanos(15));
+	}
+
+	private static PrioritizableRequest generatePrioritizable(final String identifier, final int accessorIndex, final long sleepMillis) {
+		return new PrioritizableRequest(new Prioritizable() {
+			@Override
+			public void execute() {
+				try {
+					Thread.sleep(sleepMillis);
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+
+			@Override
+			public Identifier<?> getIdentifier() {
+				return new Identifier<String>(identifier);
+			}
+		}, accessorIndex);
+	}
+}
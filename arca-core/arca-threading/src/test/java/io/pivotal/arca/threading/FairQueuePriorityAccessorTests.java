@@ -0,0 +1,117 @@
+package io.pivotal.arca.threading;
+
+import android.test.AndroidTestCase;
+
+public class FairQueuePriorityAccessorTests extends AndroidTestCase {
+	private FairQueuePriorityAccessor mAccessor;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		mAccessor = new FairQueuePriorityAccessor();
+	}
+
+	public void testUngroupedRequestsAreDetachedInArrivalOrder() {
+		final PrioritizableRequest first = generatePrioritizable("first", null);
+		final PrioritizableRequest second = generatePrioritizable("second", null);
+		final PrioritizableRequest third = generatePrioritizable("third", null);
+
+		mAccessor.attach(first);
+		mAccessor.attach(second);
+		mAccessor.attach(third);
+
+		assertSame(first, mAccessor.detachHighestPriorityItem());
+		assertSame(second, mAccessor.detachHighestPriorityItem());
+		assertSame(third, mAccessor.detachHighestPriorityItem());
+		assertNull(mAccessor.detachHighestPriorityItem());
+	}
+
+	public void testGroupsAreServedRoundRobin() {
+		final PrioritizableRequest bulk1 = generatePrioritizable("bulk1", "bulk");
+		final PrioritizableRequest bulk2 = generatePrioritizable("bulk2", "bulk");
+		final PrioritizableRequest bulk3 = generatePrioritizable("bulk3", "bulk");
+		final PrioritizableRequest other1 = generatePrioritizable("other1", "other");
+		final PrioritizableRequest other2 = generatePrioritizable("other2", "other");
+
+		mAccessor.attach(bulk1);
+		mAccessor.attach(bulk2);
+		mAccessor.attach(bulk3);
+		mAccessor.attach(other1);
+		mAccessor.attach(other2);
+
+		assertEquals(5, mAccessor.size());
+		assertSame(bulk1, mAccessor.peek());
+		assertSame(bulk1, mAccessor.detachHighestPriorityItem());
+		assertSame(other1, mAccessor.detachHighestPriorityItem());
+		assertSame(bulk2, mAccessor.detachHighestPriorityItem());
+		assertSame(other2, mAccessor.detachHighestPriorityItem());
+		assertSame(bulk3, mAccessor.detachHighestPriorityItem());
+		assertEquals(0, mAccessor.size());
+	}
+
+	public void testWeightedGroupIsServedMoreOften() {
+		mAccessor.setWeight("heavy", 2);
+
+		final PrioritizableRequest heavy1 = generatePrioritizable("heavy1", "heavy");
+		final PrioritizableRequest heavy2 = generatePrioritizable("heavy2", "heavy");
+		final PrioritizableRequest heavy3 = generatePrioritizable("heavy3", "heavy");
+		final PrioritizableRequest light1 = generatePrioritizable("light1", "light");
+		final PrioritizableRequest light2 = generatePrioritizable("light2", "light");
+
+		mAccessor.attach(heavy1);
+		mAccessor.attach(heavy2);
+		mAccessor.attach(heavy3);
+		mAccessor.attach(light1);
+		mAccessor.attach(light2);
+
+		assertSame(heavy1, mAccessor.detachHighestPriorityItem());
+		assertSame(heavy2, mAccessor.detachHighestPriorityItem());
+		assertSame(light1, mAccessor.detachHighestPriorityItem());
+		assertSame(heavy3, mAccessor.detachHighestPriorityItem());
+		assertSame(light2, mAccessor.detachHighestPriorityItem());
+	}
+
+	public void testRemovingLastRequestOfGroupDropsItFromRotation() {
+		final PrioritizableRequest bulk1 = generatePrioritizable("bulk1", "bulk");
+		final PrioritizableRequest bulk2 = generatePrioritizable("bulk2", "bulk");
+		final PrioritizableRequest other = generatePrioritizable("other", "other");
+
+		mAccessor.attach(bulk1);
+		mAccessor.attach(other);
+		mAccessor.attach(bulk2);
+
+		assertTrue(mAccessor.remove(other));
+		assertFalse(mAccessor.remove(other));
+		assertEquals(2, mAccessor.size());
+		assertSame(bulk1, mAccessor.detachHighestPriorityItem());
+		assertSame(bulk2, mAccessor.detachHighestPriorityItem());
+		assertNull(mAccessor.peek());
+	}
+
+	public void testReattachingRequestDoesNotChangeSize() {
+		final PrioritizableRequest request = generatePrioritizable("request", "group");
+
+		mAccessor.attach(request);
+		mAccessor.attach(request);
+
+		assertEquals(1, mAccessor.size());
+		assertSame(request, mAccessor.detachHighestPriorityItem());
+		assertNull(mAccessor.detachHighestPriorityItem());
+	}
+
+	private static PrioritizableRequest generatePrioritizable(final String request, final Object group) {
+		final Prioritizable prioritizable = new Prioritizable() {
+			@Override
+			public void execute() {
+			}
+
+			@Override
+			public Identifier<?> getIdentifier() {
+				return new Identifier<String>(request);
+			}
+		};
+		prioritizable.setGroup(group);
+		return new PrioritizableRequest(prioritizable, 0);
+	}
+}
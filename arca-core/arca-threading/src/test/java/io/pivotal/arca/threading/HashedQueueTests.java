@@ -0,0 +1,132 @@
+package io.pivotal.arca.threading;
+
+import android.test.AndroidTestCase;
+
+import java.util.Iterator;
+
+public class HashedQueueTests extends AndroidTestCase {
+
+	public void testQueueIsFirstInFirstOut() {
+		final HashedQueue<String> queue = new HashedQueue<String>();
+		queue.add("first");
+		queue.add("second");
+		queue.add("third");
+
+		assertEquals(3, queue.size());
+		assertEquals("first", queue.peek());
+		assertEquals("first", queue.poll());
+		assertEquals("second", queue.poll());
+		assertEquals("third", queue.poll());
+		assertNull(queue.poll());
+		assertTrue(queue.isEmpty());
+	}
+
+	public void testReaddingMovesElementToTheBack() {
+		final HashedQueue<String> queue = new HashedQueue<String>();
+		queue.add("first");
+		queue.add("second");
+		queue.add("first");
+
+		assertEquals(2, queue.size());
+		assertEquals("second", queue.poll());
+		assertEquals("first", queue.poll());
+	}
+
+	public void testBumpAddsMissingElement() {
+		final HashedQueue<String> queue = new HashedQueue<String>();
+		queue.add("first");
+		queue.bump("second");
+		queue.bump("first");
+
+		assertEquals("second", queue.poll());
+		assertEquals("first", queue.poll());
+	}
+
+	public void testRemoveFromMiddle() {
+		final HashedQueue<String> queue = new HashedQueue<String>();
+		queue.add("first");
+		queue.add("second");
+		queue.add("third");
+
+		assertTrue(queue.remove("second"));
+		assertFalse(queue.remove("second"));
+		assertFalse(queue.contains("second"));
+
+		final Iterator<String> iterator = queue.iterator();
+		assertEquals("first", iterator.next());
+		assertEquals("third", iterator.next());
+		assertFalse(iterator.hasNext());
+	}
+
+	public void testEqualElementsShareAnEntry() {
+		final HashedQueue<Identifier<String>> queue = new HashedQueue<Identifier<String>>();
+		queue.add(new Identifier<String>("same"));
+		queue.add(new Identifier<String>("other"));
+		queue.add(new Identifier<String>("same"));
+
+		assertEquals(2, queue.size());
+		assertEquals(new Identifier<String>("other"), queue.poll());
+		assertTrue(queue.remove(new Identifier<String>("same")));
+		assertTrue(queue.isEmpty());
+	}
+
+	public void testQueueGrowsAndReusesEntries() {
+		final HashedQueue<Integer> queue = new HashedQueue<Integer>();
+		for (int i = 0; i < 1000; i++) {
+			queue.add(i);
+		}
+		for (int i = 0; i < 1000; i += 2) {
+			assertTrue(queue.remove(i));
+		}
+		for (int i = 1000; i < 1500; i++) {
+			queue.add(i);
+		}
+
+		assertEquals(1000, queue.size());
+		for (int i = 1; i < 1000; i += 2) {
+			assertEquals(Integer.valueOf(i), queue.poll());
+		}
+		for (int i = 1000; i < 1500; i++) {
+			assertEquals(Integer.valueOf(i), queue.poll());
+		}
+		assertTrue(queue.isEmpty());
+	}
+
+	public void testToArrayReturnsElementsInOrder() {
+		final HashedQueue<String> queue = new HashedQueue<String>();
+		queue.add("first");
+		queue.add("second");
+
+		final Object[] array = queue.toArray();
+		assertEquals(2, array.length);
+		assertEquals("first", array[0]);
+		assertEquals("second", array[1]);
+	}
+
+	public void testStackIsLastInFirstOut() {
+		final HashedStack<String> stack = new HashedStack<String>();
+		stack.push("first");
+		stack.push("second");
+		stack.push("third");
+
+		assertEquals("third", stack.peek());
+		assertEquals("third", stack.pop());
+		assertEquals("first", stack.removeFirst());
+		assertEquals("second", stack.pop());
+		assertNull(stack.pop());
+		assertNull(stack.removeFirst());
+	}
+
+	public void testStackBumpOnlyMovesPresentElements() {
+		final HashedStack<String> stack = new HashedStack<String>();
+		stack.push("first");
+		stack.push("second");
+
+		stack.bump("first");
+		stack.bump("missing");
+
+		assertEquals(2, stack.size());
+		assertEquals("first", stack.pop());
+		assertEquals("second", stack.pop());
+	}
+}
@@ -0,0 +1,326 @@
+package io.pivotal.arca.threading;
+
+import android.test.AndroidTestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class KeyedAuxiliaryExecutorTests extends AndroidTestCase {
+	/* Keys on the group like SerialKeySelector.GROUP, without its ordering. */
+	private static final KeySelector GROUP_KEY = new KeySelector() {
+		@Override
+		public Object getKey(final PrioritizableRequest request) {
+			return request.getGroup();
+		}
+	};
+
+	private AuxiliaryExecutor mExecutor;
+	private List<String> mExecuted;
+	private CountDownLatch mCompleted;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		mExecuted = Collections.synchronizedList(new ArrayList<String>());
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (mExecutor != null) {
+			((ExecutorService) mExecutor).shutdownNow();
+		}
+		super.tearDown();
+	}
+
+	public void testRequestsWithSameKeyRunInOrder() throws Exception {
+		createExecutor(4, 6);
+
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger maxRunning = new AtomicInteger();
+		for (int i = 0; i < 6; i++) {
+			mExecutor.execute(generatePrioritizable("request" + i, "key", new Runnable() {
+				@Override
+				public void run() {
+					maxRunning.set(Math.max(maxRunning.get(), running.incrementAndGet()));
+					sleep(5);
+					running.decrementAndGet();
+				}
+			}));
+		}
+
+		assertTrue(mCompleted.await(5, TimeUnit.SECONDS));
+		assertEquals(1, maxRunning.get());
+		for (int i = 0; i < 6; i++) {
+			assertEquals("request" + i, mExecuted.get(i));
+		}
+	}
+
+	public void testRequestsWithDifferentKeysRunInParallel() throws Exception {
+		createExecutor(2, 2);
+
+		final CountDownLatch latch = new CountDownLatch(1);
+		mExecutor.execute(generatePrioritizable("waiting", "first", new Runnable() {
+			@Override
+			public void run() {
+				try {
+					latch.await(5, TimeUnit.SECONDS);
+				} catch (final InterruptedException e) {
+					return;
+				}
+			}
+		}));
+		mExecutor.execute(generatePrioritizable("releasing", "second", new Runnable() {
+			@Override
+			public void run() {
+				latch.countDown();
+			}
+		}));
+
+		assertTrue(mCompleted.await(1, TimeUnit.SECONDS));
+		assertEquals(2, mExecuted.size());
+	}
+
+	public void testRemovingHeldRequestDoesNotStallItsKey() throws Exception {
+		createExecutor(1, 2);
+
+		final CountDownLatch latch = new CountDownLatch(1);
+		mExecutor.execute(generatePrioritizable("first", "key", new Runnable() {
+			@Override
+			public void run() {
+				try {
+					latch.await(5, TimeUnit.SECONDS);
+				} catch (final InterruptedException e) {
+					return;
+				}
+			}
+		}));
+		final PrioritizableRequest removed = generatePrioritizable("removed", "key", null);
+		mExecutor.execute(removed);
+		mExecutor.execute(generatePrioritizable("last", "key", null));
+
+		assertTrue(mExecutor.remove(removed));
+		latch.countDown();
+
+		assertTrue(mCompleted.await(5, TimeUnit.SECONDS));
+		assertEquals(2, mExecuted.size());
+		assertEquals("last", mExecuted.get(1));
+	}
+
+	public void testCancelledRequestDoesNotStallItsKey() throws Exception {
+		createExecutor(1, 2);
+
+		final CountDownLatch latch = new CountDownLatch(1);
+		mExecutor.execute(generatePrioritizable("blocking", null, new Runnable() {
+			@Override
+			public void run() {
+				try {
+					latch.await(5, TimeUnit.SECONDS);
+				} catch (final InterruptedException e) {
+					return;
+				}
+			}
+		}));
+		final PrioritizableRequest cancelled = generatePrioritizable("cancelled", "key", null);
+		mExecutor.execute(cancelled);
+		mExecutor.execute(generatePrioritizable("last", "key", null));
+		cancelled.cancel();
+		latch.countDown();
+
+		assertTrue(mCompleted.await(5, TimeUnit.SECONDS));
+		assertEquals("last", mExecuted.get(1));
+	}
+
+	public void testLimiterAllowsMaxInFlightPerKey() throws Exception {
+		createExecutor(4, 6, new KeyLimiter(SerialKeySelector.GROUP, 2));
+
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger maxRunning = new AtomicInteger();
+		for (int i = 0; i < 6; i++) {
+			mExecutor.execute(generatePrioritizable("request" + i, "key", new Runnable() {
+				@Override
+				public void run() {
+					final int current = running.incrementAndGet();
+					synchronized (maxRunning) {
+						maxRunning.set(Math.max(maxRunning.get(), current));
+					}
+					sleep(10);
+					running.decrementAndGet();
+				}
+			}));
+		}
+
+		assertTrue(mCompleted.await(5, TimeUnit.SECONDS));
+		assertTrue(maxRunning.get() <= 2);
+		assertEquals(6, mExecuted.size());
+	}
+
+	public void testRateLimitedKeyIsSkippedForOtherKeys() throws Exception {
+		createExecutor(1, 3, new KeyLimiter(SerialKeySelector.GROUP, 2).setRate(10, 1));
+
+		final long start = System.nanoTime();
+		mExecutor.execute(generatePrioritizable("slow1", "slow", null));
+		mExecutor.execute(generatePrioritizable("slow2", "slow", null));
+		mExecutor.execute(generatePrioritizable("fast", "fast", null));
+
+		assertTrue(mCompleted.await(5, TimeUnit.SECONDS));
+		assertEquals("slow2", mExecuted.get(2));
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(80));
+	}
+
+	public void testHeldRequestsAreReleasedByPriority() throws Exception {
+		createExecutor(1, 4, new KeyLimiter(GROUP_KEY, 1));
+
+		final CountDownLatch latch = new CountDownLatch(1);
+		mExecutor.execute(generatePrioritizable("first", "key", new Runnable() {
+			@Override
+			public void run() {
+				try {
+					latch.await(5, TimeUnit.SECONDS);
+				} catch (final InterruptedException e) {
+					return;
+				}
+			}
+		}));
+		mExecutor.execute(generatePrioritizable("low", "key", null, 3));
+		mExecutor.execute(generatePrioritizable("high", "key", null, 1));
+		mExecutor.execute(generatePrioritizable("medium", "key", null, 2));
+		latch.countDown();
+
+		assertTrue(mCompleted.await(5, TimeUnit.SECONDS));
+		assertEquals("high", mExecuted.get(1));
+		assertEquals("medium", mExecuted.get(2));
+		assertEquals("low", mExecuted.get(3));
+	}
+
+	public void testSerialKeyReleasesHeldRequestsInArrivalOrder() throws Exception {
+		createExecutor(1, 4);
+
+		final CountDownLatch latch = new CountDownLatch(1);
+		mExecutor.execute(generatePrioritizable("first", "key", new Runnable() {
+			@Override
+			public void run() {
+				try {
+					latch.await(5, TimeUnit.SECONDS);
+				} catch (final InterruptedException e) {
+					return;
+				}
+			}
+		}));
+		mExecutor.execute(generatePrioritizable("low", "key", null, 3));
+		mExecutor.execute(generatePrioritizable("high", "key", null, 1));
+		mExecutor.execute(generatePrioritizable("medium", "key", null, 2));
+		latch.countDown();
+
+		assertTrue(mCompleted.await(5, TimeUnit.SECONDS));
+		assertEquals("low", mExecuted.get(1));
+		assertEquals("high", mExecuted.get(2));
+		assertEquals("medium", mExecuted.get(3));
+	}
+
+	public void testIdleRateLimitedLaneIsDroppedOnceBucketRefills() throws Exception {
+		createExecutor(1, 1, new KeyLimiter(SerialKeySelector.GROUP, 1).setRate(20, 1));
+
+		mExecutor.execute(generatePrioritizable("only", "key", null));
+
+		assertTrue(mCompleted.await(5, TimeUnit.SECONDS));
+		final KeyedAuxiliaryExecutor executor = (KeyedAuxiliaryExecutor) mExecutor;
+		final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+		while (executor.getLaneCount() > 0 && System.nanoTime() < deadline) {
+			sleep(10);
+		}
+		assertEquals(0, executor.getLaneCount());
+	}
+
+	public void testTokenBucketReportsTimeUntilFull() {
+		final long second = TimeUnit.SECONDS.toNanos(1);
+		final TokenBucket bucket = new TokenBucket(2, 2, 0);
+
+		assertEquals(0, bucket.getNanosUntilFull(0));
+		assertTrue(bucket.tryAcquire(0));
+		assertTrue(bucket.tryAcquire(0));
+		assertEquals(second, bucket.getNanosUntilFull(0));
+	}
+
+	public void testTokenBucketRefillsOverTime() {
+		final long second = TimeUnit.SECONDS.toNanos(1);
+		final TokenBucket bucket = new TokenBucket(2, 2, 0);
+
+		assertTrue(bucket.tryAcquire(0));
+		assertTrue(bucket.tryAcquire(0));
+		assertFalse(bucket.tryAcquire(0));
+		assertEquals(second / 2, bucket.getNanosUntilAvailable(0));
+
+		assertTrue(bucket.tryAcquire(second / 2));
+		assertFalse(bucket.isFull(second / 2));
+		assertTrue(bucket.isFull(10 * second));
+	}
+
+	private void createExecutor(final int numThreads, final int numCompletions) {
+		createExecutor(numThreads, numCompletions, null);
+	}
+
+	private void createExecutor(final int numThreads, final int numCompletions, final KeyLimiter limiter) {
+		mCompleted = new CountDownLatch(numCompletions);
+		final AuxiliaryExecutor.Builder builder = new AuxiliaryExecutor.Builder(newAccessorArray(), new AuxiliaryExecutorObserver() {
+			@Override
+			public void onComplete(final PrioritizableRequest request) {
+				mExecutor.notifyRequestComplete(request.getIdentifier());
+				mCompleted.countDown();
+			}
+
+			@Override
+			public void onCancelled(final PrioritizableRequest request) {
+			}
+		});
+		builder.setCorePoolSize(numThreads);
+		builder.setSerialKeySelector(SerialKeySelector.GROUP);
+		builder.setKeyLimiter(limiter);
+		mExecutor = builder.create();
+	}
+
+	private static void sleep(final long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private PriorityAccessor[] newAccessorArray() {
+		return new PriorityAccessor[] {
+				new StackPriorityAccessor(),
+				new QueuePriorityAccessor(),
+				new QueuePriorityAccessor(),
+				new QueuePriorityAccessor()
+		};
+	}
+
+	private PrioritizableRequest generatePrioritizable(final String request, final Object key, final Runnable runnable) {
+		return generatePrioritizable(request, key, runnable, 2);
+	}
+
+	private PrioritizableRequest generatePrioritizable(final String request, final Object key, final Runnable runnable, final int accessorIndex) {
+		final Prioritizable prioritizable = new Prioritizable() {
+			@Override
+			public void execute() {
+				if (runnable != null) {
+					runnable.run();
+				}
+				mExecuted.add(request);
+			}
+
+			@Override
+			public Identifier<?> getIdentifier() {
+				return new Identifier<String>(request);
+			}
+		};
+		prioritizable.setGroup(key);
+		return new PrioritizableRequest(prioritizable, accessorIndex);
+	}
+}
@@ -0,0 +1,71 @@
+package io.pivotal.arca.threading;
+
+import android.test.AndroidTestCase;
+
+public class NumericPriorityAccessorTests extends AndroidTestCase {
+	private NumericPriorityAccessor mAccessor;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		mAccessor = new NumericPriorityAccessor();
+	}
+
+	public void testDetachReturnsLowestPriorityValueFirst() {
+		final PrioritizableRequest far = generatePrioritizable("far", 40);
+		final PrioritizableRequest visible = generatePrioritizable("visible", 0);
+		final PrioritizableRequest near = generatePrioritizable("near", 3);
+
+		mAccessor.attach(far);
+		mAccessor.attach(visible);
+		mAccessor.attach(near);
+
+		assertSame(visible, mAccessor.detachHighestPriorityItem());
+		assertSame(near, mAccessor.detachHighestPriorityItem());
+		assertSame(far, mAccessor.detachHighestPriorityItem());
+	}
+
+	public void testReprioritizeByIdentifierReordersQueuedRequests() {
+		final PrioritizableRequest first = generatePrioritizable("first", 1);
+		final PrioritizableRequest second = generatePrioritizable("second", 2);
+		final PrioritizableRequest third = generatePrioritizable("third", 3);
+
+		mAccessor.attach(first);
+		mAccessor.attach(second);
+		mAccessor.attach(third);
+
+		assertTrue(mAccessor.reprioritize(new Identifier<String>("third"), -1));
+		assertFalse(mAccessor.reprioritize(new Identifier<String>("missing"), -1));
+
+		assertEquals(-1, third.getPriorityValue());
+		assertSame(third, mAccessor.detachHighestPriorityItem());
+		assertSame(first, mAccessor.detachHighestPriorityItem());
+		assertSame(second, mAccessor.detachHighestPriorityItem());
+	}
+
+	public void testContainsTracksIdentifiers() {
+		final PrioritizableRequest request = generatePrioritizable("request", 1);
+
+		mAccessor.attach(request);
+		assertTrue(mAccessor.contains(new Identifier<String>("request")));
+
+		mAccessor.remove(request);
+		assertFalse(mAccessor.contains(new Identifier<String>("request")));
+	}
+
+	private static PrioritizableRequest generatePrioritizable(final String request, final long priorityValue) {
+		final Prioritizable prioritizable = new Prioritizable() {
+			@Override
+			public void execute() {
+			}
+
+			@Override
+			public Identifier<?> getIdentifier() {
+				return new Identifier<String>(request);
+			}
+		};
+		prioritizable.setPriorityValue(priorityValue);
+		return new PrioritizableRequest(prioritizable, 0);
+	}
+}
@@ -2,6 +2,11 @@ package io.pivotal.arca.threading;
 
 import android.test.AndroidTestCase;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class QueuingMapsTests extends AndroidTestCase {
 	private QueuingMaps mMaps;
 
@@ -75,7 +80,81 @@ public class QueuingMapsTests extends AndroidTestCase {
 		assertTrue(mTestPrioritizable1.isCancelled());
 	}
 
+	public void testingDuplicateRequestWaitsOnQueuedRequest() {
+		assertNull(mMaps.put(mTestPrioritizable1));
+		assertSame(mTestPrioritizable1, mMaps.put(mTestPrioritizable2));
+		assertNull(mMaps.put(mTestPrioritizable3));
+	}
+
+	public void testingCancellingQueuedRequestPromotesHighestPriorityWaiter() {
+		final PrioritizableRequest low = generatePrioritizable("request1", 3);
+		final PrioritizableRequest medium = generatePrioritizable("request1", 2);
+		final PrioritizableRequest live = generatePrioritizable("request1", 0);
+
+		mMaps.put(low);
+		mMaps.put(medium);
+		mMaps.put(live);
+
+		assertSame(live, mMaps.cancel(low));
+		assertNull(mMaps.cancel(medium));
+		assertSame(live, mMaps.put(generatePrioritizable("request1", 1)));
+	}
+
+	public void testingConcurrentWorkersNeverRunAnIdentifierTwice() throws Exception {
+		final int threadCount = 4;
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicBoolean overlapped = new AtomicBoolean();
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch finished = new CountDownLatch(threadCount);
+
+		for (int t = 0; t < threadCount; t++) {
+			final String ownIdentifier = "own" + t;
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+						for (int i = 0; i < 2000; i++) {
+							final String identifier = (i % 2 == 0) ? "shared" : ownIdentifier;
+							final PrioritizableRequest request = generatePrioritizable(identifier);
+							mMaps.put(request);
+							if (!request.isCancelled()) {
+								mMaps.notifyExecuting(request);
+							}
+							if (!request.isCancelled()) {
+								if (identifier.equals("shared") && running.incrementAndGet() > 1) {
+									overlapped.set(true);
+								}
+								if (identifier.equals("shared")) {
+									running.decrementAndGet();
+								}
+								mMaps.onComplete(request.getIdentifier());
+							}
+						}
+					} catch (final InterruptedException e) {
+						Thread.currentThread().interrupt();
+					} finally {
+						finished.countDown();
+					}
+				}
+			}).start();
+		}
+
+		start.countDown();
+		assertTrue(finished.await(10, TimeUnit.SECONDS));
+		assertFalse(overlapped.get());
+
+		final PrioritizableRequest request = generatePrioritizable("shared");
+		assertNull(mMaps.put(request));
+		mMaps.notifyExecuting(request);
+		assertFalse(request.isCancelled());
+	}
+
 	private static PrioritizableRequest generatePrioritizable(final String request) {
+		return generatePrioritizable(request, 0);
+	}
+
+	private static PrioritizableRequest generatePrioritizable(final String request, final int accessorIndex) {
 		return new PrioritizableRequest(new Prioritizable() {
 			@Override
 			public void execute() {
@@ -85,6 +164,6 @@ public class QueuingMapsTests extends AndroidTestCase {
 			public Identifier<?> getIdentifier() {
 				return new Identifier<String>(request);
 			}
-		}, 0);
+		}, accessorIndex);
 	}
 }
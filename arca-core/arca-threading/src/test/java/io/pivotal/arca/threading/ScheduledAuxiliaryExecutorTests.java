@@ -0,0 +1,164 @@
+package io.pivotal.arca.threading;
+
+import android.test.AndroidTestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class ScheduledAuxiliaryExecutorTests extends AndroidTestCase {
+	private DefaultAuxiliaryExecutor mExecutor;
+	private List<String> mExecuted;
+	private List<PrioritizableRequest> mCancelled;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		mExecuted = Collections.synchronizedList(new ArrayList<String>());
+		mCancelled = Collections.synchronizedList(new ArrayList<PrioritizableRequest>());
+
+		final AuxiliaryExecutor.Builder builder = new AuxiliaryExecutor.Builder(newAccessorArray(), new AuxiliaryExecutorObserver() {
+			@Override
+			public void onComplete(final PrioritizableRequest request) {
+				mExecutor.notifyRequestComplete(request.getIdentifier());
+			}
+
+			@Override
+			public void onCancelled(final PrioritizableRequest request) {
+				mCancelled.add(request);
+			}
+		});
+		builder.setCorePoolSize(1);
+		mExecutor = (DefaultAuxiliaryExecutor) builder.createScheduled();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		mExecutor.shutdownNow();
+		super.tearDown();
+	}
+
+	public void testScheduledRequestRunsAfterDelay() throws Exception {
+		final CountDownLatch latch = new CountDownLatch(1);
+		final long start = System.nanoTime();
+
+		mExecutor.schedule(generatePrioritizable("delayed", "delayed", 2, latch), 50, TimeUnit.MILLISECONDS);
+		assertEquals(1, mExecutor.getScheduledCount());
+
+		assertTrue(latch.await(1, TimeUnit.SECONDS));
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+		assertEquals(0, mExecutor.getScheduledCount());
+	}
+
+	public void testDueRequestsAreReleasedIntoTheirLanes() throws Exception {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountDownLatch latch = new CountDownLatch(2);
+
+		mExecutor.execute(generateBlockingPrioritizable(started, release));
+		assertTrue(started.await(1, TimeUnit.SECONDS));
+
+		mExecutor.schedule(generatePrioritizable("low", "low", 3, latch), 10, TimeUnit.MILLISECONDS);
+		mExecutor.schedule(generatePrioritizable("live", "live", 0, latch), 20, TimeUnit.MILLISECONDS);
+		Thread.sleep(50);
+		release.countDown();
+
+		assertTrue(latch.await(1, TimeUnit.SECONDS));
+		assertEquals("live", mExecuted.get(1));
+		assertEquals("low", mExecuted.get(2));
+	}
+
+	public void testRequestsWithSameIdentifierShareTheEarliestEntry() throws Exception {
+		final CountDownLatch latch = new CountDownLatch(1);
+
+		mExecutor.schedule(generatePrioritizable("late", "same", 2, latch), 10, TimeUnit.SECONDS);
+		mExecutor.schedule(generatePrioritizable("early", "same", 2, latch), 20, TimeUnit.MILLISECONDS);
+		assertEquals(2, mExecutor.getScheduledCount());
+
+		assertTrue(latch.await(1, TimeUnit.SECONDS));
+		Thread.sleep(20);
+		assertEquals(1, mExecuted.size());
+		assertEquals(0, mExecutor.getScheduledCount());
+	}
+
+	public void testExecutingRequestReleasesPendingEntryWithSameIdentifier() throws Exception {
+		final CountDownLatch latch = new CountDownLatch(1);
+
+		mExecutor.schedule(generatePrioritizable("scheduled", "same", 2, latch), 10, TimeUnit.SECONDS);
+		mExecutor.execute(generatePrioritizable("immediate", "same", 2, latch));
+
+		assertEquals(0, mExecutor.getScheduledCount());
+		assertTrue(latch.await(1, TimeUnit.SECONDS));
+		Thread.sleep(20);
+		assertEquals(1, mExecuted.size());
+		assertEquals("immediate", mExecuted.get(0));
+	}
+
+	public void testRemoveAndCancelAllDropPendingRequests() throws Exception {
+		final PrioritizableRequest removed = generatePrioritizable("removed", "removed", 2, null);
+		final PrioritizableRequest cancelled = generatePrioritizable("cancelled", "cancelled", 2, null);
+
+		mExecutor.schedule(removed, 20, TimeUnit.MILLISECONDS);
+		mExecutor.schedule(cancelled, 20, TimeUnit.MILLISECONDS);
+
+		assertTrue(mExecutor.remove(removed));
+		assertEquals(1, mExecutor.getScheduledCount());
+
+		mExecutor.cancelAll();
+		assertEquals(0, mExecutor.getScheduledCount());
+		assertTrue(cancelled.isCancelled());
+		assertEquals(1, mCancelled.size());
+
+		Thread.sleep(50);
+		assertTrue(mExecuted.isEmpty());
+	}
+
+	private static PriorityAccessor[] newAccessorArray() {
+		return new PriorityAccessor[] {
+				new StackPriorityAccessor(),
+				new QueuePriorityAccessor(),
+				new QueuePriorityAccessor(),
+				new QueuePriorityAccessor()
+		};
+	}
+
+	private PrioritizableRequest generateBlockingPrioritizable(final CountDownLatch started, final CountDownLatch release) {
+		return new PrioritizableRequest(new Prioritizable() {
+			@Override
+			public void execute() {
+				started.countDown();
+				try {
+					release.await();
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				mExecuted.add("blocking");
+			}
+
+			@Override
+			public Identifier<?> getIdentifier() {
+				return new Identifier<String>("blocking");
+			}
+		}, 0);
+	}
+
+	private PrioritizableRequest generatePrioritizable(final String request, final String identifier, final int accessorIndex, final CountDownLatch latch) {
+		return new PrioritizableRequest(new Prioritizable() {
+			@Override
+			public void execute() {
+				mExecuted.add(request);
+				if (latch != null) {
+					latch.countDown();
+				}
+			}
+
+			@Override
+			public Identifier<?> getIdentifier() {
+				return new Identifier<String>(identifier);
+			}
+		}, accessorIndex);
+	}
+}
@@ -0,0 +1,289 @@
+package io.pivotal.arca.threading;
+
+import android.test.AndroidTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SingleFlightTests extends AndroidTestCase {
+	private SingleFlight<String, String> mFlights;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		mFlights = new SingleFlight<String, String>();
+	}
+
+	public void testInvalidStripeCountThrows() {
+		try {
+			new SingleFlight<String, String>(0);
+			fail();
+		} catch (final IllegalArgumentException e) {
+			assertNotNull(e);
+		}
+	}
+
+	public void testFirstCallerStartsAndLaterCallersJoin() {
+		assertEquals(SingleFlight.JoinResult.STARTED, mFlights.join("key", new TestCallback()));
+		assertEquals(SingleFlight.JoinResult.JOINED, mFlights.join("key", new TestCallback()));
+		assertEquals(SingleFlight.JoinResult.STARTED, mFlights.join("other", new TestCallback()));
+
+		assertTrue(mFlights.isInFlight("key"));
+		assertEquals(2, mFlights.size());
+	}
+
+	public void testCompleteAnswersEveryCallback() {
+		final TestCallback first = new TestCallback();
+		final TestCallback second = new TestCallback();
+		mFlights.join("key", first);
+		mFlights.join("key", second);
+
+		assertTrue(mFlights.complete("key", "result"));
+		assertFalse(mFlights.complete("key", "again"));
+
+		assertEquals("result", first.mResult);
+		assertEquals("result", second.mResult);
+		assertFalse(mFlights.isInFlight("key"));
+		assertEquals(SingleFlight.JoinResult.STARTED, mFlights.join("key", new TestCallback()));
+	}
+
+	public void testFlightIsCancelledWhenLastCallbackLeaves() {
+		final List<String> cancelled = new ArrayList<String>();
+		mFlights.setOnFlightCancelledListener(new SingleFlight.OnFlightCancelledListener<String>() {
+			@Override
+			public void onFlightCancelled(final String key) {
+				cancelled.add(key);
+			}
+		});
+
+		final TestCallback first = new TestCallback();
+		final TestCallback second = new TestCallback();
+		mFlights.join("key", first);
+		mFlights.join("key", second);
+
+		assertFalse(mFlights.leave("key", first));
+		assertTrue(cancelled.isEmpty());
+
+		assertTrue(mFlights.leave("key", second));
+		assertEquals(1, cancelled.size());
+		assertEquals(0, first.mCancelledCount);
+		assertEquals(0, second.mCancelledCount);
+		assertFalse(mFlights.isInFlight("key"));
+	}
+
+	public void testFlightIsCancelledWhenOnlyCancelledCallbacksRemain() {
+		final TestCallback first = new TestCallback();
+		final TestCallback second = new TestCallback();
+		final TestCallback third = new TestCallback();
+		mFlights.join("key", first);
+		mFlights.join("key", second);
+		mFlights.join("key", third);
+
+		first.mCancelled = true;
+		assertFalse(mFlights.leave("key", second));
+		assertTrue(mFlights.isInFlight("key"));
+
+		assertTrue(mFlights.leave("key", third));
+		assertEquals(1, first.mCancelledCount);
+		assertEquals(0, second.mCancelledCount);
+		assertEquals(0, third.mCancelledCount);
+		assertFalse(mFlights.complete("key", "late"));
+		assertNull(first.mResult);
+	}
+
+	public void testHandOverPicksWaitingCallback() {
+		final TestCallback runner = new TestCallback();
+		final TestCallback cancelled = new TestCallback();
+		final TestCallback waiting = new TestCallback();
+		mFlights.join("key", runner);
+		mFlights.join("key", cancelled);
+		mFlights.join("key", waiting);
+
+		runner.mCancelled = true;
+		cancelled.mCancelled = true;
+		assertSame(waiting, mFlights.handOver("key", runner));
+		assertNull(mFlights.handOver("key", runner));
+		assertTrue(mFlights.isInFlight("key"));
+
+		mFlights.complete("key", "result");
+		assertEquals("result", waiting.mResult);
+	}
+
+	public void testHandOverCancelsFlightWhenNoCallbackIsWaiting() {
+		final TestCallback runner = new TestCallback();
+		final TestCallback joined = new TestCallback();
+		mFlights.join("key", runner);
+		mFlights.join("key", joined);
+
+		runner.mCancelled = true;
+		joined.mCancelled = true;
+		assertNull(mFlights.handOver("key", runner));
+
+		assertFalse(mFlights.isInFlight("key"));
+		assertEquals(1, runner.mCancelledCount);
+		assertEquals(1, joined.mCancelledCount);
+	}
+
+	public void testHandOverIgnoresCallbackThatIsNotRunning() {
+		final TestCallback runner = new TestCallback();
+		final TestCallback joined = new TestCallback();
+		mFlights.join("key", runner);
+		mFlights.join("key", joined);
+
+		joined.mCancelled = true;
+		assertNull(mFlights.handOver("key", joined));
+		assertTrue(mFlights.isInFlight("key"));
+		assertEquals(0, joined.mCancelledCount);
+	}
+
+	public void testRetainedResultAnswersLateCallers() {
+		mFlights.setRetention(1, TimeUnit.SECONDS);
+		mFlights.join("key", new TestCallback());
+		mFlights.complete("key", "result");
+
+		final TestCallback late = new TestCallback();
+		assertEquals(SingleFlight.JoinResult.ANSWERED, mFlights.join("key", late));
+		assertEquals("result", late.mResult);
+		assertEquals(0, mFlights.size());
+	}
+
+	public void testExpiredResultStartsNewFlight() throws Exception {
+		mFlights.setRetention(10, TimeUnit.MILLISECONDS);
+		mFlights.join("key", new TestCallback());
+		mFlights.complete("key", "result");
+
+		Thread.sleep(20);
+
+		final TestCallback late = new TestCallback();
+		assertEquals(SingleFlight.JoinResult.STARTED, mFlights.join("key", late));
+		assertNull(late.mResult);
+	}
+
+	public void testCallbacksMayJoinFromCompletion() {
+		final TestCallback inner = new TestCallback();
+		mFlights.join("key", new TestCallback() {
+			@Override
+			public void onComplete(final String result) {
+				mFlights.join("key", inner);
+			}
+		});
+		mFlights.complete("key", "result");
+
+		assertTrue(mFlights.isInFlight("key"));
+		assertNull(inner.mResult);
+	}
+
+	public void testConcurrentCallersShareOneFlight() throws Exception {
+		final int numThreads = 8;
+		final AtomicInteger started = new AtomicInteger();
+		final AtomicInteger answered = new AtomicInteger();
+		final CountDownLatch ready = new CountDownLatch(numThreads);
+		final CountDownLatch go = new CountDownLatch(1);
+		final CountDownLatch joined = new CountDownLatch(numThreads);
+
+		for (int i = 0; i < numThreads; i++) {
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					ready.countDown();
+					try {
+						go.await();
+					} catch (final InterruptedException e) {
+						return;
+					}
+					final SingleFlight.JoinResult result = mFlights.join("key", new TestCallback() {
+						@Override
+						public void onComplete(final String result) {
+							answered.incrementAndGet();
+						}
+					});
+					if (result == SingleFlight.JoinResult.STARTED) {
+						started.incrementAndGet();
+					}
+					joined.countDown();
+				}
+			}).start();
+		}
+
+		assertTrue(ready.await(1, TimeUnit.SECONDS));
+		go.countDown();
+		assertTrue(joined.await(1, TimeUnit.SECONDS));
+
+		mFlights.complete("key", "result");
+		assertEquals(1, started.get());
+		assertEquals(numThreads, answered.get());
+	}
+
+	public void testAttachOnlyJoinsRunningFlight() {
+		final TestCallback runner = new TestCallback();
+		final TestCallback attached = new TestCallback();
+
+		assertFalse(mFlights.attach("key", attached));
+		assertFalse(mFlights.isInFlight("key"));
+
+		mFlights.join("key", runner);
+		assertTrue(mFlights.attach("key", attached));
+
+		mFlights.complete("key", "result");
+		assertEquals("result", attached.mResult);
+	}
+
+	public void testRunnerIsAnsweredFirst() {
+		final List<String> answered = new ArrayList<String>();
+		final TestCallback first = new OrderedCallback("first", answered);
+		final TestCallback second = new OrderedCallback("second", answered);
+		final TestCallback third = new OrderedCallback("third", answered);
+		mFlights.join("key", first);
+		mFlights.join("key", second);
+		mFlights.join("key", third);
+
+		first.mCancelled = true;
+		second.mCancelled = true;
+		assertSame(third, mFlights.handOver("key", first));
+		mFlights.complete("key", "result");
+
+		assertEquals(3, answered.size());
+		assertEquals("third", answered.get(0));
+	}
+
+	private static class OrderedCallback extends TestCallback {
+		private final String mName;
+		private final List<String> mAnswered;
+
+		OrderedCallback(final String name, final List<String> answered) {
+			mName = name;
+			mAnswered = answered;
+		}
+
+		@Override
+		public void onComplete(final String result) {
+			super.onComplete(result);
+			mAnswered.add(mName);
+		}
+	}
+
+	private static class TestCallback implements SingleFlight.Callback<String> {
+		private volatile boolean mCancelled;
+		private String mResult;
+		private int mCancelledCount;
+
+		@Override
+		public void onComplete(final String result) {
+			mResult = result;
+		}
+
+		@Override
+		public void onCancelled() {
+			mCancelledCount++;
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return mCancelled;
+		}
+	}
+}
@@ -0,0 +1,143 @@
+package io.pivotal.arca.threading;
+
+import android.test.AndroidTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class StackPriorityAccessorTests extends AndroidTestCase {
+	private List<PrioritizableRequest> mCancelled;
+	private AuxiliaryExecutorObserver mObserver;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		mCancelled = new ArrayList<PrioritizableRequest>();
+		mObserver = new AuxiliaryExecutorObserver() {
+			@Override
+			public void onComplete(final PrioritizableRequest request) {
+			}
+
+			@Override
+			public void onCancelled(final PrioritizableRequest request) {
+				mCancelled.add(request);
+			}
+		};
+	}
+
+	public void testUnboundedAccessorNeverEvicts() {
+		final StackPriorityAccessor accessor = new StackPriorityAccessor();
+		for (int i = 0; i < 100; i++) {
+			accessor.attach(generatePrioritizable("request" + i));
+		}
+
+		assertEquals(100, accessor.size());
+		assertNull(accessor.detachEvictedItem());
+	}
+
+	public void testBoundedAccessorEvictsOldestRequests() {
+		final StackPriorityAccessor accessor = new StackPriorityAccessor(2);
+		final PrioritizableRequest first = generatePrioritizable("first");
+		final PrioritizableRequest second = generatePrioritizable("second");
+		final PrioritizableRequest third = generatePrioritizable("third");
+
+		accessor.attach(first);
+		accessor.attach(second);
+		accessor.attach(third);
+
+		assertSame(first, accessor.detachEvictedItem());
+		assertNull(accessor.detachEvictedItem());
+		assertSame(third, accessor.detachHighestPriorityItem());
+		assertSame(second, accessor.detachHighestPriorityItem());
+		assertNull(accessor.detachHighestPriorityItem());
+		assertNull(accessor.detachEvictedItem());
+	}
+
+	public void testBumpingRequestProtectsItFromEviction() {
+		final StackPriorityAccessor accessor = new StackPriorityAccessor(2);
+		final PrioritizableRequest first = generatePrioritizable("first");
+		final PrioritizableRequest second = generatePrioritizable("second");
+		final PrioritizableRequest third = generatePrioritizable("third");
+
+		accessor.attach(first);
+		accessor.attach(second);
+		accessor.attach(first);
+		accessor.attach(third);
+
+		assertSame(second, accessor.detachEvictedItem());
+	}
+
+	public void testQueueCancelsEvictedRequests() {
+		final AuxiliaryBlockingQueue queue = new AuxiliaryBlockingQueue(newAccessorArray(2), mObserver);
+		final PrioritizableRequest stale = generatePrioritizable("stale");
+		final PrioritizableRequest older = generatePrioritizable("older");
+		final PrioritizableRequest newer = generatePrioritizable("newer");
+
+		queue.offer(stale);
+		queue.offer(older);
+		queue.offer(newer);
+
+		assertEquals(2, queue.size());
+		assertTrue(stale.isCancelled());
+		assertEquals(1, mCancelled.size());
+		assertSame(stale, mCancelled.get(0));
+		assertSame(newer, queue.poll());
+		assertSame(older, queue.poll());
+	}
+
+	public void testStripedQueueCancelsEvictedRequests() {
+		final StripedAuxiliaryBlockingQueue queue = new StripedAuxiliaryBlockingQueue(newAccessorArray(1), mObserver);
+		final PrioritizableRequest stale = generatePrioritizable("stale");
+		final PrioritizableRequest fresh = generatePrioritizable("fresh");
+
+		queue.offer(stale);
+		queue.offer(fresh);
+
+		assertEquals(1, queue.size());
+		assertTrue(stale.isCancelled());
+		assertEquals(1, mCancelled.size());
+		assertSame(fresh, queue.poll());
+		assertTrue(queue.isEmpty());
+	}
+
+	public void testQueueNotifiesEvictionListener() {
+		final List<PrioritizableRequest> evicted = new ArrayList<PrioritizableRequest>();
+		final AuxiliaryBlockingQueue queue = new AuxiliaryBlockingQueue(newAccessorArray(1), mObserver);
+		queue.setOnEvictedListener(new PrioritizableBlockingQueue.OnEvictedListener() {
+			@Override
+			public void onEvicted(final PrioritizableRequest request) {
+				evicted.add(request);
+			}
+		});
+
+		final PrioritizableRequest stale = generatePrioritizable("stale");
+		queue.offer(stale);
+		queue.offer(generatePrioritizable("fresh"));
+
+		assertEquals(1, evicted.size());
+		assertSame(stale, evicted.get(0));
+	}
+
+	private static PriorityAccessor[] newAccessorArray(final int liveCapacity) {
+		return new PriorityAccessor[] {
+				new StackPriorityAccessor(liveCapacity),
+				new QueuePriorityAccessor(),
+				new QueuePriorityAccessor(),
+				new QueuePriorityAccessor()
+		};
+	}
+
+	private static PrioritizableRequest generatePrioritizable(final String request) {
+		return new PrioritizableRequest(new Prioritizable() {
+			@Override
+			public void execute() {
+			}
+
+			@Override
+			public Identifier<?> getIdentifier() {
+				return new Identifier<String>(request);
+			}
+		}, 0);
+	}
+}
@@ -0,0 +1,186 @@
+package io.pivotal.arca.threading;
+
+import android.test.AndroidTestCase;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class StripedAuxiliaryBlockingQueueTests extends AndroidTestCase {
+	private StripedAuxiliaryBlockingQueue mQueue;
+	private List<PrioritizableRequest> mCancelled;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		mCancelled = new ArrayList<PrioritizableRequest>();
+		mQueue = new StripedAuxiliaryBlockingQueue(newAccessorArray(), new AuxiliaryExecutorObserver() {
+			@Override
+			public void onComplete(final PrioritizableRequest request) {
+			}
+
+			@Override
+			public void onCancelled(final PrioritizableRequest request) {
+				mCancelled.add(request);
+			}
+		});
+	}
+
+	public void testPollReturnsHighestPriorityLaneFirst() {
+		final PrioritizableRequest low = generatePrioritizable("low", 2);
+		final PrioritizableRequest high = generatePrioritizable("high", 1);
+		final PrioritizableRequest live = generatePrioritizable("live", 0);
+
+		mQueue.offer(low);
+		mQueue.offer(high);
+		mQueue.offer(live);
+
+		assertEquals(3, mQueue.size());
+		assertSame(live, mQueue.poll());
+		assertSame(high, mQueue.poll());
+		assertSame(low, mQueue.poll());
+		assertTrue(mQueue.isEmpty());
+	}
+
+	public void testPollKeepsAccessorOrderingWithinLane() {
+		final PrioritizableRequest stack1 = generatePrioritizable("stack1", 0);
+		final PrioritizableRequest stack2 = generatePrioritizable("stack2", 0);
+		final PrioritizableRequest queue1 = generatePrioritizable("queue1", 1);
+		final PrioritizableRequest queue2 = generatePrioritizable("queue2", 1);
+
+		mQueue.offer(stack1);
+		mQueue.offer(stack2);
+		mQueue.offer(queue1);
+		mQueue.offer(queue2);
+
+		assertSame(stack2, mQueue.poll());
+		assertSame(stack1, mQueue.poll());
+		assertSame(queue1, mQueue.poll());
+		assertSame(queue2, mQueue.poll());
+	}
+
+	public void testReofferingRequestDoesNotChangeSize() {
+		final PrioritizableRequest request = generatePrioritizable("request", 1);
+
+		mQueue.offer(request);
+		mQueue.offer(request);
+
+		assertEquals(1, mQueue.size());
+	}
+
+	public void testPollSkipsCancelledRequests() {
+		final PrioritizableRequest cancelled = generatePrioritizable("cancelled", 0);
+		final PrioritizableRequest request = generatePrioritizable("request", 1);
+
+		mQueue.offer(cancelled);
+		mQueue.offer(request);
+		cancelled.cancel();
+
+		assertSame(request, mQueue.poll());
+		assertEquals(1, mCancelled.size());
+		assertSame(cancelled, mCancelled.get(0));
+		assertTrue(mQueue.isEmpty());
+	}
+
+	public void testRemoveDetachesCancelledRequestImmediately() {
+		final PrioritizableRequest stack = generatePrioritizable("stack", 0);
+		final PrioritizableRequest queue = generatePrioritizable("queue", 1);
+
+		mQueue.offer(stack);
+		mQueue.offer(queue);
+		stack.cancel();
+
+		assertTrue(mQueue.remove(stack));
+		assertFalse(mQueue.remove(stack));
+		assertEquals(1, mQueue.size());
+		assertEquals(1, mCancelled.size());
+		assertSame(queue, mQueue.poll());
+	}
+
+	public void testPollWithTimeoutReturnsNullWhenEmpty() throws Exception {
+		assertNull(mQueue.poll(10, TimeUnit.MILLISECONDS));
+	}
+
+	public void testTakeWaitsForOffer() throws Exception {
+		final PrioritizableRequest request = generatePrioritizable("request", 3);
+
+		final Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(50);
+				} catch (final InterruptedException e) {
+					return;
+				}
+				mQueue.offer(request);
+			}
+		});
+		thread.start();
+
+		assertSame(request, mQueue.take());
+		thread.join();
+	}
+
+	public void testIteratorVisitsEveryLane() {
+		final PrioritizableRequest live = generatePrioritizable("live", 0);
+		final PrioritizableRequest high = generatePrioritizable("high", 1);
+		final PrioritizableRequest low = generatePrioritizable("low", 3);
+
+		mQueue.offer(low);
+		mQueue.offer(high);
+		mQueue.offer(live);
+
+		final List<Runnable> iterated = new ArrayList<Runnable>();
+		for (final Runnable runnable : mQueue) {
+			iterated.add(runnable);
+		}
+
+		assertEquals(3, iterated.size());
+		assertTrue(iterated.contains(live));
+		assertTrue(iterated.contains(high));
+		assertTrue(iterated.contains(low));
+		assertEquals(3, mQueue.toArray().length);
+	}
+
+	public void testIteratorRemoveTakesRequestOutOfQueue() {
+		final PrioritizableRequest first = generatePrioritizable("first", 1);
+		final PrioritizableRequest second = generatePrioritizable("second", 2);
+
+		mQueue.offer(first);
+		mQueue.offer(second);
+
+		final Iterator<Runnable> iterator = mQueue.iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next() == first) {
+				iterator.remove();
+			}
+		}
+
+		assertEquals(1, mQueue.size());
+		assertSame(second, mQueue.poll());
+	}
+
+	private static PriorityAccessor[] newAccessorArray() {
+		return new PriorityAccessor[] {
+				new StackPriorityAccessor(),
+				new QueuePriorityAccessor(),
+				new QueuePriorityAccessor(),
+				new QueuePriorityAccessor()
+		};
+	}
+
+	private static PrioritizableRequest generatePrioritizable(final String request, final int accessorIndex) {
+		return new PrioritizableRequest(new Prioritizable() {
+			@Override
+			public void execute() {
+			}
+
+			@Override
+			public Identifier<?> getIdentifier() {
+				return new Identifier<String>(request);
+			}
+		}, accessorIndex);
+	}
+}
@@ -0,0 +1,142 @@
+package io.pivotal.arca.threading;
+
+import android.test.AndroidTestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class ThreadPriorityPolicyTests extends AndroidTestCase {
+	private static final int POOL_PRIORITY = 10;
+	private static final int[] LANE_PRIORITIES = { 0, 10, 19 };
+
+	private final ThreadLocal<Integer> mThreadPriority = new ThreadLocal<Integer>();
+	private List<Integer> mChanges;
+	private List<Integer> mRunPriorities;
+	private ThreadPriorityPolicy mPolicy;
+	private DefaultAuxiliaryExecutor mExecutor;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		mChanges = Collections.synchronizedList(new ArrayList<Integer>());
+		mRunPriorities = Collections.synchronizedList(new ArrayList<Integer>());
+
+		final AuxiliaryExecutor.Builder builder = new AuxiliaryExecutor.Builder(new PriorityAccessor[] { new QueuePriorityAccessor(), new QueuePriorityAccessor(),
+				new QueuePriorityAccessor() }, new AuxiliaryExecutorObserver() {
+			@Override
+			public void onComplete(final PrioritizableRequest request) {
+				mExecutor.notifyRequestComplete(request.getIdentifier());
+			}
+
+			@Override
+			public void onCancelled(final PrioritizableRequest request) {
+			}
+		});
+		builder.setCorePoolSize(1);
+		mPolicy = new ThreadPriorityPolicy() {
+			@Override
+			public int getPoolPriority() {
+				return POOL_PRIORITY;
+			}
+
+			@Override
+			public int getPriority(final PrioritizableRequest request) {
+				return LANE_PRIORITIES[request.getAccessorIndex()];
+			}
+
+			@Override
+			public int getThreadPriority() {
+				final Integer priority = mThreadPriority.get();
+				return priority != null ? priority : POOL_PRIORITY;
+			}
+
+			@Override
+			public void setThreadPriority(final int priority) {
+				mThreadPriority.set(priority);
+				mChanges.add(priority);
+			}
+		};
+		builder.setThreadPriorityPolicy(mPolicy);
+		mExecutor = (DefaultAuxiliaryExecutor) builder.create();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		mExecutor.shutdownNow();
+		super.tearDown();
+	}
+
+	public void testRequestsRunAtTheirLanePriority() throws Exception {
+		final CountDownLatch latch = new CountDownLatch(3);
+
+		mExecutor.execute(generatePrioritizable("live", 0, latch));
+		mExecutor.execute(generatePrioritizable("high", 1, latch));
+		mExecutor.execute(generatePrioritizable("low", 2, latch));
+
+		assertTrue(latch.await(1, TimeUnit.SECONDS));
+		assertEquals(3, mRunPriorities.size());
+		assertTrue(mRunPriorities.contains(0));
+		assertTrue(mRunPriorities.contains(10));
+		assertTrue(mRunPriorities.contains(19));
+	}
+
+	public void testPoolPriorityIsRestoredAfterEachRun() throws Exception {
+		final CountDownLatch first = new CountDownLatch(1);
+		mExecutor.execute(generatePrioritizable("live", 0, first));
+		assertTrue(first.await(1, TimeUnit.SECONDS));
+
+		final CountDownLatch second = new CountDownLatch(1);
+		mExecutor.execute(generatePrioritizable("high", 1, second));
+		assertTrue(second.await(1, TimeUnit.SECONDS));
+		Thread.sleep(20);
+
+		assertEquals(POOL_PRIORITY, (int) mChanges.get(0));
+		assertEquals(Integer.valueOf(0), mRunPriorities.get(0));
+		assertEquals(Integer.valueOf(POOL_PRIORITY), mRunPriorities.get(1));
+		assertEquals(POOL_PRIORITY, (int) mChanges.get(mChanges.size() - 1));
+	}
+
+	public void testPriorityChangedByRequestDoesNotLeakIntoNextRequest() throws Exception {
+		final CountDownLatch first = new CountDownLatch(1);
+		mExecutor.execute(new PrioritizableRequest(new Prioritizable() {
+			@Override
+			public void execute() {
+				mPolicy.setThreadPriority(5);
+				first.countDown();
+			}
+
+			@Override
+			public Identifier<?> getIdentifier() {
+				return new Identifier<String>("changes");
+			}
+		}, 1));
+		assertTrue(first.await(1, TimeUnit.SECONDS));
+
+		final CountDownLatch second = new CountDownLatch(1);
+		mExecutor.execute(generatePrioritizable("high", 1, second));
+		assertTrue(second.await(1, TimeUnit.SECONDS));
+		Thread.sleep(20);
+
+		assertEquals(Integer.valueOf(POOL_PRIORITY), mRunPriorities.get(0));
+		assertEquals(POOL_PRIORITY, (int) mChanges.get(mChanges.size() - 1));
+	}
+
+	private PrioritizableRequest generatePrioritizable(final String identifier, final int accessorIndex, final CountDownLatch latch) {
+		return new PrioritizableRequest(new Prioritizable() {
+			@Override
+			public void execute() {
+				mRunPriorities.add(mThreadPriority.get());
+				latch.countDown();
+			}
+
+			@Override
+			public Identifier<?> getIdentifier() {
+				return new Identifier<String>(identifier);
+			}
+		}, accessorIndex);
+	}
+}
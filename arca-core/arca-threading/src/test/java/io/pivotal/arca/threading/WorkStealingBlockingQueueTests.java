@@ -0,0 +1,236 @@
+package io.pivotal.arca.threading;
+
+import android.test.AndroidTestCase;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class WorkStealingBlockingQueueTests extends AndroidTestCase {
+	private static final PriorityAccessorFactory FACTORY = new PriorityAccessorFactory() {
+		@Override
+		public PriorityAccessor[] newAccessorArray() {
+			return WorkStealingBlockingQueueTests.newAccessorArray();
+		}
+	};
+
+	private static final PriorityAccessorFactory BOUNDED_FACTORY = new PriorityAccessorFactory() {
+		@Override
+		public PriorityAccessor[] newAccessorArray() {
+			return WorkStealingBlockingQueueTests.newBoundedAccessorArray();
+		}
+	};
+
+	private List<PrioritizableRequest> mCancelled;
+	private AuxiliaryExecutorObserver mObserver;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		mCancelled = new ArrayList<PrioritizableRequest>();
+		mObserver = new AuxiliaryExecutorObserver() {
+			@Override
+			public void onComplete(final PrioritizableRequest request) {
+			}
+
+			@Override
+			public void onCancelled(final PrioritizableRequest request) {
+				mCancelled.add(request);
+			}
+		};
+	}
+
+	public void testPollServesHighestLaneAcrossAllStripes() {
+		final WorkStealingBlockingQueue queue = new WorkStealingBlockingQueue(newAccessorArray(), FACTORY, 4, mObserver);
+		final PrioritizableRequest low = generatePrioritizable("low", 3);
+		final PrioritizableRequest medium = generatePrioritizable("medium", 2);
+		final PrioritizableRequest high = generatePrioritizable("high", 1);
+		final PrioritizableRequest live = generatePrioritizable("live", 0);
+
+		queue.offer(low);
+		queue.offer(medium);
+		queue.offer(high);
+		queue.offer(live);
+
+		assertEquals(4, queue.size());
+		assertSame(live, queue.peek());
+		assertSame(live, queue.poll());
+		assertSame(high, queue.poll());
+		assertSame(medium, queue.poll());
+		assertSame(low, queue.poll());
+		assertTrue(queue.isEmpty());
+	}
+
+	public void testWorkerStealsFromOtherStripes() throws Exception {
+		final WorkStealingBlockingQueue queue = new WorkStealingBlockingQueue(newAccessorArray(), FACTORY, 2, mObserver);
+		final PrioritizableRequest request = generatePrioritizable("request", 2);
+
+		final Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				queue.poll();
+				queue.offer(request);
+			}
+		});
+		thread.start();
+		thread.join();
+
+		assertSame(request, queue.poll());
+	}
+
+	public void testRemoveFindsRequestInAnyStripe() {
+		final WorkStealingBlockingQueue queue = new WorkStealingBlockingQueue(newAccessorArray(), FACTORY, 3, mObserver);
+		final PrioritizableRequest first = generatePrioritizable("first", 1);
+		final PrioritizableRequest second = generatePrioritizable("second", 1);
+		final PrioritizableRequest third = generatePrioritizable("third", 1);
+
+		queue.offer(first);
+		queue.offer(second);
+		queue.offer(third);
+		third.cancel();
+
+		assertTrue(queue.remove(third));
+		assertFalse(queue.remove(third));
+		assertEquals(2, queue.size());
+		assertEquals(1, mCancelled.size());
+	}
+
+	public void testIteratorVisitsEveryStripe() throws Exception {
+		final WorkStealingBlockingQueue queue = new WorkStealingBlockingQueue(newAccessorArray(), FACTORY, 3, mObserver);
+		final List<PrioritizableRequest> requests = new ArrayList<PrioritizableRequest>();
+		for (int i = 0; i < 3; i++) {
+			final PrioritizableRequest request = generatePrioritizable("request" + i, i);
+			requests.add(request);
+			final Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					queue.offer(request);
+				}
+			});
+			thread.start();
+			thread.join();
+		}
+
+		final List<Runnable> iterated = new ArrayList<Runnable>();
+		for (final Runnable runnable : queue) {
+			iterated.add(runnable);
+		}
+
+		assertEquals(3, iterated.size());
+		assertTrue(iterated.containsAll(requests));
+
+		final Iterator<Runnable> iterator = queue.iterator();
+		iterator.next();
+		iterator.remove();
+		assertEquals(2, queue.size());
+	}
+
+	public void testFactoryMustMatchAccessorCount() {
+		try {
+			new WorkStealingBlockingQueue(newAccessorArray(), new PriorityAccessorFactory() {
+				@Override
+				public PriorityAccessor[] newAccessorArray() {
+					return new PriorityAccessor[] { new QueuePriorityAccessor() };
+				}
+			}, 2, mObserver);
+			fail();
+		} catch (final IllegalArgumentException e) {
+			assertNotNull(e);
+		}
+	}
+
+	public void testTimedOfferWaitsForRoomInFullStripe() throws Exception {
+		final WorkStealingBlockingQueue queue = new WorkStealingBlockingQueue(newBoundedAccessorArray(), BOUNDED_FACTORY, 1, mObserver);
+		final PrioritizableRequest first = generatePrioritizable("first", 1);
+		final PrioritizableRequest second = generatePrioritizable("second", 1);
+
+		assertTrue(queue.offer(first, 10, TimeUnit.MILLISECONDS));
+		assertFalse(queue.offer(second, 10, TimeUnit.MILLISECONDS));
+		assertEquals(1, queue.size());
+
+		final Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(50);
+				} catch (final InterruptedException e) {
+					return;
+				}
+				queue.poll();
+			}
+		});
+		thread.start();
+
+		assertTrue(queue.offer(second, 1, TimeUnit.SECONDS));
+		assertSame(second, queue.poll());
+		thread.join();
+	}
+
+	public void testBoundedLaneCapacityIsPerStripe() {
+		final WorkStealingBlockingQueue queue = new WorkStealingBlockingQueue(newBoundedAccessorArray(), BOUNDED_FACTORY, 2, mObserver);
+
+		assertTrue(queue.offer(generatePrioritizable("first", 1)));
+		assertTrue(queue.offer(generatePrioritizable("second", 1)));
+		assertFalse(queue.offer(generatePrioritizable("third", 1)));
+		assertEquals(2, queue.size());
+	}
+
+	public void testExecutorRunsEveryRequest() throws Exception {
+		final int numRequests = 200;
+		final CountDownLatch latch = new CountDownLatch(numRequests);
+		final AuxiliaryExecutor.Builder builder = new AuxiliaryExecutor.Builder(newAccessorArray(), mObserver);
+		builder.setCorePoolSize(4);
+		builder.useWorkStealingQueue(FACTORY);
+		final AuxiliaryExecutor executor = builder.create();
+
+		for (int i = 0; i < numRequests; i++) {
+			executor.execute(new PrioritizableRequest(new Prioritizable() {
+				@Override
+				public void execute() {
+					latch.countDown();
+				}
+
+				@Override
+				public Identifier<?> getIdentifier() {
+					return new Identifier<Object>(this);
+				}
+			}, i % 4));
+		}
+
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		((ExecutorService) executor).shutdownNow();
+	}
+
+	private static PriorityAccessor[] newAccessorArray() {
+		return new PriorityAccessor[] {
+				new StackPriorityAccessor(),
+				new QueuePriorityAccessor(),
+				new QueuePriorityAccessor(),
+				new QueuePriorityAccessor()
+		};
+	}
+
+	private static PriorityAccessor[] newBoundedAccessorArray() {
+		return new PriorityAccessor[] {
+				new StackPriorityAccessor(),
+				new BoundedPriorityAccessor(new QueuePriorityAccessor(), 1, SheddingPolicy.REJECT_NEWEST)
+		};
+	}
+
+	private static PrioritizableRequest generatePrioritizable(final String request, final int accessorIndex) {
+		return new PrioritizableRequest(new Prioritizable() {
+			@Override
+			public void execute() {
+			}
+
+			@Override
+			public Identifier<?> getIdentifier() {
+				return new Identifier<String>(request);
+			}
+		}, accessorIndex);
+	}
+}